@@ -23,6 +23,7 @@ export interface Genre {
 export interface AppUser {
     id: number;
     username: string;
+    libraryVersion: number;
     userMovies: UserMovie[];
 }
 
@@ -34,6 +35,20 @@ export interface UserMovie {
     favorite: boolean;
 }
 
+// response of PATCH /user-movie: only the changed rows, removed ones with both flags false
+export interface UserMovieDelta {
+    appUserId: number;
+    version: number;
+    changes: UserMovie[];
+}
+
+export function applyUserMovieDelta(userMovies: UserMovie[], delta: UserMovieDelta): UserMovie[] {
+    const changedIds = new Set(delta.changes.map(change => change.movieId));
+    return userMovies
+        .filter(userMovie => !changedIds.has(userMovie.movieId))
+        .concat(delta.changes.filter(change => change.watched || change.favorite));
+}
+
 export interface FlattenedUserMovie {
     movieId: number;
     title: string;
@@ -1,7 +1,7 @@
 import {DataGrid, type GridColDef} from "@mui/x-data-grid";
 import {List} from "@refinedev/mui";
 import React, {useEffect, useMemo, useState} from "react";
-import {type AppUser, FlattenedUserMovie, UserMovie} from "../../components/model/all";
+import {type AppUser, FlattenedUserMovie, UserMovie, UserMovieDelta, applyUserMovieDelta} from "../../components/model/all";
 import {
     Button,
     Dialog,
@@ -102,11 +102,12 @@ export const Homepage = () => {
                 const userStr = localStorage.getItem('user');
                 const parsedUser = userStr ? JSON.parse(userStr) as AppUser : null;
                 if (parsedUser) {
-                    parsedUser.userMovies = response.data;
+                    const delta = response.data as UserMovieDelta;
+                    parsedUser.userMovies = applyUserMovieDelta(parsedUser.userMovies || [], delta);
+                    parsedUser.libraryVersion = delta.version;
                     localStorage.setItem('user', JSON.stringify(parsedUser))
+                    setFlatenedUserMovies(flattenUserMovies(parsedUser.userMovies));
                 }
-                const flatMovies = flattenUserMovies(response.data as UserMovie[]);
-                setFlatenedUserMovies(flatMovies ?? []);
                 setLoading(false);
             } else {
                 console.error('Failed to update movie preference');
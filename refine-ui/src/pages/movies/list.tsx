@@ -13,7 +13,7 @@ import {
 } from "@mui/material";
 import React, {useState, useEffect} from "react";
 import axios from "axios";
-import {type Genre, type Actor, FlattenedUserMovie, AppUser, UserMovie, Movie} from "../../components/model/all";
+import {type Genre, type Actor, FlattenedUserMovie, AppUser, UserMovieDelta, applyUserMovieDelta, Movie} from "../../components/model/all";
 import VisibilityIcon from '@mui/icons-material/Visibility';
 import VisibilityOffIcon from '@mui/icons-material/VisibilityOff';
 import FavoriteIcon from '@mui/icons-material/Favorite';
@@ -162,11 +162,12 @@ export const MovieList = () => {
                 const userStr = localStorage.getItem('user');
                 const parsedUser = userStr ? JSON.parse(userStr) as AppUser : null;
                 if (parsedUser) {
-                    parsedUser.userMovies = response.data as UserMovie[];
+                    const delta = response.data as UserMovieDelta;
+                    parsedUser.userMovies = applyUserMovieDelta(parsedUser.userMovies || [], delta);
+                    parsedUser.libraryVersion = delta.version;
                     localStorage.setItem('user', JSON.stringify(parsedUser))
+                    setFlatenedUserMovies(flattenUserMovies(parsedUser.userMovies));
                 }
-                const flatMovies = flattenUserMovies(response.data);
-                setFlatenedUserMovies(flatMovies);
             } else {
                 console.error('Failed to update movie preference');
             }
@@ -0,0 +1,403 @@
+package asot.me.rest.autocomplete;
+
+import asot.me.rest.dto.AutocompleteHitDto;
+import asot.me.rest.dto.AutocompleteStatsDto;
+import asot.me.rest.repository.AutocompleteSourceRepository;
+import lombok.extern.log4j.Log4j2;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory prefix index of movie titles and actor names for /autocomplete.
+ * <p>
+ * Most entries live in an immutable {@link PrefixSegment}. Writes go to a small delta: tokenized upserts
+ * with a sorted token index over them, plus a bitmap of segment ordinals that are stale. Lookups merge both. When the delta grows
+ * past the threshold, a new segment is built off the lock and swapped in. Changes made during
+ * the build are journaled and replayed onto it. Entries are keyed by the id with the type in the top bits,
+ * so all movies sort before all actors.
+ */
+@Component
+@Log4j2
+public class AutocompleteIndex {
+    public static final String MOVIE = "movie";
+    public static final String ACTOR = "actor";
+
+    private static final int MOVIE_KIND = 0;
+    private static final int ACTOR_KIND = 1;
+    private static final int KIND_SHIFT = 62;
+    private static final long ID_MASK = (1L << KIND_SHIFT) - 1;
+    // segment entries looked at per lookup before ranking, bounds very short prefixes
+    private static final int MAX_CANDIDATES = 2_000;
+
+    private final AutocompleteSourceRepository sourceRepository;
+    private final int compactionThreshold;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean building = new AtomicBoolean();
+    private PrefixSegment segment = PrefixSegment.EMPTY;
+    private RoaringBitmap stale = new RoaringBitmap();
+    private Map<Long, Upsert> upserts = new HashMap<>();
+    // token -> keys of the upserts, so a lookup only visits upserts under the query prefix
+    private NavigableMap<String, Set<Long>> upsertTokens = new TreeMap<>();
+    // changes made while a segment is being built, replayed onto it
+    private List<Map.Entry<Long, Upsert>> journal;
+    private volatile boolean ready;
+    private volatile long lastBuildMs;
+
+    public AutocompleteIndex(AutocompleteSourceRepository sourceRepository,
+                             @Value("${autocomplete.compaction-threshold:20000}") int compactionThreshold) {
+        this.sourceRepository = sourceRepository;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        Thread.ofPlatform().daemon().name("autocomplete-build").start(() -> build(true));
+    }
+
+    @Scheduled(fixedDelayString = "${autocomplete.compaction-check-ms:30000}")
+    public void compactIfNeeded() {
+        boolean needed;
+        lock.readLock().lock();
+        try {
+            needed = ready && upserts.size() + stale.getCardinality() >= compactionThreshold;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (needed) {
+            build(false);
+        }
+    }
+
+    public void movieSaved(Long id, String title) {
+        afterCommit(() -> apply(key(id, MOVIE_KIND), title));
+    }
+
+    public void movieDeleted(Long id) {
+        afterCommit(() -> apply(key(id, MOVIE_KIND), null));
+    }
+
+    public void actorSaved(Long id, String firstname, String lastname) {
+        String name = String.join(" ", firstname == null ? "" : firstname, lastname == null ? "" : lastname).trim();
+        afterCommit(() -> apply(key(id, ACTOR_KIND), name));
+    }
+
+    public void actorDeleted(Long id) {
+        afterCommit(() -> apply(key(id, ACTOR_KIND), null));
+    }
+
+    /**
+     * Entries whose tokens start with every token of the query, best first: labels starting with the
+     * whole query, then shorter labels. Very short prefixes rank among the first matches found only.
+     */
+    public List<AutocompleteHitDto> suggest(String query, Set<String> types, int limit) {
+        String[] queryTokens = PrefixSegment.tokenize(query);
+        if (queryTokens.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        boolean movies = types.contains(MOVIE);
+        boolean actors = types.contains(ACTOR);
+        String normalizedQuery = String.join(" ", queryTokens);
+
+        Map<Long, String> matches = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            collectFromSegment(queryTokens, movies, actors, matches);
+            collectFromDelta(queryTokens, movies, actors, matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return matches.entrySet().stream()
+                .map(match -> new Match(match.getKey(), match.getValue(),
+                        String.join(" ", PrefixSegment.tokenize(match.getValue())).startsWith(normalizedQuery)))
+                .sorted(Comparator.comparing(Match::startsWithQuery).reversed()
+                        .thenComparingInt(match -> match.label().length())
+                        .thenComparingLong(Match::key))
+                .limit(limit)
+                .map(match -> AutocompleteHitDto.builder()
+                        .type(kind(match.key()) == MOVIE_KIND ? MOVIE : ACTOR)
+                        .id(match.key() & ID_MASK)
+                        .label(match.label())
+                        .build())
+                .toList();
+    }
+
+    private record Match(long key, String label, boolean startsWithQuery) {
+    }
+
+    /**
+     * A delta entry, tokenized once when it is written.
+     */
+    private record Upsert(String label, String[] tokens) {
+    }
+
+    public AutocompleteStatsDto getStats() {
+        lock.readLock().lock();
+        try {
+            long entries = segment.size() - stale.getCardinality() + upserts.size();
+            long bytes = segment.estimatedBytes() + stale.getSizeInBytes();
+            for (Upsert upsert : upserts.values()) {
+                // hash map node, boxed key, record, label and token array, then per token its string and index nodes
+                bytes += 48 + 24 + 24 + PrefixSegment.stringBytes(upsert.label()) + 16 + upsert.tokens().length * 4L;
+                for (String token : upsert.tokens()) {
+                    bytes += PrefixSegment.stringBytes(token) + 88;
+                }
+            }
+            return AutocompleteStatsDto.builder()
+                    .ready(ready)
+                    .entries(entries)
+                    .tokens(segment.tokenCount())
+                    .pendingUpserts(upserts.size())
+                    .pendingRemovals(stale.getCardinality())
+                    .estimatedBytes(bytes)
+                    .bytesPerMillionEntries(entries == 0 ? 0 : bytes * 1_000_000 / entries)
+                    .lastBuildMs(lastBuildMs)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collectFromSegment(String[] queryTokens, boolean movies, boolean actors, Map<Long, String> matches) {
+        // drive the lookup by the query token with the fewest postings, verify the others on the label
+        int[] driving = null;
+        for (String queryToken : queryTokens) {
+            int[] range = segment.tokenRange(queryToken);
+            if (driving == null || segment.postingCount(range) < segment.postingCount(driving)) {
+                driving = range;
+            }
+        }
+        Set<Integer> seen = new HashSet<>();
+        int examined = 0;
+        for (int index = segment.postingFrom(driving); index < segment.postingTo(driving) && examined < MAX_CANDIDATES; index++) {
+            int ordinal = segment.posting(index);
+            long key = segment.key(ordinal);
+            if (stale.contains(ordinal) || !wanted(key, movies, actors) || !seen.add(ordinal)) {
+                continue;
+            }
+            examined++;
+            String label = segment.label(ordinal);
+            if (queryTokens.length == 1 || matchesAll(PrefixSegment.tokenize(label), queryTokens)) {
+                matches.put(key, label);
+            }
+        }
+    }
+
+    private void collectFromDelta(String[] queryTokens, boolean movies, boolean actors, Map<Long, String> matches) {
+        // the longest query token usually has the narrowest prefix range
+        String driving = queryTokens[0];
+        for (String queryToken : queryTokens) {
+            if (queryToken.length() > driving.length()) {
+                driving = queryToken;
+            }
+        }
+        for (Set<Long> keys : upsertTokens.subMap(driving, true, driving + Character.MAX_VALUE, false).values()) {
+            for (Long key : keys) {
+                Upsert upsert = upserts.get(key);
+                if (wanted(key, movies, actors) && matchesAll(upsert.tokens(), queryTokens)) {
+                    matches.put(key, upsert.label());
+                }
+            }
+        }
+    }
+
+    private static boolean matchesAll(String[] labelTokens, String[] queryTokens) {
+        for (String queryToken : queryTokens) {
+            if (Arrays.stream(labelTokens).noneMatch(token -> token.startsWith(queryToken))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean wanted(long key, boolean movies, boolean actors) {
+        return kind(key) == MOVIE_KIND ? movies : actors;
+    }
+
+    private static long key(long id, int kind) {
+        return (long) kind << KIND_SHIFT | id;
+    }
+
+    private static int kind(long key) {
+        return (int) (key >>> KIND_SHIFT);
+    }
+
+    /**
+     * @param label null removes the entry
+     */
+    private void apply(long key, String label) {
+        Upsert upsert = label == null ? null : new Upsert(label, PrefixSegment.tokenize(label));
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.add(new AbstractMap.SimpleImmutableEntry<>(key, upsert));
+            }
+            applyLocked(key, upsert);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void applyLocked(long key, Upsert upsert) {
+        int ordinal = segment.ordinalOf(key);
+        if (ordinal >= 0) {
+            stale.add(ordinal);
+        }
+        Upsert previous = upsert == null ? upserts.remove(key) : upserts.put(key, upsert);
+        if (previous != null) {
+            for (String token : previous.tokens()) {
+                Set<Long> keys = upsertTokens.get(token);
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    upsertTokens.remove(token);
+                }
+            }
+        }
+        if (upsert != null) {
+            for (String token : upsert.tokens()) {
+                upsertTokens.computeIfAbsent(token, t -> new HashSet<>()).add(key);
+            }
+        }
+    }
+
+    /**
+     * Index changes only become visible once the writing transaction commits.
+     */
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * Builds a new segment, from the database on the first run and from the current segment plus delta after that.
+     */
+    void build(boolean fromDatabase) {
+        if (!building.compareAndSet(false, true)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            PrefixSegment current;
+            Map<Long, String> pending;
+            RoaringBitmap staleSnapshot;
+            lock.writeLock().lock();
+            try {
+                journal = new ArrayList<>();
+                current = segment;
+                pending = new HashMap<>();
+                upserts.forEach((key, upsert) -> pending.put(key, upsert.label()));
+                staleSnapshot = stale.clone();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            PrefixSegment built = fromDatabase ? loadFromDatabase() : merge(current, staleSnapshot, pending);
+
+            lock.writeLock().lock();
+            try {
+                segment = built;
+                stale = new RoaringBitmap();
+                upserts = new HashMap<>();
+                upsertTokens = new TreeMap<>();
+                for (Map.Entry<Long, Upsert> change : journal) {
+                    applyLocked(change.getKey(), change.getValue());
+                }
+                journal = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastBuildMs = System.currentTimeMillis() - started;
+            log.info("Autocomplete segment built: {} entries, {} tokens in {} ms", built.size(), built.tokenCount(), lastBuildMs);
+        } catch (Exception e) {
+            log.error("Autocomplete build failed e:{}", e.getLocalizedMessage());
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            building.set(false);
+        }
+    }
+
+    private PrefixSegment loadFromDatabase() {
+        // both queries are in id order and every movie key is below every actor key
+        PrefixSegment.Builder builder = new PrefixSegment.Builder(1 << 16);
+        sourceRepository.forEachMovieTitle(rs -> builder.add(key(rs.getLong("id"), MOVIE_KIND), rs.getString("label")));
+        sourceRepository.forEachActorName(rs -> builder.add(key(rs.getLong("id"), ACTOR_KIND), rs.getString("label")));
+        return builder.build();
+    }
+
+    static PrefixSegment merge(PrefixSegment current, RoaringBitmap staleOrdinals, Map<Long, String> pending) {
+        long[] pendingKeys = pending.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        PrefixSegment.Builder builder = new PrefixSegment.Builder(current.size() + pendingKeys.length);
+        int ordinal = 0;
+        int next = 0;
+        while (ordinal < current.size() || next < pendingKeys.length) {
+            if (ordinal < current.size() && staleOrdinals.contains(ordinal)) {
+                ordinal++;
+                continue;
+            }
+            long currentKey = ordinal < current.size() ? current.key(ordinal) : Long.MAX_VALUE;
+            long pendingKey = next < pendingKeys.length ? pendingKeys[next] : Long.MAX_VALUE;
+            if (currentKey < pendingKey) {
+                builder.add(currentKey, current.label(ordinal++));
+            } else {
+                if (currentKey == pendingKey) {
+                    ordinal++;
+                }
+                builder.add(pendingKey, pending.get(pendingKey));
+                next++;
+            }
+        }
+        return builder.build();
+    }
+
+    public static Set<String> types(Collection<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return Set.of(MOVIE, ACTOR);
+        }
+        Set<String> types = new HashSet<>();
+        for (String type : requested) {
+            String normalized = type.toLowerCase();
+            if (!normalized.equals(MOVIE) && !normalized.equals(ACTOR)) {
+                throw new IllegalArgumentException("type must be any of movie, actor");
+            }
+            types.add(normalized);
+        }
+        return types;
+    }
+}
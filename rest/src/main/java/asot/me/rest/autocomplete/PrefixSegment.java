@@ -0,0 +1,225 @@
+package asot.me.rest.autocomplete;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable token index over a set of labelled entries, kept in flat arrays:
+ * entries sorted by key, the distinct normalized tokens sorted, and per token a run of entry
+ * ordinals in one shared int array. A prefix maps to one contiguous token range found by
+ * binary search, so a lookup never walks the whole vocabulary.
+ */
+final class PrefixSegment {
+    static final PrefixSegment EMPTY = new Builder(0).build();
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final long[] keys;
+    private final String[] labels;
+    private final String[] tokens;
+    // postings of tokens[t] are postings[postingStart[t] .. postingStart[t + 1])
+    private final int[] postingStart;
+    private final int[] postings;
+
+    private PrefixSegment(long[] keys, String[] labels, String[] tokens, int[] postingStart, int[] postings) {
+        this.keys = keys;
+        this.labels = labels;
+        this.tokens = tokens;
+        this.postingStart = postingStart;
+        this.postings = postings;
+    }
+
+    /**
+     * Lower case, accents stripped, split on anything but letters and digits; distinct, in label order.
+     */
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    int tokenCount() {
+        return tokens.length;
+    }
+
+    long key(int ordinal) {
+        return keys[ordinal];
+    }
+
+    String label(int ordinal) {
+        return labels[ordinal];
+    }
+
+    /**
+     * Ordinal of the entry with this key, or -1.
+     */
+    int ordinalOf(long key) {
+        int ordinal = Arrays.binarySearch(keys, key);
+        return ordinal >= 0 ? ordinal : -1;
+    }
+
+    /**
+     * First token index whose token is &gt;= prefix.
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * [from, to) range of token indexes starting with prefix.
+     */
+    int[] tokenRange(String prefix) {
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        return new int[]{from, to};
+    }
+
+    /**
+     * Number of postings (entry, token) under a token range; an upper bound of the matching entries.
+     */
+    int postingCount(int[] range) {
+        return postingStart[range[1]] - postingStart[range[0]];
+    }
+
+    int postingFrom(int[] range) {
+        return postingStart[range[0]];
+    }
+
+    int postingTo(int[] range) {
+        return postingStart[range[1]];
+    }
+
+    int posting(int index) {
+        return postings[index];
+    }
+
+    /**
+     * Approximate heap size: the arrays plus the label and token strings (compact Latin-1 strings
+     * cost about 40 bytes of headers plus their length).
+     */
+    long estimatedBytes() {
+        long bytes = 16L + keys.length * 8L
+                + 16L + labels.length * 4L
+                + 16L + tokens.length * 4L
+                + 16L + postingStart.length * 4L
+                + 16L + postings.length * 4L;
+        for (String label : labels) {
+            bytes += stringBytes(label);
+        }
+        for (String token : tokens) {
+            bytes += stringBytes(token);
+        }
+        return bytes;
+    }
+
+    static long stringBytes(String value) {
+        return 40L + ((value.length() + 7L) & ~7L);
+    }
+
+    /**
+     * Collects entries in ascending key order and lays out the token arrays.
+     */
+    static final class Builder {
+        private long[] keys;
+        private String[] labels;
+        private int size;
+
+        Builder(int expectedSize) {
+            keys = new long[Math.max(16, expectedSize)];
+            labels = new String[keys.length];
+        }
+
+        Builder add(long key, String label) {
+            if (size > 0 && key <= keys[size - 1]) {
+                throw new IllegalArgumentException("Keys must be added in ascending order");
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                labels = Arrays.copyOf(labels, size * 2);
+            }
+            keys[size] = key;
+            labels[size] = label;
+            size++;
+            return this;
+        }
+
+        PrefixSegment build() {
+            // token dictionary in first-seen order, then one (token, entry) pair per distinct token of a label
+            Map<String, Integer> tokenIds = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            int[] pairToken = new int[Math.max(16, size * 3)];
+            int[] pairEntry = new int[pairToken.length];
+            int pairs = 0;
+            for (int entry = 0; entry < size; entry++) {
+                for (String token : tokenize(labels[entry])) {
+                    Integer tokenId = tokenIds.get(token);
+                    if (tokenId == null) {
+                        tokenId = dictionary.size();
+                        tokenIds.put(token, tokenId);
+                        dictionary.add(token);
+                    }
+                    if (pairs == pairToken.length) {
+                        pairToken = Arrays.copyOf(pairToken, pairs * 2);
+                        pairEntry = Arrays.copyOf(pairEntry, pairs * 2);
+                    }
+                    pairToken[pairs] = tokenId;
+                    pairEntry[pairs] = entry;
+                    pairs++;
+                }
+            }
+
+            String[] tokens = dictionary.toArray(new String[0]);
+            Arrays.sort(tokens);
+            int[] rank = new int[tokens.length];
+            for (int sorted = 0; sorted < tokens.length; sorted++) {
+                rank[tokenIds.get(tokens[sorted])] = sorted;
+            }
+
+            int[] postingStart = new int[tokens.length + 1];
+            for (int pair = 0; pair < pairs; pair++) {
+                postingStart[rank[pairToken[pair]] + 1]++;
+            }
+            for (int t = 0; t < tokens.length; t++) {
+                postingStart[t + 1] += postingStart[t];
+            }
+            int[] fill = Arrays.copyOf(postingStart, tokens.length);
+            int[] postings = new int[pairs];
+            // pairs are in entry order, so each token's run stays sorted by ordinal
+            for (int pair = 0; pair < pairs; pair++) {
+                postings[fill[rank[pairToken[pair]]]++] = pairEntry[pair];
+            }
+            return new PrefixSegment(Arrays.copyOf(keys, size), Arrays.copyOf(labels, size), tokens, postingStart, postings);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package asot.me.rest.configuration;
+
+import asot.me.rest.service.CatalogCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Bounded Caffeine caches for catalog lookups. Evictions issued inside a transaction
+     * are applied after it commits, so a concurrent read cannot re-cache the old row.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${catalog.cache.spec:maximumSize=10000,expireAfterWrite=10m}") String spec) {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager(
+                CatalogCache.MOVIES, CatalogCache.ACTORS, CatalogCache.GENRES, CatalogCache.GENRE_IDS_BY_NAME);
+        caffeineCacheManager.setCaffeine(Caffeine.from(spec).recordStats());
+        caffeineCacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
@@ -0,0 +1,25 @@
+package asot.me.rest.configuration;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Exposes the Postgres bigint[] overlap and containment operators to criteria queries, so
+ * specification based queries on genre_ids can use the GIN index like the native ones.
+ * The second argument is an array literal such as {18,35}.
+ */
+public class PostgresArrayFunctionContributor implements FunctionContributor {
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Boolean> booleanType = functionContributions.getTypeConfiguration()
+                .getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.BOOLEAN);
+        functionContributions.getFunctionRegistry()
+                .registerPattern("bigint_array_overlaps", "(?1 && cast(?2 as bigint[]))", booleanType);
+        functionContributions.getFunctionRegistry()
+                .registerPattern("bigint_array_contains", "(?1 @> cast(?2 as bigint[]))", booleanType);
+    }
+}
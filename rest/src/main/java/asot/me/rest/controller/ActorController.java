@@ -1,18 +1,24 @@
 package asot.me.rest.controller;
 
 import asot.me.rest.dto.ActorDto;
+import asot.me.rest.dto.ActorSummaryDto;
+import asot.me.rest.pagination.CountStrategy;
+import asot.me.rest.pagination.CursorCodec;
+import asot.me.rest.pagination.ListResponses;
+import asot.me.rest.pagination.OffsetPageRequest;
 import asot.me.rest.service.ActorService;
 import asot.me.rest.tmdb.TmdbSearchService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/actors")
@@ -21,32 +27,35 @@ import java.util.List;
 public class ActorController {
     private final ActorService actorService;
     private final TmdbSearchService tmdbSearchService;
+    private final CursorCodec cursorCodec;
+
+    // NOT NULL columns only (db/schema/013-keyset-sort-columns.sql), a keyset cannot seek past a null
+    private static final Set<String> CURSOR_SORTS = Set.of("id", "firstname", "lastname");
 
     @GetMapping
-    public ResponseEntity<List<ActorDto>> getAllActors(
+    public ResponseEntity<List<ActorSummaryDto>> getAllActors(
         @RequestParam(value = "_start", defaultValue = "0") int start,
         @RequestParam(value = "_end", defaultValue = "20") int end,
         @RequestParam(value = "_sort", defaultValue = "id") String sort,
         @RequestParam(value = "_order", defaultValue = "asc") String order,
         @RequestParam(value = "movieId", required = false) Long movieId,
-        @RequestParam(value = "name_like", required = false) String name
+        @RequestParam(value = "name_like", required = false) String name,
+        @RequestParam(value = "q", required = false) String q,
+        @RequestParam(value = "_cursor", required = false) String cursor,
+        @RequestParam(value = "_count", defaultValue = "exact") String count
     ) {
-        int size = end - start;
-        int page = start / size;
-        Sort.Direction direction = order.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sort));
-        Page<ActorDto> pageResult;
-        if (movieId != null) {
-            log.info("Fetching actors for movie with ID: {}", movieId);
-            pageResult = actorService.getAllActorsByMovie(movieId, pageable);
-        } else {
-            log.info("Fetching actors WITHOUT movie id filter");
-            pageResult = actorService.getAllActors(name, pageable);
+        if (cursor != null) {
+            Sort keysetSort = CursorCodec.sort(sort, order, CURSOR_SORTS);
+            Window<ActorSummaryDto> window = actorService.scrollActors(keysetSort, end - start, cursor, name, movieId);
+            return ListResponses.of(window, cursorCodec.encodeNext(window, keysetSort));
         }
-        return ResponseEntity.ok()
-                .header("access-control-expose-headers", "X-Total-Count")
-                .header("x-total-count", String.valueOf(pageResult.getTotalElements()))
-                .body(pageResult.getContent());
+        Sort.Direction direction = order.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Pageable pageable = OffsetPageRequest.ofOffset(start, end - start, Sort.by(direction, sort));
+        CountStrategy countStrategy = CountStrategy.parse(count);
+        Slice<ActorSummaryDto> result = q != null && !q.isBlank()
+                ? actorService.searchActors(q, pageable, countStrategy)
+                : actorService.getAllActors(name, movieId, pageable, countStrategy);
+        return ListResponses.of(result);
     }
 
     @GetMapping("/{id}")
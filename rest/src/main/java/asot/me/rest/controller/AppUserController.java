@@ -1,7 +1,19 @@
 package asot.me.rest.controller;
 
 import asot.me.rest.dto.AppUserDto;
+import asot.me.rest.dto.RecommendationDto;
+import asot.me.rest.dto.UserLibraryCriteria;
+import asot.me.rest.dto.UserMovieDto;
+import asot.me.rest.dto.UserStatsDto;
+import asot.me.rest.dto.UserStatsRebuildResultDto;
+import asot.me.rest.pagination.CursorCodec;
+import asot.me.rest.pagination.ListResponses;
+import asot.me.rest.repository.UserLibraryRepository;
 import asot.me.rest.service.AppUserService;
+import asot.me.rest.service.MovieService;
+import asot.me.rest.service.RecommendationService;
+import asot.me.rest.service.UserMovieService;
+import asot.me.rest.service.UserStatsService;
 import jakarta.websocket.server.PathParam;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
@@ -9,24 +21,109 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/users")
 @RequiredArgsConstructor
 @Log4j2
 public class AppUserController {
     private final AppUserService appUserService;
+    private final UserMovieService userMovieService;
+    private final CursorCodec cursorCodec;
+    private final RecommendationService recommendationService;
+    private final UserStatsService userStatsService;
+
+    private static final int MAX_RECOMMENDATIONS = 100;
+    private static final int MAX_STATS_ACTORS = 100;
 
+    /**
+     * library=false leaves out the embedded user movies.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<AppUserDto> getAppUser(@PathVariable Long id) {
-        return ResponseEntity.ok(appUserService.getAppUser(id));
+    public ResponseEntity<AppUserDto> getAppUser(
+        @PathVariable Long id,
+        @RequestParam(value = "library", defaultValue = "true") boolean library
+    ) {
+        return ResponseEntity.ok(appUserService.getAppUser(id, library));
     }
 
     @GetMapping("/username")
-    public ResponseEntity<AppUserDto> getAppUserByUsername(@PathParam("username") String username) {
-        return ResponseEntity.ok(appUserService.getAppUserByUsername(username));
+    public ResponseEntity<AppUserDto> getAppUserByUsername(
+        @PathParam("username") String username,
+        @RequestParam(value = "library", defaultValue = "true") boolean library
+    ) {
+        return ResponseEntity.ok(appUserService.getAppUserByUsername(username, library));
+    }
+
+    /**
+     * Movies similar to the user's watched and favorite ones, from the in-memory item-to-item model.
+     */
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<List<RecommendationDto>> getRecommendations(
+        @PathVariable Long id,
+        @RequestParam(value = "limit", defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(recommendationService.getRecommendations(id, Math.min(limit, MAX_RECOMMENDATIONS)));
+    }
+
+    /**
+     * Watched and favorite counts overall and by genre, decade and actor, read from precomputed counters.
+     */
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<UserStatsDto> getStats(
+        @PathVariable Long id,
+        @RequestParam(value = "actors", defaultValue = "10") int actors
+    ) {
+        return ResponseEntity.ok(userStatsService.getStats(id, Math.min(actors, MAX_STATS_ACTORS)));
+    }
+
+    @PostMapping("/{id}/stats/rebuild")
+    public ResponseEntity<UserStatsRebuildResultDto> rebuildStats(@PathVariable Long id) {
+        return ResponseEntity.ok(userStatsService.rebuild(id));
+    }
+
+    /**
+     * Backfill: recomputes the counters of all users from their libraries.
+     */
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<UserStatsRebuildResultDto> rebuildAllStats() {
+        return ResponseEntity.ok(userStatsService.rebuildAll());
+    }
+
+    /**
+     * Keyset pages of the user's library; pass X-Next-Cursor back as _cursor for the following page.
+     */
+    @GetMapping("/{id}/library")
+    public ResponseEntity<List<UserMovieDto>> getLibrary(
+        @PathVariable Long id,
+        @RequestParam(value = "_start", defaultValue = "0") int start,
+        @RequestParam(value = "_end", defaultValue = "20") int end,
+        @RequestParam(value = "_sort", defaultValue = "movieId") String sort,
+        @RequestParam(value = "_order", defaultValue = "asc") String order,
+        @RequestParam(value = "_cursor", required = false) String cursor,
+        @RequestParam(value = "watched", required = false) Boolean watched,
+        @RequestParam(value = "favorite", required = false) Boolean favorite,
+        @RequestParam(value = "genreId", required = false) List<Long> genreIds,
+        @RequestParam(value = "genreMatch", defaultValue = "any") String genreMatch,
+        @RequestParam(value = "yearFrom", required = false) Long yearFrom,
+        @RequestParam(value = "yearTo", required = false) Long yearTo
+    ) {
+        UserLibraryCriteria criteria = UserLibraryCriteria.builder()
+                .watched(watched)
+                .favorite(favorite)
+                .genreIds(genreIds)
+                .matchAllGenres(MovieService.isMatchAll("genreMatch", genreMatch))
+                .yearFrom(yearFrom)
+                .yearTo(yearTo)
+                .build();
+        Sort keysetSort = UserLibraryRepository.sort(sort, order);
+        Window<UserMovieDto> window = userMovieService.getLibrary(id, criteria, keysetSort, end - start, cursor);
+        return ListResponses.of(window, cursorCodec.encodeNext(window, keysetSort));
     }
 
     @GetMapping
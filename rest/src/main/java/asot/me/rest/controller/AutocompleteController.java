@@ -0,0 +1,39 @@
+package asot.me.rest.controller;
+
+import asot.me.rest.autocomplete.AutocompleteIndex;
+import asot.me.rest.dto.AutocompleteHitDto;
+import asot.me.rest.dto.AutocompleteStatsDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/autocomplete")
+@RequiredArgsConstructor
+public class AutocompleteController {
+    private static final int MAX_LIMIT = 50;
+
+    private final AutocompleteIndex autocompleteIndex;
+
+    /**
+     * Served from memory; every word of q matches the start of a word in the title or name.
+     */
+    @GetMapping
+    public ResponseEntity<List<AutocompleteHitDto>> suggest(
+        @RequestParam(value = "q") String q,
+        @RequestParam(value = "type", required = false) List<String> types,
+        @RequestParam(value = "limit", defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(autocompleteIndex.suggest(q, AutocompleteIndex.types(types), Math.min(limit, MAX_LIMIT)));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<AutocompleteStatsDto> stats() {
+        return ResponseEntity.ok(autocompleteIndex.getStats());
+    }
+}
@@ -0,0 +1,23 @@
+package asot.me.rest.controller;
+
+import asot.me.rest.dto.CacheStatsDto;
+import asot.me.rest.service.CatalogCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/cache")
+@RequiredArgsConstructor
+public class CacheController {
+    private final CatalogCache catalogCache;
+
+    @GetMapping
+    public ResponseEntity<Map<String, CacheStatsDto>> getCacheStats() {
+        return ResponseEntity.ok(catalogCache.getStats());
+    }
+}
@@ -1,38 +1,48 @@
 package asot.me.rest.controller;
 
 import asot.me.rest.dto.GenreDto;
+import asot.me.rest.pagination.CountStrategy;
+import asot.me.rest.pagination.CursorCodec;
+import asot.me.rest.pagination.ListResponses;
+import asot.me.rest.pagination.OffsetPageRequest;
 import asot.me.rest.service.GenreService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/genres")
 @RequiredArgsConstructor
 public class GenreController {
     private final GenreService genreService;
+    private final CursorCodec cursorCodec;
+
+    private static final Set<String> CURSOR_SORTS = Set.of("id", "name");
 
     @GetMapping
     public ResponseEntity<List<GenreDto>> getAllGenres(
         @RequestParam(value = "_start", defaultValue = "0") int start,
         @RequestParam(value = "_end", defaultValue = "20") int end,
         @RequestParam(value = "_sort", defaultValue = "id") String sort,
-        @RequestParam(value = "_order", defaultValue = "asc") String order
+        @RequestParam(value = "_order", defaultValue = "asc") String order,
+        @RequestParam(value = "_cursor", required = false) String cursor,
+        @RequestParam(value = "_count", defaultValue = "exact") String count
     ) {
-        int size = end - start;
-        int page = start / size;
+        if (cursor != null) {
+            Sort keysetSort = CursorCodec.sort(sort, order, CURSOR_SORTS);
+            Window<GenreDto> window = genreService.scrollGenres(keysetSort, end - start, cursor);
+            return ListResponses.of(window, cursorCodec.encodeNext(window, keysetSort));
+        }
         Sort.Direction direction = order.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sort));
-        Page<GenreDto> pageResult = genreService.getAllGenres(pageable);
-        return ResponseEntity.ok()
-                .header("X-Total-Count", String.valueOf(pageResult.getTotalElements()))
-                .body(pageResult.getContent());
+        Pageable pageable = OffsetPageRequest.ofOffset(start, end - start, Sort.by(direction, sort));
+        return ListResponses.of(genreService.getAllGenres(pageable, CountStrategy.parse(count)));
     }
 
     @GetMapping("/{id}")
@@ -1,17 +1,26 @@
 package asot.me.rest.controller;
 
 import asot.me.rest.dto.MovieDto;
+import asot.me.rest.dto.MovieSummaryDto;
+import asot.me.rest.dto.MovieSearchCriteria;
+import asot.me.rest.dto.MovieSearchResultDto;
+import asot.me.rest.pagination.CountStrategy;
+import asot.me.rest.pagination.CursorCodec;
+import asot.me.rest.pagination.ListResponses;
+import asot.me.rest.pagination.OffsetPageRequest;
+import asot.me.rest.repository.MovieFacet;
 import asot.me.rest.service.MovieService;
 import asot.me.rest.tmdb.TmdbSearchService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/movies")
@@ -19,26 +28,71 @@ import java.util.List;
 public class MovieController {
     private final MovieService movieService;
     private final TmdbSearchService tmdbSearchService;
+    private final CursorCodec cursorCodec;
+
+    // NOT NULL columns only (db/schema/013-keyset-sort-columns.sql), a keyset cannot seek past a null
+    private static final Set<String> CURSOR_SORTS = Set.of("id", "title");
 
     @GetMapping
-    public ResponseEntity<List<MovieDto>> getAllMovies(
+    public ResponseEntity<List<MovieSummaryDto>> getAllMovies(
+        @RequestParam(value = "_start", defaultValue = "0") int start,
+        @RequestParam(value = "_end", defaultValue = "20") int end,
+        @RequestParam(value = "_sort", defaultValue = "title") String sort,
+        @RequestParam(value = "_order", defaultValue = "asc") String order,
+        @RequestParam(value = "title_like", required = false) String titleLike,
+        @RequestParam(value = "q", required = false) String q,
+        @RequestParam(value = "genreId", required = false) List<Long> genreIds,
+        @RequestParam(value = "genreMatch", defaultValue = "any") String genreMatch,
+        @RequestParam(value = "actorId", required = false) Long actorId,
+        @RequestParam(value = "_cursor", required = false) String cursor,
+        @RequestParam(value = "_count", defaultValue = "exact") String count
+    ) {
+        if (cursor != null) {
+            Sort keysetSort = CursorCodec.sort(sort, order, CURSOR_SORTS);
+            Window<MovieSummaryDto> window = movieService.scrollMovies(keysetSort, end - start, cursor, titleLike, genreIds, genreMatch, actorId);
+            return ListResponses.of(window, cursorCodec.encodeNext(window, keysetSort));
+        }
+        Sort.Direction direction = order.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Pageable pageable = OffsetPageRequest.ofOffset(start, end - start, Sort.by(direction, sort));
+        CountStrategy countStrategy = CountStrategy.parse(count);
+        Slice<MovieSummaryDto> result = q != null && !q.isBlank()
+                ? movieService.searchMovies(q, pageable, countStrategy)
+                : movieService.getAllMovies(pageable, titleLike, genreIds, genreMatch, actorId, countStrategy);
+        return ListResponses.of(result);
+    }
+
+    /**
+     * Every movie filter at once; facets=genre,decade adds counts over the whole match.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<MovieSearchResultDto> searchMovies(
         @RequestParam(value = "_start", defaultValue = "0") int start,
         @RequestParam(value = "_end", defaultValue = "20") int end,
         @RequestParam(value = "_sort", defaultValue = "title") String sort,
         @RequestParam(value = "_order", defaultValue = "asc") String order,
         @RequestParam(value = "title_like", required = false) String titleLike,
-        @RequestParam(value = "genreId", required = false) Long genreId,
-        @RequestParam(value = "actorId", required = false) Long actorId
+        @RequestParam(value = "genreId", required = false) List<Long> genreIds,
+        @RequestParam(value = "genreMatch", defaultValue = "any") String genreMatch,
+        @RequestParam(value = "actorId", required = false) List<Long> actorIds,
+        @RequestParam(value = "actorMatch", defaultValue = "any") String actorMatch,
+        @RequestParam(value = "yearFrom", required = false) Long yearFrom,
+        @RequestParam(value = "yearTo", required = false) Long yearTo,
+        @RequestParam(value = "queried", required = false) Boolean queried,
+        @RequestParam(value = "facets", required = false) List<String> facets
     ) {
-        int size = end - start;
-        int page = start / size;
+        MovieSearchCriteria criteria = MovieSearchCriteria.builder()
+                .titleLike(titleLike)
+                .genreIds(genreIds)
+                .matchAllGenres(MovieService.isMatchAll("genreMatch", genreMatch))
+                .actorIds(actorIds)
+                .matchAllActors(MovieService.isMatchAll("actorMatch", actorMatch))
+                .yearFrom(yearFrom)
+                .yearTo(yearTo)
+                .queried(queried)
+                .build();
         Sort.Direction direction = order.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sort));
-        Page<MovieDto> pageResult = movieService.getAllMovies(pageable, titleLike, genreId, actorId);
-        return ResponseEntity.ok()
-                .header("access-control-expose-headers", "X-Total-Count")
-                .header("x-total-count", String.valueOf(pageResult.getTotalElements()))
-                .body(pageResult.getContent());
+        Pageable pageable = OffsetPageRequest.ofOffset(start, end - start, Sort.by(direction, sort));
+        return ResponseEntity.ok(movieService.facetedSearch(criteria, pageable, MovieFacet.parse(facets)));
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,35 @@
+package asot.me.rest.controller;
+
+import asot.me.rest.dto.RecommendationStatsDto;
+import asot.me.rest.recommendation.RecommendationEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/recommendations")
+@RequiredArgsConstructor
+public class RecommendationController {
+    private final RecommendationEngine recommendationEngine;
+
+    @GetMapping("/stats")
+    public ResponseEntity<RecommendationStatsDto> stats() {
+        return ResponseEntity.ok(recommendationEngine.getStats());
+    }
+
+    /**
+     * Starts rebuilding the model from user_movie now instead of at the next scheduled run;
+     * poll /stats until building is false. 409 while a build is already running.
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<RecommendationStatsDto> rebuild() {
+        if (!recommendationEngine.rebuildInBackground()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(recommendationEngine.getStats());
+        }
+        return ResponseEntity.accepted().body(recommendationEngine.getStats());
+    }
+}
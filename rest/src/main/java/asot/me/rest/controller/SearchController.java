@@ -0,0 +1,36 @@
+package asot.me.rest.controller;
+
+import asot.me.rest.dto.SearchHitDto;
+import asot.me.rest.pagination.ListResponses;
+import asot.me.rest.pagination.OffsetPageRequest;
+import asot.me.rest.service.CatalogSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+@RequiredArgsConstructor
+public class SearchController {
+    private final CatalogSearchService catalogSearchService;
+
+    /**
+     * Movies, tv shows and actors in one list, best rank first; type narrows it to some of them.
+     */
+    @GetMapping
+    public ResponseEntity<List<SearchHitDto>> search(
+        @RequestParam(value = "q") String q,
+        @RequestParam(value = "type", required = false) List<String> types,
+        @RequestParam(value = "_start", defaultValue = "0") int start,
+        @RequestParam(value = "_end", defaultValue = "20") int end
+    ) {
+        return ListResponses.of(catalogSearchService.search(q, types,
+                OffsetPageRequest.ofOffset(start, end - start, Sort.unsorted())));
+    }
+}
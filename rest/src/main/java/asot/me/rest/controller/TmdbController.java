@@ -1,8 +1,21 @@
 package asot.me.rest.controller;
 
-import asot.me.rest.tmdb.TmdbMovieQueryProcess;
+import asot.me.rest.dto.CrawlerStatusDto;
+import asot.me.rest.dto.IdExportSeedRequest;
+import asot.me.rest.dto.IdExportSeedResultDto;
+import asot.me.rest.dto.IngestionStatusDto;
+import asot.me.rest.dto.RateLimiterStatsDto;
+import asot.me.rest.dto.TmdbCacheStatsDto;
+import asot.me.rest.dto.TmdbIdIndexStatsDto;
+import asot.me.rest.tmdb.TmdbIdExportSeeder;
+import asot.me.rest.tmdb.TmdbIdIndex;
+import asot.me.rest.tmdb.TmdbIngestionService;
+import asot.me.rest.tmdb.TmdbMovieCrawler;
+import asot.me.rest.tmdb.TmdbRateLimiter;
+import asot.me.rest.tmdb.TmdbResponseCache;
 import asot.me.rest.tmdb.TmdbSearchService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,7 +25,12 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class TmdbController {
     private final TmdbSearchService tmdbSearchService;
-    private final TmdbMovieQueryProcess movieQueryProcess;
+    private final TmdbMovieCrawler movieCrawler;
+    private final TmdbIdExportSeeder idExportSeeder;
+    private final TmdbIngestionService ingestionService;
+    private final TmdbIdIndex tmdbIdIndex;
+    private final TmdbRateLimiter tmdbRateLimiter;
+    private final TmdbResponseCache tmdbResponseCache;
 
     @GetMapping("/genres")
     public ResponseEntity<Void> createGenres() {
@@ -21,9 +39,81 @@ public class TmdbController {
     }
 
     @GetMapping("/movies")
-    public ResponseEntity<Void> queryMovie() {
-        movieQueryProcess.processNextMovieId();
+    public ResponseEntity<Void> queryMovie(
+        @RequestParam(value = "ranges", defaultValue = "1") int ranges
+    ) {
+        if (!movieCrawler.start(ranges)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    @PostMapping("/movies/stop")
+    public ResponseEntity<Void> stopMovieCrawler() {
+        movieCrawler.stop();
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/movies/status")
+    public ResponseEntity<CrawlerStatusDto> movieCrawlerStatus() {
+        return ResponseEntity.ok(movieCrawler.getStatus());
+    }
+
+    @PostMapping("/movies/seed")
+    public ResponseEntity<IdExportSeedResultDto> seedMovieCrawler(
+        @RequestBody IdExportSeedRequest seedRequest
+    ) throws Exception {
+        return ResponseEntity.ok(idExportSeeder.seed(seedRequest));
+    }
+
+    @DeleteMapping("/movies/seed")
+    public ResponseEntity<Void> clearMovieCrawlerSeed() {
+        idExportSeeder.clear();
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/ingestion/start")
+    public ResponseEntity<IngestionStatusDto> startIngestion() {
+        ingestionService.start();
+        return ResponseEntity.ok(ingestionService.getStatus());
+    }
+
+    @PostMapping("/ingestion/pause")
+    public ResponseEntity<IngestionStatusDto> pauseIngestion() {
+        ingestionService.pause();
+        return ResponseEntity.ok(ingestionService.getStatus());
+    }
+
+    @PostMapping("/ingestion/resume")
+    public ResponseEntity<IngestionStatusDto> resumeIngestion() {
+        ingestionService.resume();
+        return ResponseEntity.ok(ingestionService.getStatus());
+    }
+
+    @GetMapping("/ingestion/status")
+    public ResponseEntity<IngestionStatusDto> ingestionStatus() {
+        return ResponseEntity.ok(ingestionService.getStatus());
+    }
+
+    @GetMapping("/id-index")
+    public ResponseEntity<TmdbIdIndexStatsDto> idIndexStats() {
+        return ResponseEntity.ok(tmdbIdIndex.getStats());
+    }
+
+    @DeleteMapping("/id-index/missing")
+    public ResponseEntity<TmdbIdIndexStatsDto> clearMissingIds() {
+        tmdbIdIndex.clearMissing();
+        return ResponseEntity.ok(tmdbIdIndex.getStats());
+    }
+
+    @GetMapping("/rate-limiter")
+    public ResponseEntity<RateLimiterStatsDto> rateLimiterStats() {
+        return ResponseEntity.ok(tmdbRateLimiter.getStats());
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<TmdbCacheStatsDto> cacheStats() {
+        return ResponseEntity.ok(tmdbResponseCache.getStats());
+    }
+
 }
\ No newline at end of file
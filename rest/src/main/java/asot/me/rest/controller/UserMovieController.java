@@ -1,13 +1,13 @@
 package asot.me.rest.controller;
 
+import asot.me.rest.dto.UserMovieBatchRequest;
+import asot.me.rest.dto.UserMovieDeltaDto;
 import asot.me.rest.dto.UserMovieDto;
 import asot.me.rest.service.UserMovieService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/user-movie")
 @RequiredArgsConstructor
@@ -15,9 +15,16 @@ public class UserMovieController {
     private final UserMovieService userMovieService;
 
     @PatchMapping
-    public ResponseEntity<List<UserMovieDto>> getUserFavorites(
+    public ResponseEntity<UserMovieDeltaDto> getUserFavorites(
             @RequestBody UserMovieDto userMovieDto
     ) {
         return ResponseEntity.ok(userMovieService.updateUserMovie(userMovieDto));
     }
-}
\ No newline at end of file
+
+    @PatchMapping("/batch")
+    public ResponseEntity<UserMovieDeltaDto> updateUserMovies(
+            @RequestBody UserMovieBatchRequest request
+    ) {
+        return ResponseEntity.ok(userMovieService.updateUserMovies(request));
+    }
+}
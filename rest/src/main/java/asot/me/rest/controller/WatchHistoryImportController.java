@@ -0,0 +1,84 @@
+package asot.me.rest.controller;
+
+import asot.me.rest.dto.WatchHistoryImportStatusDto;
+import asot.me.rest.dto.WatchHistoryUnmatchedRowDto;
+import asot.me.rest.importer.WatchHistoryImporter;
+import asot.me.rest.pagination.ListResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Watch history imports from other trackers; poll the returned import for progress.
+ */
+@RestController
+@RequestMapping("/users/{appUserId}/imports")
+@RequiredArgsConstructor
+public class WatchHistoryImportController {
+    private final WatchHistoryImporter watchHistoryImporter;
+
+    /**
+     * Multipart upload of a CSV (with header) or JSON lines file, optionally gzipped.
+     * tmdb=false resolves against the local catalog only.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<WatchHistoryImportStatusDto> startImport(
+        @PathVariable Long appUserId,
+        @RequestParam("file") MultipartFile file,
+        @RequestParam(value = "format", required = false) String format,
+        @RequestParam(value = "tmdb", defaultValue = "true") boolean tmdb
+    ) throws IOException {
+        return ResponseEntity.accepted().body(watchHistoryImporter.start(appUserId, file, format, tmdb));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<WatchHistoryImportStatusDto>> getImports(@PathVariable Long appUserId) {
+        return ResponseEntity.ok(watchHistoryImporter.getImports(appUserId));
+    }
+
+    @GetMapping("/{importId}")
+    public ResponseEntity<WatchHistoryImportStatusDto> getImport(@PathVariable Long appUserId, @PathVariable String importId) {
+        return ResponseEntity.ok(watchHistoryImporter.getStatus(appUserId, importId));
+    }
+
+    @GetMapping("/{importId}/unmatched")
+    public ResponseEntity<List<WatchHistoryUnmatchedRowDto>> getUnmatchedRows(
+        @PathVariable Long appUserId,
+        @PathVariable String importId,
+        @RequestParam(value = "_start", defaultValue = "0") int start,
+        @RequestParam(value = "_end", defaultValue = "50") int end
+    ) {
+        return ListResponses.of(watchHistoryImporter.getUnmatchedRows(appUserId, importId, start, end));
+    }
+
+    /**
+     * A second import while one is running for the user.
+     */
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<ProblemDetail> importRunning(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage()));
+    }
+
+    /**
+     * An empty file, an unknown format or a bad _start/_end.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ProblemDetail> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage()));
+    }
+
+    /**
+     * Stops the import after the batch in progress.
+     */
+    @DeleteMapping("/{importId}")
+    public ResponseEntity<WatchHistoryImportStatusDto> cancelImport(@PathVariable Long appUserId, @PathVariable String importId) {
+        return ResponseEntity.ok(watchHistoryImporter.cancel(appUserId, importId));
+    }
+}
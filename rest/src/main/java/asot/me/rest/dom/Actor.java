@@ -19,7 +19,10 @@ public class Actor {
     @Id
     private Long id;
 
+    // never null, a missing part of the name is stored as ''; keyset cursors seek on both columns
+    @Column(nullable = false)
     private String firstname;
+    @Column(nullable = false)
     private String lastname;
 
     @ManyToMany(cascade = { CascadeType.ALL })
@@ -38,4 +41,15 @@ public class Actor {
     )
     private List<TvShow> tvshows;
 
+    @PrePersist
+    @PreUpdate
+    void blankMissingNames() {
+        if (firstname == null) {
+            firstname = "";
+        }
+        if (lastname == null) {
+            lastname = "";
+        }
+    }
+
 }
@@ -23,6 +23,10 @@ public class AppUser {
     @Column(nullable = false, unique = true)
     private String username;
 
+    // bumped by UserMovieBatchRepository on every library change, never written through the entity
+    @Column(insertable = false, updatable = false, columnDefinition = "bigint not null default 0")
+    private long libraryVersion;
+
     @OneToMany(mappedBy = "appUser", fetch = FetchType.LAZY)
     @Builder.Default
     private Set<UserMovie> userMovies = new HashSet<>();
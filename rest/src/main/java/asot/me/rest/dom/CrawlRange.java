@@ -0,0 +1,37 @@
+package asot.me.rest.dom;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A block of TMDB movie ids [startId, endId) claimed by the crawler.
+ * Ranges left CLAIMED by a crashed process are released back to PENDING on startup.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class CrawlRange {
+
+    @Id
+    private Long startId;
+
+    private Long endId;
+
+    @Enumerated(EnumType.STRING)
+    private CrawlRangeStatus status;
+
+    private int attempts;
+
+    private int failedIds;
+
+    private LocalDateTime claimedAt;
+
+    private LocalDateTime completedAt;
+}
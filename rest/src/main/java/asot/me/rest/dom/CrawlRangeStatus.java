@@ -0,0 +1,7 @@
+package asot.me.rest.dom;
+
+public enum CrawlRangeStatus {
+    PENDING,
+    CLAIMED,
+    DONE
+}
@@ -22,4 +22,14 @@ public class GlobalSettings {
     private boolean genresUpdatedLastMonth;
 
     private Long nextMovieIdToQuery;
+
+    // when set, the crawler only fetches ids listed in this TMDB id export
+    private String idExportPath;
+
+    private Double idExportMinPopularity;
+
+    private Boolean idExportIncludeAdult;
+
+    // scheduled ingestion survives restarts while this is set
+    private Boolean ingestionEnabled;
 }
@@ -19,7 +19,8 @@ public class Movie {
 
     @Id
     private Long id;
-    @Column(unique = true)
+    // keyset cursors seek on title, see db/schema/013-keyset-sort-columns.sql
+    @Column(unique = true, nullable = false)
     private String title;
     private Long year;
 
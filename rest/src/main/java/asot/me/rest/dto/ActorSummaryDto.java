@@ -0,0 +1,16 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Actor row for result grids; the filmography is reduced to a count.
+ */
+@Data
+@Builder
+public class ActorSummaryDto {
+    private Long id;
+    private String firstname;
+    private String lastname;
+    private long movieCount;
+}
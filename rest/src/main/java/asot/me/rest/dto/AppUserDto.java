@@ -10,5 +10,6 @@ import java.util.Set;
 public class AppUserDto {
     private Long id;
     private String username;
+    private long libraryVersion;
     private Set<UserMovieDto> userMovies;
 }
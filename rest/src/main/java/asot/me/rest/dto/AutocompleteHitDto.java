@@ -0,0 +1,13 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AutocompleteHitDto {
+    // movie or actor
+    private String type;
+    private Long id;
+    private String label;
+}
@@ -0,0 +1,18 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AutocompleteStatsDto {
+    private boolean ready;
+    private long entries;
+    private long tokens;
+    // changes since the last compaction, served from the delta
+    private long pendingUpserts;
+    private long pendingRemovals;
+    private long estimatedBytes;
+    private long bytesPerMillionEntries;
+    private long lastBuildMs;
+}
@@ -0,0 +1,17 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CacheStatsDto {
+    private long size;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    // removed by size or ttl
+    private long evictions;
+    // removed by a write to the underlying rows
+    private long invalidations;
+}
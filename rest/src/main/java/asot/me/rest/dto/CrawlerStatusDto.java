@@ -0,0 +1,24 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class CrawlerStatusDto {
+    private boolean running;
+    private int workers;
+    private int inFlight;
+    private long idsProcessed;
+    private long moviesSaved;
+    private long idsMissing;
+    private long idsFailed;
+    private long idsSkipped;
+    private double idsPerSecond;
+    private Long nextMovieIdToQuery;
+    private long pendingRanges;
+    private LocalDateTime startedAt;
+    private Integer workListSize;
+}
@@ -0,0 +1,14 @@
+package asot.me.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdExportSeedRequest {
+    private String path;
+    private double minPopularity;
+    private boolean includeAdult;
+}
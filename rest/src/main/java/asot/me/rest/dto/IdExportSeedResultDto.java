@@ -0,0 +1,16 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class IdExportSeedResultDto {
+    private String path;
+    private long linesRead;
+    private long idsAccepted;
+    private long filteredOut;
+    private long malformed;
+    private Long minId;
+    private Long maxId;
+}
@@ -0,0 +1,26 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class IngestionStatusDto {
+    private String state;
+    private long idsDone;
+    private long idsFailed;
+    private long sessionIdsProcessed;
+    private long sessionIdsFailed;
+    private double idsPerSecond;
+    private long requestsToday;
+    private long dailyBudget;
+    private long remainingBudget;
+    private Long nextMovieIdToQuery;
+    private long targetMaxId;
+    private long remainingIds;
+    private Long etaSeconds;
+    private int backoffTicks;
+    private LocalDateTime lastTickAt;
+}
@@ -0,0 +1,22 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Filters of the faceted movie search; null or empty fields do not filter.
+ */
+@Data
+@Builder
+public class MovieSearchCriteria {
+    private String titleLike;
+    private List<Long> genreIds;
+    private boolean matchAllGenres;
+    private List<Long> actorIds;
+    private boolean matchAllActors;
+    private Long yearFrom;
+    private Long yearTo;
+    private Boolean queried;
+}
@@ -0,0 +1,20 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+public class MovieSearchResultDto {
+    private List<MovieSummaryDto> movies;
+    private long total;
+    // true when no filter was given: total is then the planner's row estimate and no facets are computed
+    private boolean totalEstimated;
+    // genre id -> matching movies, only when the genre facet is requested
+    private Map<Long, Long> genreCounts;
+    // first year of the decade -> matching movies, only when the decade facet is requested
+    private Map<Long, Long> decadeCounts;
+}
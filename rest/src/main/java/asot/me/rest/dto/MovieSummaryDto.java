@@ -0,0 +1,19 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Column-level movie row for result grids, without the cast.
+ */
+@Data
+@Builder
+public class MovieSummaryDto {
+    private Long id;
+    private String title;
+    private Long year;
+    private List<Long> genreIds;
+    private boolean queried;
+}
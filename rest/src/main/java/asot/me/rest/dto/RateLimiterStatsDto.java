@@ -0,0 +1,18 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class RateLimiterStatsDto {
+    private double requestsPerSecond;
+    private int burst;
+    private double availableTokens;
+    private long permitsGranted;
+    private long rejections;
+    private long throttledResponses;
+    private long retries;
+    private double totalWaitMillis;
+    private double averageWaitMillis;
+}
@@ -0,0 +1,13 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class RecommendationDto {
+    private Long movieId;
+    private String title;
+    private Long year;
+    private double score;
+}
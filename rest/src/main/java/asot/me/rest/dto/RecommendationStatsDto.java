@@ -0,0 +1,21 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class RecommendationStatsDto {
+    private boolean ready;
+    // a rebuild is running in the background
+    private boolean building;
+    private long movies;
+    // stored neighbour entries, at most neighboursPerMovie per movie
+    private long neighbourEntries;
+    private int neighboursPerMovie;
+    // users above recommendation.max-items-per-user, left out of the last build
+    private long skippedUsers;
+    private long estimatedBytes;
+    private long incrementalUpdates;
+    private long lastBuildMs;
+}
@@ -0,0 +1,18 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class SearchHitDto {
+    // movie, tvshow or actor
+    private String type;
+    private Long id;
+    // title, or full name for actors
+    private String label;
+    private Long year;
+    private double rank;
+    // label with the matched words wrapped in <b></b>
+    private String highlight;
+}
@@ -0,0 +1,17 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TmdbCacheStatsDto {
+    private boolean enabled;
+    private long sizeBytes;
+    private long maxSizeBytes;
+    private int requestCount;
+    private int hitCount;
+    private int networkCount;
+    private long staleServed;
+    private double hitRatio;
+}
@@ -0,0 +1,13 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class TmdbIdIndexStatsDto {
+    private long missingIds;
+    private long ingestedIds;
+    private long sizeBytes;
+    private boolean dirty;
+}
@@ -0,0 +1,20 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Filters of a user's library listing; null or empty fields do not filter.
+ */
+@Data
+@Builder
+public class UserLibraryCriteria {
+    private Boolean watched;
+    private Boolean favorite;
+    private List<Long> genreIds;
+    private boolean matchAllGenres;
+    private Long yearFrom;
+    private Long yearTo;
+}
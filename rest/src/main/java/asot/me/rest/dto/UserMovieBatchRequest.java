@@ -0,0 +1,18 @@
+package asot.me.rest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Watched/favorite changes for one user; an entry with both flags false removes the movie from the library.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserMovieBatchRequest {
+    private Long appUserId;
+    private List<UserMovieDto> changes;
+}
@@ -0,0 +1,17 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The rows a write actually changed, removed rows with both flags false, and the library version after it.
+ */
+@Data
+@Builder
+public class UserMovieDeltaDto {
+    private Long appUserId;
+    private long version;
+    private List<UserMovieDto> changes;
+}
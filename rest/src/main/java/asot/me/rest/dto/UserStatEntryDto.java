@@ -0,0 +1,16 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * One counter of a user's stats: a genre, a decade (id is its first year) or an actor.
+ */
+@Data
+@Builder
+public class UserStatEntryDto {
+    private Long id;
+    private String name;
+    private long watched;
+    private long favorite;
+}
@@ -0,0 +1,20 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class UserStatsDto {
+    private Long appUserId;
+    private long watched;
+    private long favorite;
+    // most watched first
+    private List<UserStatEntryDto> genres;
+    // oldest first
+    private List<UserStatEntryDto> decades;
+    // most watched first, at most the requested number
+    private List<UserStatEntryDto> actors;
+}
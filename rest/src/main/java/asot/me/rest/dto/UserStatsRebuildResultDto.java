@@ -0,0 +1,11 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class UserStatsRebuildResultDto {
+    private long users;
+    private long elapsedMs;
+}
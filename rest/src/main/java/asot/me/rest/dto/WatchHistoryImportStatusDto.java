@@ -0,0 +1,32 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class WatchHistoryImportStatusDto {
+    private String id;
+    private Long appUserId;
+    private String fileName;
+    private String format;
+    // RUNNING, COMPLETED, FAILED or CANCELLED
+    private String state;
+    private long bytesRead;
+    private long totalBytes;
+    private long rowsRead;
+    private long malformed;
+    // rows with neither watched nor favorite set, nothing to import
+    private long skipped;
+    private long matchedLocal;
+    private long matchedTmdb;
+    private long unmatched;
+    private long tmdbLookups;
+    // library rows added or changed; rows already in the library with the same flags are not counted
+    private long libraryChanges;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+}
@@ -0,0 +1,17 @@
+package asot.me.rest.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * An import row that did not end up in the library; line is the 1-based line in the uploaded file.
+ */
+@Data
+@Builder
+public class WatchHistoryUnmatchedRowDto {
+    private long line;
+    private String title;
+    private Long year;
+    private Long tmdbId;
+    private String reason;
+}
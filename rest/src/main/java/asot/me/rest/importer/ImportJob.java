@@ -0,0 +1,131 @@
+package asot.me.rest.importer;
+
+import asot.me.rest.dto.WatchHistoryImportStatusDto;
+import asot.me.rest.dto.WatchHistoryUnmatchedRowDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one running or finished import. Counters are written by the import thread and read by status requests.
+ */
+final class ImportJob {
+    enum State {RUNNING, COMPLETED, FAILED, CANCELLED}
+
+    final String id;
+    final Long appUserId;
+    final String fileName;
+    final WatchHistoryReader.Format format;
+    final long totalBytes;
+    final LocalDateTime startedAt = LocalDateTime.now();
+
+    final AtomicLong bytesRead = new AtomicLong();
+    final AtomicLong rowsRead = new AtomicLong();
+    final AtomicLong malformed = new AtomicLong();
+    final AtomicLong skipped = new AtomicLong();
+    final AtomicLong matchedLocal = new AtomicLong();
+    final AtomicLong matchedTmdb = new AtomicLong();
+    final AtomicLong unmatched = new AtomicLong();
+    final AtomicLong tmdbLookups = new AtomicLong();
+    final AtomicLong libraryChanges = new AtomicLong();
+
+    private final int maxUnmatchedRows;
+    private final List<WatchHistoryUnmatchedRowDto> unmatchedRows = new ArrayList<>();
+    private volatile State state = State.RUNNING;
+    private volatile boolean cancelRequested;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    ImportJob(String id, Long appUserId, String fileName, WatchHistoryReader.Format format, long totalBytes, int maxUnmatchedRows) {
+        this.id = id;
+        this.appUserId = appUserId;
+        this.fileName = fileName;
+        this.format = format;
+        this.totalBytes = totalBytes;
+        this.maxUnmatchedRows = maxUnmatchedRows;
+    }
+
+    /**
+     * Counts the row; only the first maxUnmatchedRows unmatched and malformed rows are kept for the listing.
+     */
+    void unmatched(long line, WatchHistoryEntry entry, String reason) {
+        unmatched.incrementAndGet();
+        keep(WatchHistoryUnmatchedRowDto.builder()
+                .line(line)
+                .title(entry.getTitle())
+                .year(entry.getYear())
+                .tmdbId(entry.getTmdbId())
+                .reason(reason)
+                .build());
+    }
+
+    void malformed(long line, String reason) {
+        malformed.incrementAndGet();
+        keep(WatchHistoryUnmatchedRowDto.builder().line(line).reason("malformed: " + reason).build());
+    }
+
+    private void keep(WatchHistoryUnmatchedRowDto row) {
+        synchronized (unmatchedRows) {
+            if (unmatchedRows.size() < maxUnmatchedRows) {
+                unmatchedRows.add(row);
+            }
+        }
+    }
+
+    List<WatchHistoryUnmatchedRowDto> unmatchedRows(int start, int end) {
+        synchronized (unmatchedRows) {
+            int from = Math.min(start, unmatchedRows.size());
+            return List.copyOf(unmatchedRows.subList(from, Math.max(from, Math.min(end, unmatchedRows.size()))));
+        }
+    }
+
+    int retainedUnmatchedRows() {
+        synchronized (unmatchedRows) {
+            return unmatchedRows.size();
+        }
+    }
+
+    boolean isRunning() {
+        return state == State.RUNNING;
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    void finish(State state, String error) {
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+        this.state = state;
+    }
+
+    WatchHistoryImportStatusDto toStatus() {
+        return WatchHistoryImportStatusDto.builder()
+                .id(id)
+                .appUserId(appUserId)
+                .fileName(fileName)
+                .format(format.name().toLowerCase(Locale.ROOT))
+                .state(state.name())
+                .bytesRead(bytesRead.get())
+                .totalBytes(totalBytes)
+                .rowsRead(rowsRead.get())
+                .malformed(malformed.get())
+                .skipped(skipped.get())
+                .matchedLocal(matchedLocal.get())
+                .matchedTmdb(matchedTmdb.get())
+                .unmatched(unmatched.get())
+                .tmdbLookups(tmdbLookups.get())
+                .libraryChanges(libraryChanges.get())
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .error(error)
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package asot.me.rest.importer;
+
+import lombok.Data;
+
+/**
+ * One row of an imported watch history, as read from a CSV line or a JSON line.
+ * Flags left out default to watched and not favorite.
+ */
+@Data
+public class WatchHistoryEntry {
+    private String title;
+    private Long year;
+    private Long tmdbId;
+    private Boolean watched;
+    private Boolean favorite;
+
+    public boolean isWatchedOrDefault() {
+        return watched == null || watched;
+    }
+
+    public boolean isFavoriteOrDefault() {
+        return favorite != null && favorite;
+    }
+}
@@ -0,0 +1,546 @@
+package asot.me.rest.importer;
+
+import asot.me.rest.autocomplete.AutocompleteIndex;
+import asot.me.rest.dom.Movie;
+import asot.me.rest.dto.UserMovieBatchRequest;
+import asot.me.rest.dto.UserMovieDto;
+import asot.me.rest.dto.WatchHistoryImportStatusDto;
+import asot.me.rest.dto.WatchHistoryUnmatchedRowDto;
+import asot.me.rest.pagination.OffsetPageRequest;
+import asot.me.rest.repository.AppUserRepository;
+import asot.me.rest.repository.UserMovieBatchRepository;
+import asot.me.rest.repository.WatchHistoryImportRepository;
+import asot.me.rest.service.UserMovieService;
+import asot.me.rest.tmdb.MovieFetchResult;
+import asot.me.rest.tmdb.TmdbClient;
+import asot.me.rest.tmdb.TmdbIdIndex;
+import asot.me.rest.tmdb.TmdbMovieQueryProcess;
+import asot.me.rest.tmdb.TmdbSearchService;
+import asot.me.rest.tmdb.response.MovieSearchResult;
+import asot.me.rest.tmdb.response.TmdbMovieDetailsResponse;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Imports watch histories exported by other trackers into a user's library.
+ * <p>
+ * The upload is spooled to a temp file and streamed on a virtual thread in batches of rows. Each batch is
+ * resolved against the local catalog first: rows with a TMDB id by id, the others by case-insensitive title
+ * (year within one, when given), one statement each. Only the misses go to TMDB, deduplicated across the
+ * whole import and at most import.tmdb-concurrency at a time, on top of the shared {@code TmdbRateLimiter}.
+ * Matched rows are merged with the user's current flags (an import never clears watched or favorite) and
+ * written through {@link UserMovieService#updateUserMovies}, so library versions, stats and recommendations
+ * follow as for any other library write.
+ */
+@Service
+@Log4j2
+public class WatchHistoryImporter {
+    private static final String NOT_IN_CATALOG = "not in the catalog";
+    private static final String NO_TMDB_MATCH = "no exact title match on TMDB";
+    private static final String NOT_ON_TMDB = "not found on TMDB";
+
+    private final AppUserRepository appUserRepository;
+    private final UserMovieBatchRepository userMovieBatchRepository;
+    private final WatchHistoryImportRepository importRepository;
+    private final UserMovieService userMovieService;
+    private final TmdbSearchService tmdbSearchService;
+    private final TmdbMovieQueryProcess movieQueryProcess;
+    private final TmdbIdIndex tmdbIdIndex;
+    private final AutocompleteIndex autocompleteIndex;
+    private final WatchHistoryReader reader;
+    private final int batchSize;
+    private final int tmdbConcurrency;
+    private final int maxUnmatchedRows;
+    private final int retainedJobs;
+
+    // insertion ordered, finished jobs beyond retainedJobs are dropped oldest first
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>();
+
+    public WatchHistoryImporter(AppUserRepository appUserRepository,
+                                UserMovieBatchRepository userMovieBatchRepository,
+                                WatchHistoryImportRepository importRepository,
+                                UserMovieService userMovieService,
+                                TmdbSearchService tmdbSearchService,
+                                TmdbMovieQueryProcess movieQueryProcess,
+                                TmdbIdIndex tmdbIdIndex,
+                                AutocompleteIndex autocompleteIndex,
+                                TmdbClient tmdbClient,
+                                @Value("${import.batch-size:500}") int batchSize,
+                                @Value("${import.tmdb-concurrency:4}") int tmdbConcurrency,
+                                @Value("${import.max-unmatched-rows:10000}") int maxUnmatchedRows,
+                                @Value("${import.retained-jobs:100}") int retainedJobs) {
+        this.appUserRepository = appUserRepository;
+        this.userMovieBatchRepository = userMovieBatchRepository;
+        this.importRepository = importRepository;
+        this.userMovieService = userMovieService;
+        this.tmdbSearchService = tmdbSearchService;
+        this.movieQueryProcess = movieQueryProcess;
+        this.tmdbIdIndex = tmdbIdIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.reader = new WatchHistoryReader(tmdbClient.adapter(WatchHistoryEntry.class));
+        this.batchSize = batchSize;
+        this.tmdbConcurrency = tmdbConcurrency;
+        this.maxUnmatchedRows = maxUnmatchedRows;
+        this.retainedJobs = retainedJobs;
+    }
+
+    /**
+     * Spools the upload and starts importing it in the background; one running import per user.
+     *
+     * @param format       csv or jsonl, taken from the file name when empty
+     * @param tmdbFallback whether titles missing locally are looked up on TMDB
+     */
+    public WatchHistoryImportStatusDto start(Long appUserId, MultipartFile file, String format, boolean tmdbFallback) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("file must not be empty");
+        }
+        WatchHistoryReader.Format resolvedFormat = WatchHistoryReader.Format.of(format, file.getOriginalFilename());
+        if (!appUserRepository.existsById(appUserId)) {
+            throw new EntityNotFoundException("AppUser not found with id: " + appUserId);
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), appUserId, file.getOriginalFilename(), resolvedFormat,
+                file.getSize(), maxUnmatchedRows);
+        synchronized (jobs) {
+            if (jobs.values().stream().anyMatch(running -> running.appUserId.equals(appUserId) && running.isRunning())) {
+                throw new IllegalStateException("An import is already running for user " + appUserId);
+            }
+            jobs.put(job.id, job);
+            evictFinishedJobs();
+        }
+
+        Path spooled;
+        try {
+            spooled = Files.createTempFile("watch-history-", ".import");
+            file.transferTo(spooled);
+        } catch (IOException e) {
+            job.finish(ImportJob.State.FAILED, e.getLocalizedMessage());
+            throw e;
+        }
+        boolean gzip = file.getOriginalFilename() != null && file.getOriginalFilename().toLowerCase(Locale.ROOT).endsWith(".gz");
+        Thread.ofVirtual().name("watch-history-import-" + job.id).start(() -> run(job, spooled, gzip, tmdbFallback));
+        return job.toStatus();
+    }
+
+    public WatchHistoryImportStatusDto getStatus(Long appUserId, String importId) {
+        return job(appUserId, importId).toStatus();
+    }
+
+    public List<WatchHistoryImportStatusDto> getImports(Long appUserId) {
+        synchronized (jobs) {
+            return jobs.values().stream().filter(job -> job.appUserId.equals(appUserId)).map(ImportJob::toStatus).toList();
+        }
+    }
+
+    /**
+     * Unmatched and malformed rows in the order they were found; the total is what was kept, see import.max-unmatched-rows.
+     */
+    public Page<WatchHistoryUnmatchedRowDto> getUnmatchedRows(Long appUserId, String importId, int start, int end) {
+        if (start < 0 || end <= start) {
+            throw new IllegalArgumentException("_end must be greater than _start");
+        }
+        ImportJob job = job(appUserId, importId);
+        return new PageImpl<>(job.unmatchedRows(start, end), OffsetPageRequest.ofOffset(start, end - start, Sort.unsorted()),
+                job.retainedUnmatchedRows());
+    }
+
+    /**
+     * Stops after the batch in progress; rows written so far stay in the library.
+     */
+    public WatchHistoryImportStatusDto cancel(Long appUserId, String importId) {
+        ImportJob job = job(appUserId, importId);
+        job.requestCancel();
+        return job.toStatus();
+    }
+
+    private ImportJob job(Long appUserId, String importId) {
+        ImportJob job;
+        synchronized (jobs) {
+            job = jobs.get(importId);
+        }
+        if (job == null || !job.appUserId.equals(appUserId)) {
+            throw new EntityNotFoundException("Import not found with id: " + importId);
+        }
+        return job;
+    }
+
+    private void evictFinishedJobs() {
+        int excess = jobs.size() - retainedJobs;
+        var iterator = jobs.values().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            if (!iterator.next().isRunning()) {
+                iterator.remove();
+                excess--;
+            }
+        }
+    }
+
+    private void run(ImportJob job, Path spooled, boolean gzip, boolean tmdbFallback) {
+        Map<String, Resolution> lookups = new HashMap<>();
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+        try (InputStream in = new CountingInputStream(Files.newInputStream(spooled), job);
+             BufferedReader lines = new BufferedReader(new InputStreamReader(
+                     gzip ? new GZIPInputStream(in, 1 << 16) : in, StandardCharsets.UTF_8), 1 << 16)) {
+            reader.read(lines, job.format, new WatchHistoryReader.Handler() {
+                @Override
+                public void entry(long line, WatchHistoryEntry entry) {
+                    job.rowsRead.incrementAndGet();
+                    if (!entry.isWatchedOrDefault() && !entry.isFavoriteOrDefault()) {
+                        job.skipped.incrementAndGet();
+                        return;
+                    }
+                    batch.add(new PendingRow(line, entry));
+                    if (batch.size() >= batchSize) {
+                        if (job.isCancelRequested()) {
+                            throw new ImportCancelledException();
+                        }
+                        importBatch(job, batch, lookups, tmdbFallback);
+                        batch.clear();
+                    }
+                }
+
+                @Override
+                public void malformed(long line, String reason) {
+                    job.rowsRead.incrementAndGet();
+                    job.malformed(line, reason);
+                }
+            });
+            if (job.isCancelRequested()) {
+                throw new ImportCancelledException();
+            }
+            importBatch(job, batch, lookups, tmdbFallback);
+            job.finish(ImportJob.State.COMPLETED, null);
+            log.info("Watch history import {} for user {} done: {}", job.id, job.appUserId, job.toStatus());
+        } catch (ImportCancelledException e) {
+            job.finish(ImportJob.State.CANCELLED, null);
+            log.info("Watch history import {} for user {} cancelled", job.id, job.appUserId);
+        } catch (Exception e) {
+            job.finish(ImportJob.State.FAILED, e.getLocalizedMessage());
+            log.error("Watch history import {} for user {} failed e:{}", job.id, job.appUserId, e.getLocalizedMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled import {} e:{}", spooled, e.getLocalizedMessage());
+            }
+        }
+    }
+
+    /**
+     * Resolves a batch of rows to movie ids and writes the matches as one library update.
+     */
+    private void importBatch(ImportJob job, List<PendingRow> batch, Map<String, Resolution> lookups, boolean tmdbFallback) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        resolveLocally(job, batch);
+        if (tmdbFallback) {
+            resolveOnTmdb(job, batch, lookups);
+        }
+
+        Map<Long, boolean[]> imported = new LinkedHashMap<>();
+        for (PendingRow row : batch) {
+            if (row.movieId == null) {
+                job.unmatched(row.line, row.entry, row.reason == null ? NOT_IN_CATALOG : row.reason);
+                continue;
+            }
+            addFlags(imported, row.movieId, row.entry);
+        }
+        Map<Long, boolean[]> current = importRepository.findFlags(job.appUserId, imported.keySet());
+        List<UserMovieDto> changes = flagChanges(job.appUserId, imported, current);
+        if (!changes.isEmpty()) {
+            int changed = userMovieService.updateUserMovies(new UserMovieBatchRequest(job.appUserId, changes)).getChanges().size();
+            job.libraryChanges.addAndGet(changed);
+        }
+    }
+
+    /**
+     * Repeated movies in a batch add up their flags: watched or favorite in any row counts.
+     */
+    static void addFlags(Map<Long, boolean[]> imported, Long movieId, WatchHistoryEntry entry) {
+        boolean[] flags = imported.computeIfAbsent(movieId, id -> new boolean[2]);
+        flags[0] |= entry.isWatchedOrDefault();
+        flags[1] |= entry.isFavoriteOrDefault();
+    }
+
+    /**
+     * The library rows to write: flags are only ever added to what the library has, unchanged movies are left out.
+     */
+    static List<UserMovieDto> flagChanges(Long appUserId, Map<Long, boolean[]> imported, Map<Long, boolean[]> current) {
+        List<UserMovieDto> changes = new ArrayList<>();
+        imported.forEach((movieId, flags) -> {
+            boolean[] before = current.getOrDefault(movieId, new boolean[2]);
+            boolean watched = flags[0] || before[0];
+            boolean favorite = flags[1] || before[1];
+            if (watched != before[0] || favorite != before[1]) {
+                changes.add(UserMovieDto.builder().appUserId(appUserId).movieId(movieId).watched(watched).favorite(favorite).build());
+            }
+        });
+        return changes;
+    }
+
+    private void resolveLocally(ImportJob job, List<PendingRow> batch) {
+        Set<Long> tmdbIds = new HashSet<>();
+        Set<String> titles = new HashSet<>();
+        for (PendingRow row : batch) {
+            if (row.entry.getTmdbId() != null) {
+                tmdbIds.add(row.entry.getTmdbId());
+            } else {
+                titles.add(row.entry.getTitle().toLowerCase(Locale.ROOT));
+            }
+        }
+
+        Set<Long> existing = userMovieBatchRepository.findExistingMovieIds(tmdbIds);
+        Map<String, List<Movie>> byTitle = new HashMap<>();
+        importRepository.forEachMovieByTitle(titles, rs -> byTitle
+                .computeIfAbsent(rs.getString("title").toLowerCase(Locale.ROOT), title -> new ArrayList<>())
+                .add(Movie.builder().id(rs.getLong("id")).title(rs.getString("title")).year(rs.getObject("year", Long.class)).build()));
+
+        for (PendingRow row : batch) {
+            if (row.entry.getTmdbId() != null) {
+                row.movieId = existing.contains(row.entry.getTmdbId()) ? row.entry.getTmdbId() : null;
+            } else {
+                row.movieId = pickLocal(byTitle.get(row.entry.getTitle().toLowerCase(Locale.ROOT)), row.entry);
+            }
+            if (row.movieId != null) {
+                job.matchedLocal.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Prefers the exact spelling among case-insensitive matches; a given year must be within one of the movie's.
+     */
+    private static Long pickLocal(List<Movie> candidates, WatchHistoryEntry entry) {
+        if (candidates == null) {
+            return null;
+        }
+        Movie best = null;
+        for (Movie candidate : candidates) {
+            if (entry.getYear() != null && candidate.getYear() != null && Math.abs(candidate.getYear() - entry.getYear()) > 1) {
+                continue;
+            }
+            if (best == null || candidate.getTitle().equals(entry.getTitle())) {
+                best = candidate;
+            }
+        }
+        return best == null ? null : best.getId();
+    }
+
+    private void resolveOnTmdb(ImportJob job, List<PendingRow> batch, Map<String, Resolution> lookups) {
+        // distinct lookups this batch still needs, keyed like the import-wide cache
+        Map<String, PendingRow> pending = new LinkedHashMap<>();
+        for (PendingRow row : batch) {
+            if (row.movieId == null && !lookups.containsKey(row.lookupKey())) {
+                pending.putIfAbsent(row.lookupKey(), row);
+            }
+        }
+
+        Map<String, MovieSearchResult> titleHits = new ConcurrentHashMap<>();
+        Map<String, TmdbMovieDetailsResponse> idHits = new ConcurrentHashMap<>();
+        Map<String, Resolution> resolved = new ConcurrentHashMap<>();
+        Semaphore permits = new Semaphore(tmdbConcurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            pending.forEach((key, row) -> executor.submit(() -> {
+                Long tmdbId = row.entry.getTmdbId();
+                if (tmdbId != null && tmdbIdIndex.isMissing(tmdbId)) {
+                    resolved.put(key, Resolution.unmatched(NOT_ON_TMDB));
+                    return;
+                }
+                permits.acquireUninterruptibly();
+                try {
+                    job.tmdbLookups.incrementAndGet();
+                    if (tmdbId != null) {
+                        MovieFetchResult result = movieQueryProcess.fetchMovie(tmdbId);
+                        switch (result.getStatus()) {
+                            case FOUND -> idHits.put(key, result.getDetails());
+                            case NOT_FOUND -> resolved.put(key, Resolution.unmatched(NOT_ON_TMDB));
+                            case FAILED -> resolved.put(key, Resolution.unmatched("TMDB lookup failed"));
+                        }
+                    } else {
+                        Optional<MovieSearchResult> hit = tmdbSearchService.findMovieByTitle(row.entry.getTitle(), row.entry.getYear());
+                        if (hit.isPresent()) {
+                            titleHits.put(key, hit.get());
+                        } else {
+                            resolved.put(key, Resolution.unmatched(NO_TMDB_MATCH));
+                        }
+                    }
+                } catch (Exception e) {
+                    resolved.put(key, Resolution.unmatched("TMDB lookup failed: " + e.getLocalizedMessage()));
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        saveFetchedMovies(idHits, resolved);
+        saveSearchedMovies(titleHits, resolved);
+        lookups.putAll(resolved);
+
+        for (PendingRow row : batch) {
+            if (row.movieId != null) {
+                continue;
+            }
+            Resolution resolution = lookups.get(row.lookupKey());
+            if (resolution != null && resolution.movieId() != null) {
+                row.movieId = resolution.movieId();
+                job.matchedTmdb.incrementAndGet();
+            } else if (resolution != null) {
+                row.reason = resolution.reason();
+            }
+        }
+    }
+
+    /**
+     * Movies fetched by TMDB id are saved with their cast, as the crawler does.
+     */
+    private void saveFetchedMovies(Map<String, TmdbMovieDetailsResponse> hits, Map<String, Resolution> resolved) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        try {
+            movieQueryProcess.persistMovies(List.copyOf(hits.values()));
+            tmdbIdIndex.markIngested(hits.values().stream().map(TmdbMovieDetailsResponse::getId).toList());
+            hits.forEach((key, details) -> resolved.put(key, Resolution.matched(details.getId())));
+        } catch (Exception e) {
+            // one bad row (e.g. duplicate title) must not sink the whole batch
+            hits.forEach((key, details) -> {
+                try {
+                    movieQueryProcess.persistMovies(List.of(details));
+                    tmdbIdIndex.markIngested(List.of(details.getId()));
+                    resolved.put(key, Resolution.matched(details.getId()));
+                } catch (Exception ex) {
+                    resolved.put(key, Resolution.unmatched("could not save the TMDB movie: " + ex.getLocalizedMessage()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Movies found by title search are created unqueried, their cast is fetched later like for any new movie.
+     */
+    private void saveSearchedMovies(Map<String, MovieSearchResult> hits, Map<String, Resolution> resolved) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        Map<Long, Movie> movies = new LinkedHashMap<>();
+        hits.values().forEach(hit -> movies.putIfAbsent(hit.getId(), Movie.builder()
+                .id(hit.getId())
+                .title(hit.getTitle())
+                .year(releaseYear(hit.getRelease_date()))
+                .genreIds(hit.getGenre_ids())
+                .build()));
+        // the search may land on movies the catalog has under another title
+        Set<Long> existing = userMovieBatchRepository.findExistingMovieIds(movies.keySet());
+        List<Movie> missing = movies.values().stream().filter(movie -> !existing.contains(movie.getId())).toList();
+        Set<Long> inserted = importRepository.insertMovies(missing);
+        missing.stream().filter(movie -> inserted.contains(movie.getId()))
+                .forEach(movie -> autocompleteIndex.movieSaved(movie.getId(), movie.getTitle()));
+
+        hits.forEach((key, hit) -> resolved.put(key, existing.contains(hit.getId()) || inserted.contains(hit.getId())
+                ? Resolution.matched(hit.getId())
+                : Resolution.unmatched("TMDB movie " + hit.getId() + " clashes with a catalog movie of the same title")));
+    }
+
+    private static Long releaseYear(String releaseDate) {
+        if (releaseDate == null || releaseDate.length() < 4) {
+            return null;
+        }
+        try {
+            return Long.parseLong(releaseDate.substring(0, 4));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class PendingRow {
+        final long line;
+        final WatchHistoryEntry entry;
+        Long movieId;
+        String reason;
+
+        PendingRow(long line, WatchHistoryEntry entry) {
+            this.line = line;
+            this.entry = entry;
+        }
+
+        String lookupKey() {
+            return entry.getTmdbId() != null
+                    ? "id:" + entry.getTmdbId()
+                    : "title:" + entry.getTitle().toLowerCase(Locale.ROOT) + "|" + entry.getYear();
+        }
+    }
+
+    private record Resolution(Long movieId, String reason) {
+        static Resolution matched(Long movieId) {
+            return new Resolution(movieId, null);
+        }
+
+        static Resolution unmatched(String reason) {
+            return new Resolution(null, reason);
+        }
+    }
+
+    private static final class ImportCancelledException extends RuntimeException {
+    }
+
+    /**
+     * Reports the bytes consumed from the spooled file as the import's progress.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final ImportJob job;
+
+        CountingInputStream(InputStream in, ImportJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                job.bytesRead.incrementAndGet();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                job.bytesRead.addAndGet(read);
+            }
+            return read;
+        }
+    }
+}
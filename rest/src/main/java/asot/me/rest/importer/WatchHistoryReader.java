@@ -0,0 +1,351 @@
+package asot.me.rest.importer;
+
+import com.squareup.moshi.JsonAdapter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams watch history rows out of a CSV export (header row required) or JSON lines, one row at a time.
+ * <p>
+ * CSV columns are matched by header name, case-insensitively, with the names other trackers export:
+ * title/name/movie/film, year/release_year, tmdb_id/tmdbid/tmdb, watched, favorite/favourite/liked/loved.
+ * Other columns are ignored. JSON lines use the {@link WatchHistoryEntry} property names.
+ * <p>
+ * A line or CSV record longer than {@link #MAX_RECORD_LENGTH} characters, or a quoted field spanning more than
+ * {@link #MAX_RECORD_LINES} lines, is reported as malformed and skipped, so one stray quote cannot pull the rest
+ * of the file into a single field.
+ */
+public class WatchHistoryReader {
+    static final int MAX_RECORD_LENGTH = 64 * 1024;
+    static final int MAX_RECORD_LINES = 100;
+
+    private static final Map<String, String> CSV_COLUMNS = new HashMap<>();
+    private static final Set<String> TRUE_VALUES = Set.of("true", "1", "yes", "y", "x");
+    private static final Set<String> FALSE_VALUES = Set.of("false", "0", "no", "n", "");
+
+    static {
+        for (String name : List.of("title", "name", "movie", "film")) {
+            CSV_COLUMNS.put(name, "title");
+        }
+        for (String name : List.of("year", "release_year", "releaseyear")) {
+            CSV_COLUMNS.put(name, "year");
+        }
+        for (String name : List.of("tmdb_id", "tmdbid", "tmdb")) {
+            CSV_COLUMNS.put(name, "tmdbId");
+        }
+        CSV_COLUMNS.put("watched", "watched");
+        for (String name : List.of("favorite", "favourite", "liked", "loved")) {
+            CSV_COLUMNS.put(name, "favorite");
+        }
+    }
+
+    public enum Format {
+        CSV, JSONL;
+
+        /**
+         * An explicit format wins, otherwise the file extension decides (.jsonl/.ndjson/.json, else CSV).
+         */
+        public static Format of(String format, String fileName) {
+            if (format != null && !format.isBlank()) {
+                return switch (format.toLowerCase(Locale.ROOT)) {
+                    case "csv" -> CSV;
+                    case "jsonl", "ndjson", "json" -> JSONL;
+                    default -> throw new IllegalArgumentException("format must be csv or jsonl");
+                };
+            }
+            String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT).replaceFirst("\\.gz$", "");
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    public interface Handler {
+        void entry(long line, WatchHistoryEntry entry);
+
+        void malformed(long line, String reason);
+    }
+
+    private final JsonAdapter<WatchHistoryEntry> jsonAdapter;
+
+    public WatchHistoryReader(JsonAdapter<WatchHistoryEntry> jsonAdapter) {
+        this.jsonAdapter = jsonAdapter;
+    }
+
+    public void read(BufferedReader reader, Format format, Handler handler) throws IOException {
+        LineReader lines = new LineReader(reader, MAX_RECORD_LENGTH);
+        if (format == Format.JSONL) {
+            readJsonLines(lines, handler);
+        } else {
+            readCsv(lines, handler);
+        }
+    }
+
+    private void readJsonLines(LineReader reader, Handler handler) throws IOException {
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (reader.wasTruncated()) {
+                handler.malformed(lineNumber, "line is longer than " + MAX_RECORD_LENGTH + " characters");
+                continue;
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            WatchHistoryEntry entry;
+            try {
+                entry = jsonAdapter.fromJson(line);
+            } catch (Exception e) {
+                handler.malformed(lineNumber, "invalid JSON: " + e.getLocalizedMessage());
+                continue;
+            }
+            accept(lineNumber, entry, handler);
+        }
+    }
+
+    private void readCsv(LineReader reader, Handler handler) throws IOException {
+        long[] lineNumber = new long[1];
+        List<String> header = nextRecord(reader, lineNumber);
+        while (header != null && header.stream().allMatch(String::isBlank)) {
+            header = nextRecord(reader, lineNumber);
+        }
+        if (header == null) {
+            return;
+        }
+        String[] columns = new String[header.size()];
+        for (int index = 0; index < header.size(); index++) {
+            // byte order mark of exports saved by spreadsheet tools
+            String name = header.get(index).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+            columns[index] = CSV_COLUMNS.get(name);
+        }
+        List<String> mapped = Arrays.asList(columns);
+        if (!mapped.contains("title") && !mapped.contains("tmdbId")) {
+            throw new IllegalArgumentException("CSV header needs a title or tmdb_id column, found " + header);
+        }
+
+        List<String> record;
+        while (true) {
+            long line = lineNumber[0] + 1;
+            try {
+                record = nextRecord(reader, lineNumber);
+            } catch (MalformedRecordException e) {
+                handler.malformed(line, e.getLocalizedMessage());
+                continue;
+            }
+            if (record == null) {
+                return;
+            }
+            if (record.stream().allMatch(String::isBlank)) {
+                continue;
+            }
+            WatchHistoryEntry entry = new WatchHistoryEntry();
+            try {
+                for (int index = 0; index < Math.min(columns.length, record.size()); index++) {
+                    if (columns[index] != null) {
+                        set(entry, columns[index], record.get(index).trim());
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                handler.malformed(line, e.getLocalizedMessage());
+                continue;
+            }
+            accept(line, entry, handler);
+        }
+    }
+
+    private static void accept(long line, WatchHistoryEntry entry, Handler handler) {
+        if (entry == null) {
+            handler.malformed(line, "empty row");
+            return;
+        }
+        if (entry.getTitle() != null) {
+            entry.setTitle(entry.getTitle().trim());
+            if (entry.getTitle().isEmpty()) {
+                entry.setTitle(null);
+            }
+        }
+        if (entry.getTitle() == null && entry.getTmdbId() == null) {
+            handler.malformed(line, "row has neither title nor tmdbId");
+            return;
+        }
+        handler.entry(line, entry);
+    }
+
+    private static void set(WatchHistoryEntry entry, String column, String value) {
+        switch (column) {
+            case "title" -> entry.setTitle(value);
+            case "year" -> entry.setYear(parseLong(value, "year"));
+            case "tmdbId" -> entry.setTmdbId(parseLong(value, "tmdb_id"));
+            case "watched" -> entry.setWatched(parseBoolean(value, "watched"));
+            case "favorite" -> entry.setFavorite(parseBoolean(value, "favorite"));
+            default -> {
+            }
+        }
+    }
+
+    private static Long parseLong(String value, String column) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: " + value);
+        }
+    }
+
+    private static Boolean parseBoolean(String value, String column) {
+        String normalized = value.toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        if (TRUE_VALUES.contains(normalized)) {
+            return true;
+        }
+        if (FALSE_VALUES.contains(normalized)) {
+            return false;
+        }
+        throw new IllegalArgumentException(column + " is not a boolean: " + value);
+    }
+
+    /**
+     * The fields of the next CSV record (RFC 4180: quoted fields may hold commas, doubled quotes and line breaks),
+     * or null at the end of input. lineNumber[0] is advanced past the record's last line, also when the record
+     * is too long; reading goes on with the line after it.
+     */
+    private static List<String> nextRecord(LineReader reader, long[] lineNumber) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        lineNumber[0]++;
+        int lines = 1;
+        int length = line.length();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int index = 0;
+        while (true) {
+            if (reader.wasTruncated() || length > MAX_RECORD_LENGTH) {
+                throw new MalformedRecordException("record is longer than " + MAX_RECORD_LENGTH + " characters");
+            }
+            if (index == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                if (lines == MAX_RECORD_LINES) {
+                    throw new MalformedRecordException("quoted field is not closed within " + MAX_RECORD_LINES + " lines");
+                }
+                // a line break inside a quoted field
+                String next = reader.readLine();
+                if (next == null) {
+                    break;
+                }
+                lineNumber[0]++;
+                lines++;
+                length += next.length() + 1;
+                field.append('\n');
+                line = next;
+                index = 0;
+                continue;
+            }
+            char c = line.charAt(index++);
+            if (quoted) {
+                if (c == '"') {
+                    if (index < line.length() && line.charAt(index) == '"') {
+                        field.append('"');
+                        index++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static final class MalformedRecordException extends IOException {
+        MalformedRecordException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Reads lines like {@link BufferedReader#readLine()}, but keeps at most maxLength characters of each; the rest
+     * of a longer line is skipped and the line flagged, so a file without line breaks is never held in memory.
+     */
+    static final class LineReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private boolean skipLineFeed;
+        private boolean truncated;
+
+        LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * The next line without its terminator (\n, \r\n or \r), or null at the end of input.
+         */
+        String readLine() throws IOException {
+            StringBuilder line = null;
+            truncated = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+                    position = 0;
+                    if (limit == 0) {
+                        return line == null ? null : line.toString();
+                    }
+                }
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (buffer[position] == '\n') {
+                        position++;
+                        continue;
+                    }
+                }
+                if (line == null) {
+                    line = new StringBuilder();
+                }
+                int start = position;
+                while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                    position++;
+                }
+                int keep = Math.min(position - start, maxLength - line.length());
+                line.append(buffer, start, keep);
+                truncated |= keep < position - start;
+                if (position < limit) {
+                    skipLineFeed = buffer[position++] == '\r';
+                    return line.toString();
+                }
+            }
+        }
+
+        boolean wasTruncated() {
+            return truncated;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package asot.me.rest.mapper;
 import asot.me.rest.dom.Actor;
 import asot.me.rest.dom.Genre;
 import asot.me.rest.dto.ActorDto;
+import asot.me.rest.dto.ActorSummaryDto;
 import asot.me.rest.dto.GenreDto;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -16,6 +17,9 @@ public interface ActorMapper {
     // For example:
     ActorDto toDTO(Actor actor);
 
+    // list rows, never touches the movies or tvshows collections
+    ActorSummaryDto toSummary(Actor actor, long movieCount);
+
     Actor toEntity(ActorDto actorDto);
 
     List<ActorDto> toDtoList(List<Actor> actors);
@@ -2,6 +2,7 @@ package asot.me.rest.mapper;
 
 import asot.me.rest.dom.Movie;
 import asot.me.rest.dto.MovieDto;
+import asot.me.rest.dto.MovieSummaryDto;
 import org.mapstruct.Mapper;
 
 import java.util.List;
@@ -13,6 +14,9 @@ public interface MovieMapper {
     // For example:
     MovieDto toDTO(Movie movie);
 
+    // list rows, never touches the actors collection
+    MovieSummaryDto toSummary(Movie movie);
+
     Movie toEntity(MovieDto movieDto);
 
     List<MovieDto> toDtoList(List<Movie> movies);
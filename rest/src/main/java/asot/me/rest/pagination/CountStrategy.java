@@ -0,0 +1,23 @@
+package asot.me.rest.pagination;
+
+/**
+ * How a list endpoint computes X-Total-Count, chosen per request with _count.
+ */
+public enum CountStrategy {
+    /** COUNT(*) on every request. */
+    EXACT,
+    /** Row estimate from the planner statistics, no scan. */
+    ESTIMATED,
+    /** Exact count, reused for a few seconds per filter combination. */
+    CACHED,
+    /** No count; the response only says whether there is a next page. */
+    NONE;
+
+    public static CountStrategy parse(String value) {
+        try {
+            return valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("_count must be one of exact, estimated, cached, none");
+        }
+    }
+}
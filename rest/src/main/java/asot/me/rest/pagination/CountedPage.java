@@ -0,0 +1,36 @@
+package asot.me.rest.pagination;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A slice with a total attached. Whether there is a next page still comes from the slice query's extra row,
+ * never from the total, so an estimated or stale count cannot hide a next page or invent one on the last.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+    private final boolean hasNext;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean hasNext) {
+        super(content, pageable, total);
+        this.hasNext = hasNext;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public boolean isLast() {
+        return !hasNext;
+    }
+
+    @Override
+    public <U> Page<U> map(Function<? super T, ? extends U> converter) {
+        return new CountedPage<>(getContent().stream().<U>map(converter).toList(), getPageable(), getTotalElements(), hasNext);
+    }
+}
@@ -0,0 +1,103 @@
+package asot.me.rest.pagination;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Turns keyset scroll positions into opaque url-safe cursors and back.
+ * A cursor holds the sort it was issued for and the last row's sort key and id,
+ * so the next page is a seek on an index instead of an OFFSET scan.
+ */
+@Component
+@RequiredArgsConstructor
+public class CursorCodec {
+    private static final TypeReference<Map<String, Object>> KEYS_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    /**
+     * Builds the sort for cursor mode; only non-null columns can be seeked on.
+     */
+    public static Sort sort(String property, String order, Set<String> allowed) {
+        if (!allowed.contains(property)) {
+            throw new IllegalArgumentException("Cursor pagination supports _sort in " + allowed);
+        }
+        Sort.Direction direction = order.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        // id breaks ties so every position is unique
+        return property.equals("id") ? Sort.by(direction, "id") : Sort.by(direction, property).and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * An empty cursor starts at the first row.
+     */
+    public KeysetScrollPosition decode(String cursor, Sort sort, Class<?> entityClass) {
+        EntityType<?> entity = entityManager.getMetamodel().entity(entityClass);
+        return decode(cursor, sort, property -> entity.getAttribute(property).getJavaType());
+    }
+
+    /**
+     * For keysets that are not entity attributes, e.g. hand written queries; keyTypes maps each sort property to its type.
+     */
+    public KeysetScrollPosition decode(String cursor, Sort sort, Function<String, Class<?>> keyTypes) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        Map<String, Object> payload;
+        try {
+            payload = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), KEYS_TYPE);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!signature(sort).equals(payload.get("s")) || !(payload.get("k") instanceof Map<?, ?> rawKeys)) {
+            throw new IllegalArgumentException("Cursor was issued for a different _sort/_order");
+        }
+
+        // json brings numbers back as Integer, the seek predicate needs the attribute type
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            Object value = rawKeys.get(order.getProperty());
+            if (value == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Class<?> type = keyTypes.apply(order.getProperty());
+            keys.put(order.getProperty(), DefaultConversionService.getSharedInstance().convert(value, type));
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    /**
+     * Cursor for the page after this window, or null on the last page.
+     */
+    public String encodeNext(Window<?> window, Sort sort) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        KeysetScrollPosition position = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Map.of("s", signature(sort), "k", position.getKeys()));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new RuntimeException("Could not encode cursor", e);
+        }
+    }
+
+    private static String signature(Sort sort) {
+        return sort.toString();
+    }
+}
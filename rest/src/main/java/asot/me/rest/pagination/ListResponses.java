@@ -0,0 +1,40 @@
+package asot.me.rest.pagination;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * Response headers shared by the refine list endpoints.
+ */
+public final class ListResponses {
+
+    private ListResponses() {
+    }
+
+    /**
+     * X-Total-Count when the slice carries a total (any _count but none), X-Has-Next always.
+     */
+    public static <T> ResponseEntity<List<T>> of(Slice<T> slice) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("access-control-expose-headers", "X-Total-Count, X-Has-Next")
+                .header("x-has-next", String.valueOf(slice.hasNext()));
+        if (slice instanceof Page<T> page) {
+            response.header("x-total-count", String.valueOf(page.getTotalElements()));
+        }
+        return response.body(slice.getContent());
+    }
+
+    /**
+     * X-Next-Cursor holds the cursor for the following page and is absent on the last one.
+     */
+    public static <T> ResponseEntity<List<T>> of(Window<T> window, String nextCursor) {
+        return ResponseEntity.ok()
+                .header("access-control-expose-headers", "X-Next-Cursor")
+                .header("x-next-cursor", nextCursor)
+                .body(window.getContent());
+    }
+}
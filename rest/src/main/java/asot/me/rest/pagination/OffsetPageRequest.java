@@ -0,0 +1,52 @@
+package asot.me.rest.pagination;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Page request that keeps the exact _start offset of the refine grid instead of
+ * rounding it down to a multiple of the page size like {@code PageRequest.of(start / size, size)}.
+ */
+public class OffsetPageRequest extends PageRequest {
+    private final long offset;
+
+    private OffsetPageRequest(long offset, int size, Sort sort) {
+        super((int) (offset / size), size, sort);
+        this.offset = offset;
+    }
+
+    public static OffsetPageRequest ofOffset(long offset, int size, Sort sort) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("_start must not be negative");
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("_end must be greater than _start");
+        }
+        return new OffsetPageRequest(offset, size, sort);
+    }
+
+    @Override
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public OffsetPageRequest withSort(Sort sort) {
+        return new OffsetPageRequest(offset, getPageSize(), sort);
+    }
+
+    @Override
+    public OffsetPageRequest next() {
+        return new OffsetPageRequest(offset + getPageSize(), getPageSize(), getSort());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof OffsetPageRequest other && offset == other.offset && super.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Long.hashCode(offset);
+    }
+}
@@ -0,0 +1,517 @@
+package asot.me.rest.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Item-to-item cosine similarity over weighted user libraries, held in primitive arrays.
+ * <p>
+ * A user's weight for a movie is 1 when watched and 2 when favorite. Per movie ordinal the model keeps
+ * the norm (sum of squared weights) and its top K neighbours with their weighted co-occurrence count,
+ * in flat slabs indexed by {@code ordinal * k}. Scores are derived from the counts and the current
+ * norms when read, so an incremental update only adjusts counts. Neighbour slots are unordered.
+ * Not thread safe, callers guard updates against reads.
+ */
+final class ItemSimilarityModel {
+    private static final long[] NO_IDS = new long[0];
+
+    private final int k;
+    private final LongIntHashMap ordinals;
+    private final long skippedUsers;
+    private long[] movieIds;
+    private long[] norms;
+    private int[] sizes;
+    private int[] neighbors;
+    private int[] counts;
+    private int itemCount;
+
+    private ItemSimilarityModel(int k, LongIntHashMap ordinals, long[] movieIds, long[] norms, int itemCount, long skippedUsers) {
+        this.k = k;
+        this.ordinals = ordinals;
+        this.movieIds = movieIds;
+        this.norms = norms;
+        this.itemCount = itemCount;
+        this.skippedUsers = skippedUsers;
+        this.sizes = new int[movieIds.length];
+        this.neighbors = new int[slabLength(movieIds.length, k)];
+        this.counts = new int[neighbors.length];
+    }
+
+    static ItemSimilarityModel empty(int k) {
+        return new Builder(k, Integer.MAX_VALUE).build();
+    }
+
+    static int weight(boolean watched, boolean favorite) {
+        return favorite ? 2 : watched ? 1 : 0;
+    }
+
+    int itemCount() {
+        return itemCount;
+    }
+
+    long skippedUsers() {
+        return skippedUsers;
+    }
+
+    long pairCount() {
+        long pairs = 0;
+        for (int i = 0; i < itemCount; i++) {
+            pairs += sizes[i];
+        }
+        return pairs;
+    }
+
+    long estimatedBytes() {
+        return ordinals.estimatedBytes() + movieIds.length * 20L + neighbors.length * 8L;
+    }
+
+    /**
+     * The stored co-occurrence count of b in a's neighbour list, 0 when b is not a top neighbour of a.
+     */
+    int storedCount(long a, long b) {
+        int i = ordinals.get(a, -1);
+        int j = ordinals.get(b, -1);
+        if (i < 0 || j < 0) {
+            return 0;
+        }
+        int slot = find(i, j);
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * Movies the library's neighbours point to, scored by the sum of weight times similarity, best first.
+     * Movies already in the library are never recommended.
+     */
+    List<Recommendation> recommend(long[] libraryIds, int[] libraryWeights, int limit) {
+        Scores scores = new Scores(libraryIds.length * (k + 1));
+        for (long movieId : libraryIds) {
+            int ordinal = ordinals.get(movieId, -1);
+            if (ordinal >= 0) {
+                scores.exclude(ordinal);
+            }
+        }
+        for (int index = 0; index < libraryIds.length; index++) {
+            int i = ordinals.get(libraryIds[index], -1);
+            if (i < 0 || libraryWeights[index] <= 0) {
+                continue;
+            }
+            int base = i * k;
+            for (int slot = base; slot < base + sizes[i]; slot++) {
+                double similarity = similarity(i, neighbors[slot], counts[slot]);
+                if (similarity > 0) {
+                    scores.add(neighbors[slot], (float) (libraryWeights[index] * similarity));
+                }
+            }
+        }
+
+        TopK top = new TopK(limit);
+        for (int slot = 0; slot < scores.keys.length; slot++) {
+            if (scores.keys[slot] >= 0 && scores.values[slot] > 0) {
+                top.offer(scores.keys[slot], 0, scores.values[slot]);
+            }
+        }
+        int[] order = top.descending();
+        List<Recommendation> result = new ArrayList<>(order.length);
+        for (int index : order) {
+            result.add(new Recommendation(movieIds[top.items[index]], top.scores[index]));
+        }
+        return result;
+    }
+
+    /**
+     * Applies one user's weight change for a movie. The library is the user's state before the change.
+     *
+     * @return movies whose pair with movieId grew but is stored in neither neighbour list; their
+     * exact counts have to be looked up and passed to {@link #offerPair}
+     */
+    long[] applyChange(long[] libraryIds, int[] libraryWeights, long movieId, int previousWeight, int weight) {
+        int delta = weight - previousWeight;
+        if (delta == 0) {
+            return NO_IDS;
+        }
+        int i = ordinalOrAdd(movieId);
+        norms[i] += (long) weight * weight - (long) previousWeight * previousWeight;
+
+        long[] missing = new long[libraryIds.length];
+        int missingCount = 0;
+        for (int index = 0; index < libraryIds.length; index++) {
+            if (libraryIds[index] == movieId || libraryWeights[index] <= 0) {
+                continue;
+            }
+            int j = ordinalOrAdd(libraryIds[index]);
+            int pairDelta = delta * libraryWeights[index];
+            int countInI = adjust(i, j, pairDelta);
+            int countInJ = adjust(j, i, pairDelta);
+            if (pairDelta > 0) {
+                // a pair stored on one side gives the exact count for the other
+                if (countInI > 0 && countInJ < 0) {
+                    offer(j, i, countInI);
+                } else if (countInJ > 0 && countInI < 0) {
+                    offer(i, j, countInJ);
+                } else if (countInI < 0 && countInJ < 0) {
+                    missing[missingCount++] = libraryIds[index];
+                }
+            }
+        }
+        return Arrays.copyOf(missing, missingCount);
+    }
+
+    /**
+     * Offers a pair with its exact co-occurrence count to both neighbour lists.
+     */
+    void offerPair(long a, long b, int count) {
+        if (count <= 0 || a == b) {
+            return;
+        }
+        int i = ordinalOrAdd(a);
+        int j = ordinalOrAdd(b);
+        offer(i, j, count);
+        offer(j, i, count);
+    }
+
+    private double similarity(int i, int j, int count) {
+        long norm = norms[i] * norms[j];
+        return norm <= 0 ? 0 : count / Math.sqrt((double) norm);
+    }
+
+    private int find(int i, int j) {
+        int base = i * k;
+        for (int slot = base; slot < base + sizes[i]; slot++) {
+            if (neighbors[slot] == j) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the new count when j is stored in i's list, -1 when it is not
+     */
+    private int adjust(int i, int j, int delta) {
+        int slot = find(i, j);
+        if (slot < 0) {
+            return -1;
+        }
+        counts[slot] += delta;
+        if (counts[slot] <= 0) {
+            int last = i * k + --sizes[i];
+            neighbors[slot] = neighbors[last];
+            counts[slot] = counts[last];
+            return 0;
+        }
+        return counts[slot];
+    }
+
+    private void offer(int i, int j, int count) {
+        int slot = find(i, j);
+        if (slot >= 0) {
+            counts[slot] = count;
+            return;
+        }
+        int base = i * k;
+        if (sizes[i] < k) {
+            slot = base + sizes[i]++;
+        } else {
+            // replace the weakest neighbour if the new one beats it
+            int weakest = base;
+            for (int candidate = base + 1; candidate < base + k; candidate++) {
+                if (similarity(i, neighbors[candidate], counts[candidate]) < similarity(i, neighbors[weakest], counts[weakest])) {
+                    weakest = candidate;
+                }
+            }
+            if (similarity(i, j, count) <= similarity(i, neighbors[weakest], counts[weakest])) {
+                return;
+            }
+            slot = weakest;
+        }
+        neighbors[slot] = j;
+        counts[slot] = count;
+    }
+
+    private int ordinalOrAdd(long movieId) {
+        int ordinal = ordinals.get(movieId, -1);
+        if (ordinal >= 0) {
+            return ordinal;
+        }
+        if (itemCount == movieIds.length) {
+            int capacity = Math.max(16, movieIds.length * 2);
+            movieIds = Arrays.copyOf(movieIds, capacity);
+            norms = Arrays.copyOf(norms, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            neighbors = Arrays.copyOf(neighbors, slabLength(capacity, k));
+            counts = Arrays.copyOf(counts, neighbors.length);
+        }
+        ordinal = itemCount++;
+        movieIds[ordinal] = movieId;
+        ordinals.put(movieId, ordinal);
+        return ordinal;
+    }
+
+    private static int slabLength(int items, int k) {
+        long length = (long) items * k;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many movies for " + k + " neighbours each: " + items);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Collects user libraries into compressed rows, then computes every movie's neighbours.
+     * Rows must arrive grouped by user; users with more than maxItemsPerUser movies are left out,
+     * their pairs grow quadratically and say little about any single movie.
+     */
+    static final class Builder {
+        private final int k;
+        private final int maxItemsPerUser;
+        private final LongIntHashMap ordinals = new LongIntHashMap(1 << 16);
+        private long[] movieIds = new long[1 << 12];
+        private int itemCount;
+        // per entry: movie ordinal << 1 | (weight - 1)
+        private int[] userItems = new int[1 << 16];
+        private int entries;
+        private int[] userStart = new int[1 << 12];
+        private int users;
+        private long currentUser = Long.MIN_VALUE;
+        private int rowStart;
+        private long skippedUsers;
+
+        Builder(int k, int maxItemsPerUser) {
+            if (k <= 0) {
+                throw new IllegalArgumentException("k must be positive");
+            }
+            this.k = k;
+            this.maxItemsPerUser = maxItemsPerUser;
+        }
+
+        void add(long userId, long movieId, int weight) {
+            if (weight <= 0) {
+                return;
+            }
+            if (weight > 2) {
+                throw new IllegalArgumentException("weight must be 1 or 2");
+            }
+            if (userId != currentUser) {
+                closeRow();
+                currentUser = userId;
+            }
+            if (entries == userItems.length) {
+                userItems = Arrays.copyOf(userItems, userItems.length * 2);
+            }
+            userItems[entries++] = ordinal(movieId) << 1 | (weight - 1);
+        }
+
+        ItemSimilarityModel build() {
+            closeRow();
+            int m = itemCount;
+            int[] itemStart = new int[m + 1];
+            for (int e = 0; e < entries; e++) {
+                itemStart[(userItems[e] >>> 1) + 1]++;
+            }
+            for (int i = 0; i < m; i++) {
+                itemStart[i + 1] += itemStart[i];
+            }
+            // transpose: per movie, user index << 1 | (weight - 1)
+            int[] itemUsers = new int[entries];
+            int[] fill = Arrays.copyOf(itemStart, m);
+            long[] norms = new long[m + m / 8 + 16];
+            for (int u = 0; u < users; u++) {
+                int end = u + 1 < users ? userStart[u + 1] : entries;
+                for (int e = userStart[u]; e < end; e++) {
+                    int ordinal = userItems[e] >>> 1;
+                    int weight = (userItems[e] & 1) + 1;
+                    itemUsers[fill[ordinal]++] = u << 1 | (userItems[e] & 1);
+                    norms[ordinal] += weight * weight;
+                }
+            }
+
+            ItemSimilarityModel model = new ItemSimilarityModel(k, ordinals,
+                    Arrays.copyOf(movieIds, norms.length), norms, m, skippedUsers);
+            ThreadLocal<int[]> accumulators = ThreadLocal.withInitial(() -> new int[m]);
+            ThreadLocal<int[]> touchedLists = ThreadLocal.withInitial(() -> new int[m]);
+            IntStream.range(0, m).parallel().forEach(i ->
+                    model.computeNeighbors(i, itemStart, itemUsers, userStart, users, userItems, entries,
+                            accumulators.get(), touchedLists.get()));
+            return model;
+        }
+
+        private int ordinal(long movieId) {
+            int ordinal = ordinals.get(movieId, -1);
+            if (ordinal < 0) {
+                if (itemCount == movieIds.length) {
+                    movieIds = Arrays.copyOf(movieIds, movieIds.length * 2);
+                }
+                ordinal = itemCount++;
+                movieIds[ordinal] = movieId;
+                ordinals.put(movieId, ordinal);
+            }
+            return ordinal;
+        }
+
+        private void closeRow() {
+            if (currentUser != Long.MIN_VALUE) {
+                if (entries - rowStart > maxItemsPerUser) {
+                    entries = rowStart;
+                    skippedUsers++;
+                } else if (entries > rowStart) {
+                    if (users == userStart.length) {
+                        userStart = Arrays.copyOf(userStart, users * 2);
+                    }
+                    userStart[users++] = rowStart;
+                }
+            }
+            rowStart = entries;
+        }
+    }
+
+    /**
+     * Accumulates movie i's weighted co-occurrences over its users' rows, then keeps the k best by cosine.
+     */
+    private void computeNeighbors(int i, int[] itemStart, int[] itemUsers, int[] userStart, int users,
+                                  int[] userItems, int entries, int[] accumulator, int[] touched) {
+        int touchedCount = 0;
+        for (int p = itemStart[i]; p < itemStart[i + 1]; p++) {
+            int u = itemUsers[p] >>> 1;
+            int weight = (itemUsers[p] & 1) + 1;
+            int end = u + 1 < users ? userStart[u + 1] : entries;
+            for (int q = userStart[u]; q < end; q++) {
+                int j = userItems[q] >>> 1;
+                if (j == i) {
+                    continue;
+                }
+                if (accumulator[j] == 0) {
+                    touched[touchedCount++] = j;
+                }
+                accumulator[j] += weight * ((userItems[q] & 1) + 1);
+            }
+        }
+        TopK top = new TopK(k);
+        for (int t = 0; t < touchedCount; t++) {
+            int j = touched[t];
+            top.offer(j, accumulator[j], similarity(i, j, accumulator[j]));
+            accumulator[j] = 0;
+        }
+        int base = i * k;
+        for (int slot = 0; slot < top.size; slot++) {
+            neighbors[base + slot] = top.items[slot];
+            counts[base + slot] = top.counts[slot];
+        }
+        sizes[i] = top.size;
+    }
+
+    /**
+     * Bounded min-heap on score keeping the best entries seen.
+     */
+    private static final class TopK {
+        private final int[] items;
+        private final int[] counts;
+        private final double[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            items = new int[capacity];
+            counts = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        void offer(int item, int count, double score) {
+            if (size < items.length) {
+                set(size, item, count, score);
+                siftUp(size++);
+            } else if (items.length > 0 && score > scores[0]) {
+                set(0, item, count, score);
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Heap positions ordered by descending score.
+         */
+        int[] descending() {
+            return IntStream.range(0, size).boxed()
+                    .sorted((a, b) -> Double.compare(scores[b], scores[a]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (scores[parent] <= scores[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && scores[left] < scores[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && scores[right] < scores[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(smallest, index);
+                index = smallest;
+            }
+        }
+
+        private void set(int index, int item, int count, double score) {
+            items[index] = item;
+            counts[index] = count;
+            scores[index] = score;
+        }
+
+        private void swap(int a, int b) {
+            int item = items[a];
+            int count = counts[a];
+            double score = scores[a];
+            set(a, items[b], counts[b], scores[b]);
+            set(b, item, count, score);
+        }
+    }
+
+    /**
+     * Open addressing ordinal to score accumulator sized for one request; excluded ordinals stay at NaN.
+     */
+    private static final class Scores {
+        private final int[] keys;
+        private final float[] values;
+        private final int mask;
+
+        Scores(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new float[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, -1);
+        }
+
+        void exclude(int key) {
+            values[slot(key)] = Float.NaN;
+        }
+
+        void add(int key, float value) {
+            int slot = slot(key);
+            values[slot] += value;
+        }
+
+        private int slot(int key) {
+            int slot = (key * 0x9E3779B9) & mask;
+            while (keys[slot] != -1 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package asot.me.rest.recommendation;
+
+/**
+ * A recommended movie and its score, the sum over the library of weight times cosine similarity.
+ */
+public record Recommendation(long movieId, double score) {
+}
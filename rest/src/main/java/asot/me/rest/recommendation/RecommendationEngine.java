@@ -0,0 +1,347 @@
+package asot.me.rest.recommendation;
+
+import asot.me.rest.dto.RecommendationStatsDto;
+import asot.me.rest.dto.UserMovieDto;
+import asot.me.rest.repository.RecommendationSourceRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Item-to-item recommendations from watched and favorite flags, served from an in-memory {@link ItemSimilarityModel}.
+ * <p>
+ * The model is built from user_movie on a background thread at startup, on a schedule and on request. In between,
+ * every committed library change is applied to it on a single updater thread: counts of stored pairs are
+ * adjusted in place, and pairs that grew without being stored are counted exactly in the database and
+ * offered to both neighbour lists. Changes made during a rebuild are journaled and replayed onto the new
+ * model. Updates racing a rebuild can be counted twice or not at all; the next rebuild corrects that.
+ */
+@Component
+@Log4j2
+public class RecommendationEngine {
+    private final RecommendationSourceRepository sourceRepository;
+    private final int neighboursPerMovie;
+    private final int maxItemsPerUser;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final AtomicLong incrementalUpdates = new AtomicLong();
+    private final ExecutorService updater = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "recommendation-updater");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ItemSimilarityModel model;
+    // changes made while a model is being built, replayed onto it
+    private List<LibraryChange> journal;
+    private volatile long lastBuildMs;
+
+    public RecommendationEngine(RecommendationSourceRepository sourceRepository,
+                                @Value("${recommendation.neighbours-per-movie:50}") int neighboursPerMovie,
+                                @Value("${recommendation.max-items-per-user:2000}") int maxItemsPerUser) {
+        this.sourceRepository = sourceRepository;
+        this.neighboursPerMovie = neighboursPerMovie;
+        this.maxItemsPerUser = maxItemsPerUser;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        rebuildInBackground();
+    }
+
+    @Scheduled(cron = "${recommendation.rebuild-cron:0 0 4 * * *}")
+    public void scheduledRebuild() {
+        rebuildInBackground();
+    }
+
+    /**
+     * Starts a rebuild on its own thread; a full build takes minutes and must not hold the scheduler or a request.
+     * @return false if a build is already running
+     */
+    public boolean rebuildInBackground() {
+        if (!building.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofPlatform().daemon().name("recommendation-build").start(this::rebuild);
+        return true;
+    }
+
+    private void rebuild() {
+        long started = System.currentTimeMillis();
+        try {
+            lock.writeLock().lock();
+            try {
+                journal = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            ItemSimilarityModel.Builder builder = new ItemSimilarityModel.Builder(neighboursPerMovie, maxItemsPerUser);
+            sourceRepository.forEachEntry(rs -> builder.add(rs.getLong("app_user_id"), rs.getLong("movie_id"),
+                    ItemSimilarityModel.weight(rs.getBoolean("watched"), rs.getBoolean("favorite"))));
+            ItemSimilarityModel built = builder.build();
+
+            List<LibraryChange> replay;
+            lock.writeLock().lock();
+            try {
+                model = built;
+                replay = journal;
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            replay.forEach(change -> updater.execute(() -> apply(change)));
+            lastBuildMs = System.currentTimeMillis() - started;
+            log.info("Recommendation model built: {} movies, {} neighbour entries, {} users skipped, {} changes replayed in {} ms",
+                    built.itemCount(), built.pairCount(), built.skippedUsers(), replay.size(), lastBuildMs);
+        } catch (Exception e) {
+            log.error("Recommendation build failed e:{}", e.getLocalizedMessage());
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            building.set(false);
+        }
+    }
+
+    /**
+     * Call inside the transaction that changed the user's library; the model sees the change once it commits.
+     *
+     * @param previous how the changed rows looked before, absent when the movie was not in the library
+     * @param changes  the rows as written, both flags false when removed
+     */
+    public void libraryChanged(Long appUserId, Map<Long, UserMovieDto> previous, List<UserMovieDto> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        // the library as of this write; the write holds the user's row lock, so nothing else interleaves.
+        // Reading stops past the cap, large imports write big libraries in many batches
+        Library library = loadLibrary(appUserId, maxItemsPerUser + 1, changes.size());
+        if (library.size > maxItemsPerUser) {
+            return;
+        }
+        long[] movieIds = new long[changes.size()];
+        int[] previousWeights = new int[changes.size()];
+        int[] weights = new int[changes.size()];
+        for (int index = 0; index < changes.size(); index++) {
+            UserMovieDto change = changes.get(index);
+            UserMovieDto before = previous.get(change.getMovieId());
+            movieIds[index] = change.getMovieId();
+            previousWeights[index] = before == null ? 0 : ItemSimilarityModel.weight(before.isWatched(), before.isFavorite());
+            weights[index] = ItemSimilarityModel.weight(change.isWatched(), change.isFavorite());
+            // roll the library back to its state before the batch
+            library.set(movieIds[index], previousWeights[index]);
+        }
+        LibraryChange change = new LibraryChange(library.ids(), library.weights(), movieIds, previousWeights, weights);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    updater.execute(() -> apply(change));
+                }
+            });
+        } else {
+            updater.execute(() -> apply(change));
+        }
+    }
+
+    /**
+     * Best first; empty until the first build has finished. Libraries over the cap are scored on their
+     * first maxItemsPerUser movies, and the movies past those are filtered out of the result.
+     */
+    public List<Recommendation> recommend(Long appUserId, int limit) {
+        Library library = loadLibrary(appUserId, maxItemsPerUser + 1, 0);
+        boolean capped = library.size > maxItemsPerUser;
+        if (capped) {
+            library.truncate(maxItemsPerUser);
+        }
+        List<Recommendation> recommendations;
+        lock.readLock().lock();
+        try {
+            if (model == null) {
+                return List.of();
+            }
+            recommendations = model.recommend(library.ids(), library.weights(), capped ? limit * 2 : limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!capped || recommendations.isEmpty()) {
+            return recommendations;
+        }
+        Set<Long> owned = sourceRepository.findInLibrary(appUserId,
+                recommendations.stream().map(Recommendation::movieId).toList());
+        return recommendations.stream()
+                .filter(recommendation -> !owned.contains(recommendation.movieId()))
+                .limit(limit)
+                .toList();
+    }
+
+    public RecommendationStatsDto getStats() {
+        lock.readLock().lock();
+        try {
+            return RecommendationStatsDto.builder()
+                    .ready(model != null)
+                    .building(building.get())
+                    .movies(model == null ? 0 : model.itemCount())
+                    .neighbourEntries(model == null ? 0 : model.pairCount())
+                    .neighboursPerMovie(neighboursPerMovie)
+                    .skippedUsers(model == null ? 0 : model.skippedUsers())
+                    .estimatedBytes(model == null ? 0 : model.estimatedBytes())
+                    .incrementalUpdates(incrementalUpdates.get())
+                    .lastBuildMs(lastBuildMs)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        updater.shutdown();
+        updater.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs on the updater thread, one batch at a time.
+     */
+    private void apply(LibraryChange change) {
+        ItemSimilarityModel target;
+        List<long[]> missing = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.add(change);
+            }
+            target = model;
+            if (target == null) {
+                return;
+            }
+            Library library = new Library(change.libraryIds(), change.libraryWeights(), change.movieIds().length);
+            for (int index = 0; index < change.movieIds().length; index++) {
+                long movieId = change.movieIds()[index];
+                long[] pending = target.applyChange(library.ids(), library.weights(), movieId,
+                        change.previousWeights()[index], change.weights()[index]);
+                if (pending.length > 0) {
+                    missing.add(prepend(movieId, pending));
+                }
+                library.set(movieId, change.weights()[index]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // exact counts for pairs that grew outside both neighbour lists, read without holding the lock
+        List<long[]> counted = new ArrayList<>();
+        for (long[] pairs : missing) {
+            List<Long> others = Arrays.stream(pairs, 1, pairs.length).boxed().toList();
+            sourceRepository.forEachPairCount(pairs[0], others, maxItemsPerUser, rs ->
+                    counted.add(new long[]{pairs[0], rs.getLong("movie_id"), rs.getLong("count")}));
+        }
+        lock.writeLock().lock();
+        try {
+            // a rebuild swapped the model in the meantime and replays this change itself
+            if (model == target) {
+                for (long[] pair : counted) {
+                    target.offerPair(pair[0], pair[1], (int) pair[2]);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        incrementalUpdates.incrementAndGet();
+    }
+
+    private Library loadLibrary(Long appUserId, int limit, int extra) {
+        Library library = new Library(new long[0], new int[0], 64 + extra);
+        sourceRepository.forEachUserEntry(appUserId, limit, rs -> library.append(rs.getLong("movie_id"),
+                ItemSimilarityModel.weight(rs.getBoolean("watched"), rs.getBoolean("favorite"))));
+        return library;
+    }
+
+    private static long[] prepend(long first, long[] rest) {
+        long[] result = new long[rest.length + 1];
+        result[0] = first;
+        System.arraycopy(rest, 0, result, 1, rest.length);
+        return result;
+    }
+
+    /**
+     * One committed batch: the user's library before it, and each changed movie's weight before and after.
+     */
+    private record LibraryChange(long[] libraryIds, int[] libraryWeights, long[] movieIds, int[] previousWeights, int[] weights) {
+    }
+
+    /**
+     * A user's movies and weights in growable parallel arrays; a weight of 0 means not in the library.
+     */
+    private static final class Library {
+        private long[] ids;
+        private int[] weights;
+        private int size;
+
+        Library(long[] ids, int[] weights, int extra) {
+            this.ids = Arrays.copyOf(ids, ids.length + extra);
+            this.weights = Arrays.copyOf(weights, ids.length + extra);
+            this.size = ids.length;
+        }
+
+        void set(long movieId, int weight) {
+            for (int index = 0; index < size; index++) {
+                if (ids[index] == movieId) {
+                    weights[index] = weight;
+                    return;
+                }
+            }
+            if (weight != 0) {
+                append(movieId, weight);
+            }
+        }
+
+        /**
+         * For movies known not to be in the library yet.
+         */
+        void append(long movieId, int weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2 + 1);
+                weights = Arrays.copyOf(weights, ids.length);
+            }
+            ids[size] = movieId;
+            weights[size++] = weight;
+        }
+
+        void truncate(int size) {
+            this.size = Math.min(this.size, size);
+        }
+
+        long[] ids() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        int[] weights() {
+            return Arrays.copyOf(weights, size);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dom.Actor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set-based actor writes for credits ingestion. Each method is a single statement
+ * regardless of how many actors it touches, using Postgres arrays and unnest.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ActorBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbcTemplate.query(
+                "SELECT id FROM actor WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                (rs, rowNum) -> rs.getLong(1)));
+    }
+
+    /**
+     * Inserts the actors, skipping ids that appeared concurrently.
+     */
+    public int insertActors(List<Actor> actors) {
+        if (actors.isEmpty()) {
+            return 0;
+        }
+        Object[] ids = actors.stream().map(Actor::getId).toArray();
+        Object[] firstnames = actors.stream().map(Actor::getFirstname).toArray();
+        Object[] lastnames = actors.stream().map(Actor::getLastname).toArray();
+        return jdbcTemplate.update(
+                "INSERT INTO actor (id, firstname, lastname) " +
+                        "SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::varchar[]) " +
+                        "ON CONFLICT (id) DO NOTHING",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+                    ps.setArray(2, ps.getConnection().createArrayOf("varchar", firstnames));
+                    ps.setArray(3, ps.getConnection().createArrayOf("varchar", lastnames));
+                });
+    }
+
+    /**
+     * Links actorIds[i] to movieIds[i] in movie_actor, skipping pairs that already exist.
+     */
+    public int linkActorsToMovies(List<Long> actorIds, List<Long> movieIds) {
+        if (actorIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(
+                "INSERT INTO movie_actor (actor_id, movie_id) " +
+                        "SELECT DISTINCT t.actor_id, t.movie_id FROM unnest(?::bigint[], ?::bigint[]) AS t(actor_id, movie_id) " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM movie_actor ma WHERE ma.actor_id = t.actor_id AND ma.movie_id = t.movie_id)",
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", actorIds.toArray()));
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", movieIds.toArray()));
+                });
+    }
+}
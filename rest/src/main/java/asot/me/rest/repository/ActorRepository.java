@@ -1,18 +1,48 @@
 package asot.me.rest.repository;
 
 import asot.me.rest.dom.Actor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ActorRepository extends JpaRepository<Actor, Long> {
-    Page<Actor> findByMoviesId(Long movieId, Pageable pageable);
+public interface ActorRepository extends JpaRepository<Actor, Long>, JpaSpecificationExecutor<Actor> {
+    /**
+     * Substring or typo tolerant match on "firstname lastname", best word similarity first.
+     */
+    @Query(value = "SELECT * FROM actor " +
+            "WHERE (coalesce(firstname, '') || ' ' || coalesce(lastname, '')) ILIKE '%' || :q || '%' " +
+            "OR :q <% (coalesce(firstname, '') || ' ' || coalesce(lastname, '')) " +
+            "ORDER BY word_similarity(:q, coalesce(firstname, '') || ' ' || coalesce(lastname, '')) DESC, id",
+            nativeQuery = true)
+    Slice<Actor> searchByName(@Param("q") String q, Pageable pageable);
 
-    Page<Actor> findByFirstnameContainingIgnoreCaseOrLastnameContainingIgnoreCase(String firstname, String lastname, Pageable pageable);
+    @Query(value = "SELECT COUNT(*) FROM actor " +
+            "WHERE (coalesce(firstname, '') || ' ' || coalesce(lastname, '')) ILIKE '%' || :q || '%' " +
+            "OR :q <% (coalesce(firstname, '') || ' ' || coalesce(lastname, ''))",
+            nativeQuery = true)
+    long countNameSearch(@Param("q") String q);
+
+    /**
+     * Movie counts for a page of actors in one grouped query; actors without movies are absent.
+     */
+    @Query(value = "SELECT actor_id AS actorId, COUNT(*) AS movieCount FROM movie_actor " +
+            "WHERE actor_id IN (:actorIds) GROUP BY actor_id",
+            nativeQuery = true)
+    List<ActorMovieCount> countMoviesByActorIds(@Param("actorIds") Collection<Long> actorIds);
+
+    interface ActorMovieCount {
+        Long getActorId();
+        Long getMovieCount();
+    }
 
     Optional<Actor> findByFirstnameIsIgnoreCaseAndLastnameIsIgnoreCase(String firstname, String lastname);
 }
\ No newline at end of file
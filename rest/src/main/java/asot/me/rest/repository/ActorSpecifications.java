@@ -0,0 +1,30 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dom.Actor;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Criteria versions of the /actors filters, for queries Spring Data builds itself (keyset scrolling).
+ */
+public final class ActorSpecifications {
+
+    private ActorSpecifications() {
+    }
+
+    public static Specification<Actor> nameContains(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        String pattern = "%" + name.toLowerCase() + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("firstname")), pattern),
+                cb.like(cb.lower(root.get("lastname")), pattern));
+    }
+
+    public static Specification<Actor> inMovie(Long movieId) {
+        if (movieId == null) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.join("movies").get("id"), movieId);
+    }
+}
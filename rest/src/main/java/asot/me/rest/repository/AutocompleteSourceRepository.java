@@ -0,0 +1,34 @@
+package asot.me.rest.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+/**
+ * Streams the autocomplete labels in id order without loading entities. The Postgres driver
+ * only uses a cursor (fetch size) inside a transaction, hence the read-only transactions.
+ */
+@Repository
+public class AutocompleteSourceRepository {
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AutocompleteSourceRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    @Transactional(readOnly = true)
+    public void forEachMovieTitle(RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT id, title AS label FROM movie WHERE title IS NOT NULL ORDER BY id", handler);
+    }
+
+    @Transactional(readOnly = true)
+    public void forEachActorName(RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT id, concat_ws(' ', firstname, lastname) AS label FROM actor ORDER BY id", handler);
+    }
+}
@@ -0,0 +1,79 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dto.SearchHitDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Full-text search over the generated search_vector columns (db/schema/019) of movie, tv_show and actor.
+ * One statement: the per-table GIN matches are unioned, ranked, counted with a window function,
+ * and only the rows of the requested page get a ts_headline. The label is HTML-escaped before it is highlighted,
+ * so the only markup in the highlight is the {@code <b>} around matched words.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CatalogSearchRepository {
+    public static final String MOVIE = "movie";
+    public static final String TV_SHOW = "tvshow";
+    public static final String ACTOR = "actor";
+
+    private static final String MOVIE_BRANCH =
+            "SELECT 'movie' AS type, m.id, m.title AS label, m.year, ts_rank(m.search_vector, q.title_query) AS rank, " +
+            "'english'::regconfig AS config, q.title_query AS query FROM movie m, q WHERE m.search_vector @@ q.title_query";
+    private static final String TV_SHOW_BRANCH =
+            "SELECT 'tvshow', t.id, t.title, t.year, ts_rank(t.search_vector, q.title_query), " +
+            "'english'::regconfig, q.title_query FROM tv_show t, q WHERE t.search_vector @@ q.title_query";
+    private static final String ACTOR_BRANCH =
+            "SELECT 'actor', a.id, coalesce(a.firstname, '') || ' ' || coalesce(a.lastname, ''), NULL::bigint, " +
+            "ts_rank(a.search_vector, q.name_query), 'simple'::regconfig, q.name_query FROM actor a, q WHERE a.search_vector @@ q.name_query";
+
+    private static final String ESCAPED_LABEL =
+            "replace(replace(replace(p.label, '&', '&amp;'), '<', '&lt;'), '>', '&gt;')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Page<SearchHitDto> search(String text, Set<String> types, Pageable pageable) {
+        List<String> branches = new ArrayList<>();
+        if (types.contains(MOVIE)) {
+            branches.add(MOVIE_BRANCH);
+        }
+        if (types.contains(TV_SHOW)) {
+            branches.add(TV_SHOW_BRANCH);
+        }
+        if (types.contains(ACTOR)) {
+            branches.add(ACTOR_BRANCH);
+        }
+        // the count row is always there, so the total survives a page past the end
+        String sql = "WITH q AS (SELECT websearch_to_tsquery('english', ?) AS title_query, websearch_to_tsquery('simple', ?) AS name_query), " +
+                "hits AS (" + String.join(" UNION ALL ", branches) + ") " +
+                "SELECT c.total, p.type, p.id, p.label, p.year, p.rank, ts_headline(p.config, " + ESCAPED_LABEL + ", p.query) AS highlight " +
+                "FROM (SELECT count(*) AS total FROM hits) c " +
+                "LEFT JOIN (SELECT * FROM hits ORDER BY rank DESC, type, id LIMIT ? OFFSET ?) p ON true " +
+                "ORDER BY p.rank DESC, p.type, p.id";
+
+        List<SearchHitDto> hits = new ArrayList<>();
+        long[] total = {0};
+        jdbcTemplate.query(sql, rs -> {
+            total[0] = rs.getLong("total");
+            if (rs.getString("type") != null) {
+                hits.add(SearchHitDto.builder()
+                        .type(rs.getString("type"))
+                        .id(rs.getLong("id"))
+                        .label(rs.getString("label"))
+                        .year(rs.getObject("year", Long.class))
+                        .rank(rs.getDouble("rank"))
+                        .highlight(rs.getString("highlight"))
+                        .build());
+            }
+        }, text, text, pageable.getPageSize(), pageable.getOffset());
+        return new PageImpl<>(hits, pageable, total[0]);
+    }
+}
@@ -0,0 +1,85 @@
+package asot.me.rest.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row counts from Postgres statistics instead of a scan: pg_class.reltuples for a whole
+ * table and the planner's row estimate (EXPLAIN) for a filtered one. Both are approximate.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CountEstimateRepository {
+    private static final String FULL_NAME = "(coalesce(firstname, '') || ' ' || coalesce(lastname, ''))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public long estimateMovies(String titleLike, String genreIds, boolean matchAllGenres, Long actorId) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (titleLike != null && !titleLike.isEmpty()) {
+            conditions.add("title ILIKE ?");
+            args.add("%" + titleLike + "%");
+        }
+        if (genreIds != null) {
+            conditions.add(matchAllGenres ? "genre_ids @> CAST(? AS bigint[])" : "genre_ids && CAST(? AS bigint[])");
+            args.add(genreIds);
+        }
+        if (actorId != null) {
+            conditions.add("EXISTS (SELECT 1 FROM movie_actor ma WHERE ma.movie_id = movie.id AND ma.actor_id = ?)");
+            args.add(actorId);
+        }
+        return estimate("movie", conditions, args);
+    }
+
+    public long estimateMovieTitleSearch(String q) {
+        return estimate("movie", List.of("(title ILIKE '%' || ? || '%' OR ? <% title)"), List.of(q, q));
+    }
+
+    public long estimateActors(String name, Long movieId) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (name != null && !name.isEmpty()) {
+            conditions.add("(firstname ILIKE ? OR lastname ILIKE ?)");
+            args.add("%" + name + "%");
+            args.add("%" + name + "%");
+        }
+        if (movieId != null) {
+            conditions.add("EXISTS (SELECT 1 FROM movie_actor ma WHERE ma.actor_id = actor.id AND ma.movie_id = ?)");
+            args.add(movieId);
+        }
+        return estimate("actor", conditions, args);
+    }
+
+    public long estimateActorNameSearch(String q) {
+        return estimate("actor", List.of("(" + FULL_NAME + " ILIKE '%' || ? || '%' OR ? <% " + FULL_NAME + ")"), List.of(q, q));
+    }
+
+    public long estimateTable(String table) {
+        Long rows = jdbcTemplate.queryForObject(
+                "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)", Long.class, table);
+        // -1 until the table has been vacuumed or analyzed once
+        return rows == null ? 0 : Math.max(0, rows);
+    }
+
+    private long estimate(String table, List<String> conditions, List<Object> args) {
+        if (conditions.isEmpty()) {
+            return estimateTable(table);
+        }
+        String sql = "EXPLAIN (FORMAT JSON) SELECT 1 FROM " + table + " WHERE " + String.join(" AND ", conditions);
+        String plan = jdbcTemplate.queryForObject(sql, String.class, args.toArray());
+        try {
+            JsonNode root = objectMapper.readTree(plan);
+            return root.get(0).get("Plan").get("Plan Rows").asLong();
+        } catch (Exception e) {
+            throw new RuntimeException("Could not read query plan", e);
+        }
+    }
+}
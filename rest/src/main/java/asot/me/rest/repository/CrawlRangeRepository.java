@@ -0,0 +1,28 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dom.CrawlRange;
+import asot.me.rest.dom.CrawlRangeStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CrawlRangeRepository extends JpaRepository<CrawlRange, Long> {
+    Optional<CrawlRange> findFirstByStatusOrderByStartIdAsc(CrawlRangeStatus status);
+
+    long countByStatus(CrawlRangeStatus status);
+
+    @Query("SELECT COALESCE(SUM(r.endId - r.startId), 0) FROM CrawlRange r WHERE r.status = :status")
+    long sumIdsByStatus(@Param("status") CrawlRangeStatus status);
+
+    @Query("SELECT COALESCE(SUM(r.failedIds), 0) FROM CrawlRange r WHERE r.status = :status")
+    long sumFailedIdsByStatus(@Param("status") CrawlRangeStatus status);
+
+    @Modifying
+    @Query("UPDATE CrawlRange r SET r.status = :to WHERE r.status = :from")
+    int updateStatus(@Param("from") CrawlRangeStatus from, @Param("to") CrawlRangeStatus to);
+}
@@ -2,13 +2,14 @@ package asot.me.rest.repository;
 
 import asot.me.rest.dom.Genre;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface GenreRepository extends JpaRepository<Genre, Long> {
+public interface GenreRepository extends JpaRepository<Genre, Long>, JpaSpecificationExecutor<Genre> {
     List<Genre> findByNameIn(List<String> names);
     Optional<Genre> findByName(String name);
 }
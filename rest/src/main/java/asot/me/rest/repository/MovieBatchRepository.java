@@ -0,0 +1,50 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dom.Movie;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Set-based movie writes for TMDB ingestion: one statement per batch, using Postgres arrays and unnest.
+ * The ids are TMDB's own, so JPA's saveAll would merge (one SELECT per movie) instead of inserting.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MovieBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the movies as queried; a movie that already exists gets the fetched title, year and genres.
+     * A title taken by another movie fails the whole statement.
+     */
+    public int upsertQueriedMovies(List<Movie> movies) {
+        if (movies.isEmpty()) {
+            return 0;
+        }
+        Object[] ids = movies.stream().map(Movie::getId).toArray();
+        Object[] titles = movies.stream().map(Movie::getTitle).toArray();
+        Object[] years = movies.stream().map(Movie::getYear).toArray();
+        // genre id lists travel as array literals, a bigint[][] cannot hold lists of different lengths
+        Object[] genreIds = movies.stream()
+                .map(movie -> movie.getGenreIds() == null ? "{}" : movie.getGenreIds().stream()
+                        .map(String::valueOf).collect(Collectors.joining(",", "{", "}")))
+                .toArray();
+        return jdbcTemplate.update("""
+                        INSERT INTO movie (id, title, year, genre_ids, queried)
+                        SELECT t.id, t.title, t.year, t.genre_ids::bigint[], true
+                        FROM unnest(?::bigint[], ?::text[], ?::bigint[], ?::text[]) AS t(id, title, year, genre_ids)
+                        ON CONFLICT (id) DO UPDATE
+                        SET title = EXCLUDED.title, year = EXCLUDED.year, genre_ids = EXCLUDED.genre_ids, queried = true
+                        """,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+                    ps.setArray(2, ps.getConnection().createArrayOf("text", titles));
+                    ps.setArray(3, ps.getConnection().createArrayOf("bigint", years));
+                    ps.setArray(4, ps.getConnection().createArrayOf("text", genreIds));
+                });
+    }
+}
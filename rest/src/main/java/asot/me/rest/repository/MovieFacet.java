@@ -0,0 +1,28 @@
+package asot.me.rest.repository;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Facet counts the movie search can return next to a page of results.
+ */
+public enum MovieFacet {
+    GENRE,
+    DECADE;
+
+    public static Set<MovieFacet> parse(List<String> values) {
+        Set<MovieFacet> facets = EnumSet.noneOf(MovieFacet.class);
+        if (values == null) {
+            return facets;
+        }
+        for (String value : values) {
+            try {
+                facets.add(valueOf(value.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("facets must be any of genre, decade");
+            }
+        }
+        return facets;
+    }
+}
@@ -1,38 +1,34 @@
 package asot.me.rest.repository;
 
 import asot.me.rest.dom.Movie;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MovieRepository extends JpaRepository<Movie, Long> {
-    Page<Movie> findByTitleContainingIgnoreCase(String title, Pageable pageable);
-
+public interface MovieRepository extends JpaRepository<Movie, Long>, JpaSpecificationExecutor<Movie> {
     Optional<Movie> findByTitleIs(String title);
 
-    @Query(value = "SELECT * FROM movie WHERE :genreId = ANY(genre_ids::bigint[])",
+    /**
+     * Substring or typo tolerant title match, best word similarity first. Both conditions use the trigram index.
+     */
+    @Query(value = "SELECT * FROM movie " +
+            "WHERE title ILIKE '%' || :q || '%' OR :q <% title " +
+            "ORDER BY word_similarity(:q, title) DESC, id",
             nativeQuery = true)
-    Page<Movie> findAllByGenreIdsContaining(@Param("genreId") Long genreId, Pageable pageable);
-
-    Page<Movie> findAllByActors_Id(Long actorId, Pageable pageable);
+    Slice<Movie> searchByTitle(@Param("q") String q, Pageable pageable);
 
-    @Query(value = "SELECT m.* FROM movie m " +
-            "LEFT JOIN movie_actor am ON m.id = am.movie_id " +
-            "WHERE (:genreId IS NULL OR :genreId = ANY(m.genre_ids)) " +
-            "AND (:actorId IS NULL OR am.actor_id = :actorId)",
-            countQuery = "SELECT COUNT(DISTINCT m.id) FROM movie m " +
-                    "LEFT JOIN movie_actor am ON m.id = am.movie_id " +
-                    "WHERE (:genreId IS NULL OR :genreId = ANY(m.genre_ids)) " +
-                    "AND (:actorId IS NULL OR am.actor_id = :actorId)",
+    @Query(value = "SELECT COUNT(*) FROM movie WHERE title ILIKE '%' || :q || '%' OR :q <% title",
             nativeQuery = true)
-    Page<Movie> findByGenreIdAndActorId(
-            @Param("genreId") Long genreId,
-            @Param("actorId") Long actorId,
-            Pageable pageable);
+    long countTitleSearch(@Param("q") String q);
+
+    @Query("SELECT m.id FROM Movie m WHERE m.queried = true")
+    List<Long> findQueriedIds();
 }
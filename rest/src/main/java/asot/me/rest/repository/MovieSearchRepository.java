@@ -0,0 +1,141 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dto.MovieSearchCriteria;
+import asot.me.rest.dto.MovieSummaryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Faceted movie search. The page is its own ORDER BY/LIMIT query, so it walks an index on the sort column
+ * ((title, id), (year, id) or the primary key) and stops after the page; the total and each facet are
+ * separate aggregates over the filtered rows. Actor filters are semi-joins, so a movie is never repeated.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MovieSearchRepository {
+    private static final Map<String, String> SORT_COLUMNS = Map.of("id", "id", "title", "title", "year", "year");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Whether no filter is set, i.e. every aggregate would cover the whole movie table.
+     */
+    public static boolean isUnfiltered(MovieSearchCriteria criteria) {
+        return where(criteria, new ArrayList<>()).isEmpty();
+    }
+
+    public List<MovieSummaryDto> findPage(MovieSearchCriteria criteria, Pageable pageable) {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT m.id, m.title, m.year, m.genre_ids, m.queried FROM movie m" + where(criteria, args)
+                + " ORDER BY " + orderBy(pageable.getSort()) + " LIMIT ? OFFSET ?";
+        args.add(pageable.getPageSize());
+        args.add(pageable.getOffset());
+        return jdbcTemplate.query(sql, (rs, rowNum) -> MovieSummaryDto.builder()
+                .id(rs.getLong("id"))
+                .title(rs.getString("title"))
+                .year(rs.getObject("year", Long.class))
+                .genreIds(toList(rs.getArray("genre_ids")))
+                .queried(rs.getBoolean("queried"))
+                .build(), args.toArray());
+    }
+
+    public long count(MovieSearchCriteria criteria) {
+        List<Object> args = new ArrayList<>();
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM movie m" + where(criteria, args), Long.class, args.toArray());
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Matching movies per facet value: genre id, or first year of the decade (movies without a year are left out).
+     */
+    public Map<Long, Long> facetCounts(MovieSearchCriteria criteria, MovieFacet facet) {
+        List<Object> args = new ArrayList<>();
+        String where = where(criteria, args);
+        String sql = switch (facet) {
+            case GENRE -> "SELECT g.genre_id AS value, count(*) AS n FROM movie m CROSS JOIN unnest(m.genre_ids) AS g(genre_id)"
+                    + where + " GROUP BY g.genre_id ORDER BY n DESC, value";
+            case DECADE -> "SELECT m.year / 10 * 10 AS value, count(*) AS n FROM movie m"
+                    + (where.isEmpty() ? " WHERE" : where + " AND") + " m.year IS NOT NULL GROUP BY 1 ORDER BY value";
+        };
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> counts.put(rs.getLong("value"), rs.getLong("n")), args.toArray());
+        return counts;
+    }
+
+    private static String where(MovieSearchCriteria criteria, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (criteria.getTitleLike() != null && !criteria.getTitleLike().isEmpty()) {
+            conditions.add("m.title ILIKE ?");
+            args.add("%" + criteria.getTitleLike() + "%");
+        }
+        if (criteria.getGenreIds() != null && !criteria.getGenreIds().isEmpty()) {
+            conditions.add(criteria.isMatchAllGenres()
+                    ? "m.genre_ids @> CAST(? AS bigint[])"
+                    : "m.genre_ids && CAST(? AS bigint[])");
+            args.add(toArrayLiteral(criteria.getGenreIds()));
+        }
+        if (criteria.getActorIds() != null && !criteria.getActorIds().isEmpty()) {
+            if (criteria.isMatchAllActors()) {
+                conditions.add("m.id IN (SELECT ma.movie_id FROM movie_actor ma WHERE ma.actor_id = ANY(CAST(? AS bigint[]))"
+                        + " GROUP BY ma.movie_id HAVING count(DISTINCT ma.actor_id) = ?)");
+                args.add(toArrayLiteral(criteria.getActorIds()));
+                args.add(criteria.getActorIds().stream().distinct().count());
+            } else {
+                conditions.add("m.id IN (SELECT ma.movie_id FROM movie_actor ma WHERE ma.actor_id = ANY(CAST(? AS bigint[])))");
+                args.add(toArrayLiteral(criteria.getActorIds()));
+            }
+        }
+        if (criteria.getYearFrom() != null) {
+            conditions.add("m.year >= ?");
+            args.add(criteria.getYearFrom());
+        }
+        if (criteria.getYearTo() != null) {
+            conditions.add("m.year <= ?");
+            args.add(criteria.getYearTo());
+        }
+        if (criteria.getQueried() != null) {
+            conditions.add("m.queried = ?");
+            args.add(criteria.getQueried());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    /**
+     * Whitelisted sort column, then id in the same direction as the tie-breaker, so pages do not overlap and
+     * the order matches a forward or backward scan of the (column, id) index. Nulls sort as Postgres orders
+     * them by default (last ascending, first descending), like the other list endpoints.
+     */
+    private static String orderBy(Sort sort) {
+        Sort.Order order = sort.stream().findFirst().orElse(Sort.Order.asc("id"));
+        String column = SORT_COLUMNS.get(order.getProperty());
+        if (column == null) {
+            throw new IllegalArgumentException("_sort must be one of " + String.join(", ", SORT_COLUMNS.keySet()));
+        }
+        String direction = order.isAscending() ? " ASC" : " DESC";
+        return column.equals("id") ? "m.id" + direction : "m." + column + direction + ", m.id" + direction;
+    }
+
+    private static String toArrayLiteral(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static List<Long> toList(Array array) throws SQLException {
+        if (array == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList((Long[]) array.getArray()));
+    }
+}
@@ -0,0 +1,53 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dom.Actor;
+import asot.me.rest.dom.Movie;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Criteria versions of the /movies filters, for queries Spring Data builds itself (keyset scrolling).
+ */
+public final class MovieSpecifications {
+
+    private MovieSpecifications() {
+    }
+
+    public static Specification<Movie> titleContains(String titleLike) {
+        if (titleLike == null || titleLike.isEmpty()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.like(cb.lower(root.get("title")), "%" + titleLike.toLowerCase() + "%");
+    }
+
+    /**
+     * genre_ids && ids, or genre_ids @> ids when matchAll.
+     */
+    public static Specification<Movie> hasGenres(List<Long> genreIds, boolean matchAll) {
+        if (genreIds == null || genreIds.isEmpty()) {
+            return null;
+        }
+        String literal = genreIds.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+        String function = matchAll ? "bigint_array_contains" : "bigint_array_overlaps";
+        return (root, query, cb) -> cb.isTrue(cb.function(function, Boolean.class, root.get("genreIds"), cb.literal(literal)));
+    }
+
+    public static Specification<Movie> hasActor(Long actorId) {
+        if (actorId == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            Subquery<Long> cast = query.subquery(Long.class);
+            Root<Actor> actor = cast.from(Actor.class);
+            Join<Actor, Movie> movie = actor.join("movies");
+            cast.select(actor.get("id"))
+                    .where(cb.equal(actor.get("id"), actorId), cb.equal(movie.get("id"), root.get("id")));
+            return cb.exists(cast);
+        };
+    }
+}
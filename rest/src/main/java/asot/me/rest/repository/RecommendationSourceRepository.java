@@ -0,0 +1,79 @@
+package asot.me.rest.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads user libraries for the recommendation model without loading entities. The Postgres driver
+ * only uses a cursor (fetch size) inside a transaction, hence the read-only transaction on the full scan.
+ */
+@Repository
+public class RecommendationSourceRepository {
+    private static final int FETCH_SIZE = 10_000;
+    // same weights as ItemSimilarityModel.weight: favorite 2, watched 1
+    private static final String WEIGHT = "CASE WHEN %1$s.favorite THEN 2 WHEN %1$s.watched THEN 1 ELSE 0 END";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RecommendationSourceRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Every library entry grouped by user, in the order of the user_movie library index.
+     */
+    @Transactional(readOnly = true)
+    public void forEachEntry(RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT app_user_id, movie_id, watched, favorite FROM user_movie ORDER BY app_user_id, movie_id", handler);
+    }
+
+    /**
+     * At most limit of the user's entries; callers capping library size ask for one more than the cap.
+     */
+    public void forEachUserEntry(Long appUserId, int limit, RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT movie_id, watched, favorite FROM user_movie WHERE app_user_id = ? LIMIT ?", handler, appUserId, limit);
+    }
+
+    /**
+     * Which of the movies are in the user's library.
+     */
+    public Set<Long> findInLibrary(Long appUserId, Collection<Long> movieIds) {
+        Set<Long> found = new HashSet<>();
+        jdbcTemplate.query("SELECT movie_id FROM user_movie WHERE app_user_id = ? AND movie_id = ANY(?)",
+                ps -> {
+                    ps.setLong(1, appUserId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", movieIds.toArray()));
+                },
+                (RowCallbackHandler) rs -> found.add(rs.getLong("movie_id")));
+        return found;
+    }
+
+    /**
+     * Weighted co-occurrence of movieId with each of the others, summed over the users the model is built from:
+     * those with at most maxItemsPerUser watched or favorite movies. Pairs nobody shares are absent.
+     */
+    public void forEachPairCount(long movieId, Collection<Long> others, int maxItemsPerUser, RowCallbackHandler handler) {
+        // the size check reads at most maxItemsPerUser + 1 rows of each user's library
+        jdbcTemplate.query("SELECT b.movie_id, sum((" + WEIGHT.formatted("a") + ") * (" + WEIGHT.formatted("b") + ")) AS count"
+                        + " FROM user_movie a JOIN user_movie b ON b.app_user_id = a.app_user_id"
+                        + " WHERE a.movie_id = ? AND b.movie_id = ANY(?)"
+                        + " AND (SELECT count(*) FROM (SELECT 1 FROM user_movie c WHERE c.app_user_id = a.app_user_id"
+                        + " AND (c.watched OR c.favorite) LIMIT ?) l) <= ?"
+                        + " GROUP BY b.movie_id",
+                ps -> {
+                    ps.setLong(1, movieId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", others.toArray()));
+                    ps.setInt(3, maxItemsPerUser + 1);
+                    ps.setInt(4, maxItemsPerUser);
+                },
+                handler);
+    }
+}
@@ -0,0 +1,45 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dom.RequestHistory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class RequestTrackingBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the history rows as one JDBC batch and adds the per-day totals with an atomic upsert,
+     * so concurrent flushes (or other instances) never lose increments.
+     */
+    @Transactional
+    public void saveBatch(List<RequestHistory> history, Map<String, Long> countsByDate) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO request_history (execution_date_time, url, query_params, result) VALUES (?, ?, ?, ?)",
+                history,
+                history.size(),
+                (ps, row) -> {
+                    ps.setTimestamp(1, Timestamp.valueOf(row.getExecutionDateTime()));
+                    ps.setString(2, row.getUrl());
+                    ps.setString(3, row.getQueryParams());
+                    ps.setBoolean(4, row.isResult());
+                });
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO daily_request_count (date, total_requests) VALUES (?, ?) " +
+                        "ON CONFLICT (date) DO UPDATE SET total_requests = daily_request_count.total_requests + EXCLUDED.total_requests",
+                countsByDate.entrySet(),
+                countsByDate.size(),
+                (ps, entry) -> {
+                    ps.setString(1, entry.getKey());
+                    ps.setLong(2, entry.getValue());
+                });
+    }
+}
@@ -0,0 +1,23 @@
+package asot.me.rest.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Session knobs for pg_trgm searches. Settings are transaction local, so callers
+ * must run them in the same transaction as the search they tune.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TrigramSettingsRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Lowers or raises the cut-off used by the indexed {@code <%} operator (pg_trgm default 0.6).
+     */
+    public void setWordSimilarityThreshold(double threshold) {
+        jdbcTemplate.queryForObject("SELECT set_config('pg_trgm.word_similarity_threshold', ?, true)",
+                String.class, String.valueOf(threshold));
+    }
+}
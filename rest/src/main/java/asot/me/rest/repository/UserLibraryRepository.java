@@ -0,0 +1,148 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dto.UserLibraryCriteria;
+import asot.me.rest.dto.UserMovieDto;
+import asot.me.rest.dto.UserMovieMovieDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset pages of one user's library. A page seeks past the previous page's last key, either in
+ * the user's range of user_movie (movie id order) or in a movie expression index (title, year),
+ * so its cost does not grow with the page number. Nullable sort columns are coalesced so every
+ * row has a key to seek past.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserLibraryRepository {
+    public static final String MOVIE_ID = "movieId";
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            MOVIE_ID, "um.movie_id",
+            "title", "coalesce(m.title, '')",
+            "year", "coalesce(m.year, 0)");
+    private static final Map<String, Class<?>> KEY_TYPES = Map.of(
+            MOVIE_ID, Long.class,
+            "title", String.class,
+            "year", Long.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The sort of a library page; movie id breaks ties so every position is unique.
+     */
+    public static Sort sort(String property, String order) {
+        if (!SORT_COLUMNS.containsKey(property)) {
+            throw new IllegalArgumentException("_sort must be one of " + String.join(", ", SORT_COLUMNS.keySet()));
+        }
+        Sort.Direction direction = order.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return property.equals(MOVIE_ID)
+                ? Sort.by(direction, MOVIE_ID)
+                : Sort.by(direction, property).and(Sort.by(direction, MOVIE_ID));
+    }
+
+    public static Class<?> keyType(String property) {
+        return KEY_TYPES.get(property);
+    }
+
+    public Window<UserMovieDto> findPage(Long appUserId, UserLibraryCriteria criteria, Sort sort, int size, KeysetScrollPosition position) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        conditions.add("um.app_user_id = ?");
+        args.add(appUserId);
+        addConditions(criteria, conditions, args);
+
+        List<String> columns = new ArrayList<>();
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            // as a tie-breaker the movie's own id, so the seek matches the movie expression indexes
+            String column = columns.isEmpty() ? SORT_COLUMNS.get(order.getProperty()) : "m.id";
+            columns.add(column);
+            orders.add(column + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        if (!position.isInitial()) {
+            // all orders share one direction, so a row comparison is the seek predicate
+            String operator = sort.iterator().next().isAscending() ? ">" : "<";
+            conditions.add("(" + String.join(", ", columns) + ") " + operator + " ("
+                    + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")");
+            for (Sort.Order order : sort) {
+                args.add(position.getKeys().get(order.getProperty()));
+            }
+        }
+        args.add(size + 1);
+
+        String sql = "SELECT um.movie_id, um.watched, um.favorite, m.title, m.year"
+                + " FROM user_movie um JOIN movie m ON m.id = um.movie_id"
+                + " WHERE " + String.join(" AND ", conditions)
+                + " ORDER BY " + String.join(", ", orders)
+                + " LIMIT ?";
+        List<UserMovieDto> rows = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            long movieId = rs.getLong("movie_id");
+            return UserMovieDto.builder()
+                    .appUserId(appUserId)
+                    .movieId(movieId)
+                    .watched(rs.getBoolean("watched"))
+                    .favorite(rs.getBoolean("favorite"))
+                    .movie(UserMovieMovieDto.builder()
+                            .id(movieId)
+                            .title(rs.getString("title"))
+                            .year(rs.getObject("year", Long.class))
+                            .build())
+                    .build();
+        }, args.toArray());
+
+        boolean hasNext = rows.size() > size;
+        List<UserMovieDto> page = hasNext ? rows.subList(0, size) : rows;
+        return Window.from(page, index -> ScrollPosition.forward(keys(page.get(index), sort)), hasNext);
+    }
+
+    private static void addConditions(UserLibraryCriteria criteria, List<String> conditions, List<Object> args) {
+        if (criteria.getWatched() != null) {
+            conditions.add("um.watched = ?");
+            args.add(criteria.getWatched());
+        }
+        if (criteria.getFavorite() != null) {
+            conditions.add("um.favorite = ?");
+            args.add(criteria.getFavorite());
+        }
+        if (criteria.getGenreIds() != null && !criteria.getGenreIds().isEmpty()) {
+            conditions.add(criteria.isMatchAllGenres()
+                    ? "m.genre_ids @> CAST(? AS bigint[])"
+                    : "m.genre_ids && CAST(? AS bigint[])");
+            args.add(criteria.getGenreIds().stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}")));
+        }
+        if (criteria.getYearFrom() != null) {
+            conditions.add("m.year >= ?");
+            args.add(criteria.getYearFrom());
+        }
+        if (criteria.getYearTo() != null) {
+            conditions.add("m.year <= ?");
+            args.add(criteria.getYearTo());
+        }
+    }
+
+    /**
+     * The row's sort key, with the same coalescing as the query.
+     */
+    private static Map<String, Object> keys(UserMovieDto row, Sort sort) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Sort.Order order : sort) {
+            keys.put(order.getProperty(), switch (order.getProperty()) {
+                case "title" -> row.getMovie().getTitle() == null ? "" : row.getMovie().getTitle();
+                case "year" -> row.getMovie().getYear() == null ? 0L : row.getMovie().getYear();
+                default -> row.getMovieId();
+            });
+        }
+        return keys;
+    }
+}
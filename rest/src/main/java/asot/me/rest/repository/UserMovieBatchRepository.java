@@ -0,0 +1,127 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dto.UserMovieDeltaDto;
+import asot.me.rest.dto.UserMovieDto;
+import asot.me.rest.dto.UserMovieMovieDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based writes to a user's library. A whole batch of watched/favorite changes is applied
+ * by one statement: rows with a flag set are upserted, rows with none are deleted, and the
+ * user's library version is bumped once if anything actually changed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserMovieBatchRepository {
+    private static final String APPLY_CHANGES = """
+            WITH input AS (
+                SELECT * FROM unnest(?::bigint[], ?::boolean[], ?::boolean[]) AS t(movie_id, watched, favorite)
+            ), previous AS (
+                SELECT um.movie_id, um.watched, um.favorite FROM user_movie um JOIN input i ON i.movie_id = um.movie_id
+                WHERE um.app_user_id = ?
+            ), upserted AS (
+                INSERT INTO user_movie (app_user_id, movie_id, watched, favorite)
+                SELECT ?, i.movie_id, i.watched, i.favorite FROM input i WHERE i.watched OR i.favorite
+                ON CONFLICT (app_user_id, movie_id) DO UPDATE SET watched = excluded.watched, favorite = excluded.favorite
+                WHERE user_movie.watched <> excluded.watched OR user_movie.favorite <> excluded.favorite
+                RETURNING movie_id, watched, favorite
+            ), deleted AS (
+                DELETE FROM user_movie um USING input i
+                WHERE um.app_user_id = ? AND um.movie_id = i.movie_id AND NOT (i.watched OR i.favorite)
+                RETURNING um.movie_id, false AS watched, false AS favorite
+            ), changed AS (
+                SELECT * FROM upserted UNION ALL SELECT * FROM deleted
+            ), bumped AS (
+                UPDATE app_user SET library_version = library_version + 1
+                WHERE id = ? AND EXISTS (SELECT 1 FROM changed)
+                RETURNING library_version
+            )
+            SELECT coalesce((SELECT library_version FROM bumped), (SELECT library_version FROM app_user WHERE id = ?)) AS version,
+                   c.movie_id, c.watched, c.favorite, m.title, m.year,
+                   p.watched AS previous_watched, p.favorite AS previous_favorite
+            FROM (SELECT 1) v
+            LEFT JOIN (changed c JOIN movie m ON m.id = c.movie_id LEFT JOIN previous p ON p.movie_id = c.movie_id) ON true
+            ORDER BY c.movie_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Set<Long> findExistingMovieIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbcTemplate.query(
+                "SELECT id FROM movie WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())),
+                (rs, rowNum) -> rs.getLong(1)));
+    }
+
+    /**
+     * Applies the changes, one per movie id, and returns only the rows that differ from before,
+     * along with how those rows looked before (absent when the movie was not in the library).
+     */
+    public BatchResult applyChanges(Long appUserId, List<UserMovieDto> changes) {
+        Object[] movieIds = changes.stream().map(UserMovieDto::getMovieId).toArray();
+        Object[] watched = changes.stream().map(UserMovieDto::isWatched).toArray();
+        Object[] favorite = changes.stream().map(UserMovieDto::isFavorite).toArray();
+        List<UserMovieDto> changed = new ArrayList<>();
+        Map<Long, UserMovieDto> previous = new HashMap<>();
+        long[] version = new long[1];
+        jdbcTemplate.query(APPLY_CHANGES,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", movieIds));
+                    ps.setArray(2, ps.getConnection().createArrayOf("boolean", watched));
+                    ps.setArray(3, ps.getConnection().createArrayOf("boolean", favorite));
+                    ps.setLong(4, appUserId);
+                    ps.setLong(5, appUserId);
+                    ps.setLong(6, appUserId);
+                    ps.setLong(7, appUserId);
+                    ps.setLong(8, appUserId);
+                },
+                rs -> {
+                    version[0] = rs.getLong("version");
+                    long movieId = rs.getLong("movie_id");
+                    if (!rs.wasNull()) {
+                        changed.add(UserMovieDto.builder()
+                                .appUserId(appUserId)
+                                .movieId(movieId)
+                                .watched(rs.getBoolean("watched"))
+                                .favorite(rs.getBoolean("favorite"))
+                                .movie(UserMovieMovieDto.builder()
+                                        .id(movieId)
+                                        .title(rs.getString("title"))
+                                        .year(rs.getObject("year", Long.class))
+                                        .build())
+                                .build());
+                        boolean previousWatched = rs.getBoolean("previous_watched");
+                        if (!rs.wasNull()) {
+                            previous.put(movieId, UserMovieDto.builder()
+                                    .appUserId(appUserId)
+                                    .movieId(movieId)
+                                    .watched(previousWatched)
+                                    .favorite(rs.getBoolean("previous_favorite"))
+                                    .build());
+                        }
+                    }
+                });
+        UserMovieDeltaDto delta = UserMovieDeltaDto.builder()
+                .appUserId(appUserId)
+                .version(version[0])
+                .changes(changed)
+                .build();
+        return new BatchResult(delta, previous);
+    }
+
+    public record BatchResult(UserMovieDeltaDto delta, Map<Long, UserMovieDto> previous) {
+    }
+}
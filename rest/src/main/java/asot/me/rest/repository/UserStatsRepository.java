@@ -0,0 +1,159 @@
+package asot.me.rest.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-user watched/favorite counters by genre, decade and actor in user_stat (see db/schema/024-user-stats.sql).
+ * Library writes add their deltas in the same transaction; a rebuild recomputes users from user_movie.
+ * Both hold the app_user row lock, so a rebuild never interleaves with a user's write.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserStatsRepository {
+    public static final String TOTAL = "T";
+    public static final String GENRE = "G";
+    public static final String DECADE = "D";
+    public static final String ACTOR = "A";
+
+    // counters per kind and key from src(app_user_id, movie_id, watched, favorite), flags as 0/1 or deltas
+    private static final String AGGREGATE = """
+            SELECT s.app_user_id, 'T' AS kind, 0::bigint AS key, sum(s.watched) AS watched, sum(s.favorite) AS favorite
+            FROM src s GROUP BY s.app_user_id
+            UNION ALL
+            SELECT s.app_user_id, 'G', g.genre_id, sum(s.watched), sum(s.favorite)
+            FROM src s JOIN movie m ON m.id = s.movie_id CROSS JOIN unnest(m.genre_ids) AS g(genre_id)
+            GROUP BY s.app_user_id, g.genre_id
+            UNION ALL
+            SELECT s.app_user_id, 'D', m.year / 10 * 10, sum(s.watched), sum(s.favorite)
+            FROM src s JOIN movie m ON m.id = s.movie_id WHERE m.year IS NOT NULL
+            GROUP BY s.app_user_id, m.year / 10 * 10
+            UNION ALL
+            SELECT s.app_user_id, 'A', ma.actor_id, sum(s.watched), sum(s.favorite)
+            FROM src s JOIN movie_actor ma ON ma.movie_id = s.movie_id
+            GROUP BY s.app_user_id, ma.actor_id
+            """;
+    private static final String APPLY_DELTAS = """
+            WITH src AS (
+                SELECT ?::bigint AS app_user_id, t.movie_id, t.watched, t.favorite
+                FROM unnest(?::bigint[], ?::int[], ?::int[]) AS t(movie_id, watched, favorite)
+            ), delta AS (
+            """ + AGGREGATE + """
+            ), upserted AS (
+                INSERT INTO user_stat (app_user_id, kind, key, watched, favorite)
+                SELECT * FROM delta WHERE watched <> 0 OR favorite <> 0
+                ON CONFLICT (app_user_id, kind, key) DO UPDATE
+                SET watched = user_stat.watched + excluded.watched, favorite = user_stat.favorite + excluded.favorite
+                RETURNING kind, key, watched, favorite
+            )
+            SELECT kind, key FROM upserted WHERE watched <= 0 AND favorite <= 0
+            """;
+    private static final String DELETE_EMPTY = """
+            DELETE FROM user_stat s USING unnest(?::text[], ?::bigint[]) AS d(kind, key)
+            WHERE s.app_user_id = ? AND s.kind = d.kind::char(1) AND s.key = d.key AND s.watched <= 0 AND s.favorite <= 0
+            """;
+    private static final String REBUILD = """
+            WITH src AS (
+                SELECT app_user_id, movie_id, watched::int AS watched, favorite::int AS favorite
+                FROM user_movie WHERE app_user_id = ANY(?)
+            ), counters AS (
+            """ + AGGREGATE + """
+            )
+            INSERT INTO user_stat (app_user_id, kind, key, watched, favorite)
+            SELECT * FROM counters WHERE watched > 0 OR favorite > 0
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds per-movie deltas (-1, 0 or 1 per flag) to the user's counters and drops counters that reach zero.
+     * Call inside the transaction that wrote the library.
+     */
+    public void applyDeltas(Long appUserId, List<Long> movieIds, List<Integer> watched, List<Integer> favorite) {
+        List<String> emptyKinds = new ArrayList<>();
+        List<Long> emptyKeys = new ArrayList<>();
+        jdbcTemplate.query(APPLY_DELTAS,
+                ps -> {
+                    ps.setLong(1, appUserId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", movieIds.toArray()));
+                    ps.setArray(3, ps.getConnection().createArrayOf("integer", watched.toArray()));
+                    ps.setArray(4, ps.getConnection().createArrayOf("integer", favorite.toArray()));
+                },
+                (RowCallbackHandler) rs -> {
+                    emptyKinds.add(rs.getString("kind"));
+                    emptyKeys.add(rs.getLong("key"));
+                });
+        if (!emptyKinds.isEmpty()) {
+            jdbcTemplate.update(DELETE_EMPTY, ps -> {
+                ps.setArray(1, ps.getConnection().createArrayOf("text", emptyKinds.toArray()));
+                ps.setArray(2, ps.getConnection().createArrayOf("bigint", emptyKeys.toArray()));
+                ps.setLong(3, appUserId);
+            });
+        }
+    }
+
+    /**
+     * Recomputes the counters of up to limit users after afterId, in id order.
+     *
+     * @return the ids rebuilt, empty when there are no users left
+     */
+    @Transactional
+    public List<Long> rebuildAfter(long afterId, int limit) {
+        List<Long> appUserIds = jdbcTemplate.queryForList(
+                "SELECT id FROM app_user WHERE id > ? ORDER BY id LIMIT ? FOR UPDATE", Long.class, afterId, limit);
+        recompute(appUserIds);
+        return appUserIds;
+    }
+
+    /**
+     * Recomputes one user's counters; false when the user does not exist.
+     */
+    @Transactional
+    public boolean rebuild(Long appUserId) {
+        List<Long> appUserIds = jdbcTemplate.queryForList("SELECT id FROM app_user WHERE id = ? FOR UPDATE", Long.class, appUserId);
+        recompute(appUserIds);
+        return !appUserIds.isEmpty();
+    }
+
+    /**
+     * Totals, genres and decades (a handful of rows each); genre rows carry the genre name.
+     */
+    public void forEachSummaryCounter(Long appUserId, RowCallbackHandler handler) {
+        jdbcTemplate.query("""
+                        SELECT s.kind, s.key, s.watched, s.favorite, g.name
+                        FROM user_stat s LEFT JOIN genre g ON s.kind = 'G' AND g.id = s.key
+                        WHERE s.app_user_id = ? AND s.kind IN ('T', 'G', 'D')
+                        """,
+                handler, appUserId);
+    }
+
+    /**
+     * The user's most-watched actors, top down along idx_user_stat_top.
+     */
+    public void forEachTopActor(Long appUserId, int limit, RowCallbackHandler handler) {
+        jdbcTemplate.query("""
+                        SELECT s.key, s.watched, s.favorite, a.firstname, a.lastname
+                        FROM user_stat s LEFT JOIN actor a ON a.id = s.key
+                        WHERE s.app_user_id = ? AND s.kind = 'A'
+                        ORDER BY s.watched DESC, s.favorite DESC, s.key
+                        LIMIT ?
+                        """,
+                handler, appUserId, limit);
+    }
+
+    private void recompute(List<Long> appUserIds) {
+        if (appUserIds.isEmpty()) {
+            return;
+        }
+        Object[] ids = appUserIds.toArray();
+        jdbcTemplate.update("DELETE FROM user_stat WHERE app_user_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+        jdbcTemplate.update(REBUILD, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+    }
+}
@@ -0,0 +1,88 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dom.Movie;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Set-based lookups and inserts for watch history imports, one statement per batch of rows.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WatchHistoryImportRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Movies whose lowercased title is one of the given ones, served by idx_movie_lower_title.
+     */
+    public void forEachMovieByTitle(Collection<String> lowerTitles, RowCallbackHandler handler) {
+        if (lowerTitles.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("SELECT id, title, year FROM movie WHERE lower(title) = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("text", lowerTitles.toArray())),
+                handler);
+    }
+
+    /**
+     * Inserts movies found by a TMDB title search in one statement, unqueried like
+     * {@code TmdbSearchService.searchAndCreateMovie}. Movies clashing with an existing id or title are left out.
+     *
+     * @return the ids actually inserted
+     */
+    public Set<Long> insertMovies(List<Movie> movies) {
+        if (movies.isEmpty()) {
+            return new HashSet<>();
+        }
+        Object[] ids = movies.stream().map(Movie::getId).toArray();
+        Object[] titles = movies.stream().map(Movie::getTitle).toArray();
+        Object[] years = movies.stream().map(Movie::getYear).toArray();
+        // genre id lists travel as array literals, a bigint[][] cannot hold lists of different lengths
+        Object[] genreIds = movies.stream()
+                .map(movie -> movie.getGenreIds() == null ? "{}" : movie.getGenreIds().stream()
+                        .map(String::valueOf).collect(Collectors.joining(",", "{", "}")))
+                .toArray();
+        return new HashSet<>(jdbcTemplate.query("""
+                        INSERT INTO movie (id, title, year, genre_ids, queried)
+                        SELECT t.id, t.title, t.year, t.genre_ids::bigint[], false
+                        FROM unnest(?::bigint[], ?::text[], ?::bigint[], ?::text[]) AS t(id, title, year, genre_ids)
+                        ON CONFLICT DO NOTHING
+                        RETURNING id
+                        """,
+                ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+                    ps.setArray(2, ps.getConnection().createArrayOf("text", titles));
+                    ps.setArray(3, ps.getConnection().createArrayOf("bigint", years));
+                    ps.setArray(4, ps.getConnection().createArrayOf("text", genreIds));
+                },
+                (rs, rowNum) -> rs.getLong(1)));
+    }
+
+    /**
+     * Current watched/favorite flags of the user's rows for these movies; movies not in the library are absent.
+     */
+    public Map<Long, boolean[]> findFlags(Long appUserId, Collection<Long> movieIds) {
+        Map<Long, boolean[]> flags = new HashMap<>();
+        if (movieIds.isEmpty()) {
+            return flags;
+        }
+        jdbcTemplate.query("SELECT movie_id, watched, favorite FROM user_movie WHERE app_user_id = ? AND movie_id = ANY(?)",
+                ps -> {
+                    ps.setLong(1, appUserId);
+                    ps.setArray(2, ps.getConnection().createArrayOf("bigint", movieIds.toArray()));
+                },
+                (RowCallbackHandler) rs -> flags.put(rs.getLong("movie_id"),
+                        new boolean[]{rs.getBoolean("watched"), rs.getBoolean("favorite")}));
+        return flags;
+    }
+}
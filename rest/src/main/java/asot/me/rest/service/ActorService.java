@@ -1,21 +1,36 @@
 package asot.me.rest.service;
 
+import asot.me.rest.autocomplete.AutocompleteIndex;
 import asot.me.rest.dom.Actor;
 import asot.me.rest.dom.Movie;
 import asot.me.rest.dom.TvShow;
 import asot.me.rest.dto.ActorDto;
+import asot.me.rest.dto.ActorSummaryDto;
 import asot.me.rest.mapper.ActorMapper;
+import asot.me.rest.pagination.CountStrategy;
+import asot.me.rest.pagination.CursorCodec;
+import asot.me.rest.pagination.OffsetPageRequest;
 import asot.me.rest.repository.ActorRepository;
+import asot.me.rest.repository.ActorSpecifications;
+import asot.me.rest.repository.CountEstimateRepository;
 import asot.me.rest.repository.MovieRepository;
+import asot.me.rest.repository.TrigramSettingsRepository;
 import asot.me.rest.repository.TvShowRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Function;
 
 @Service
 @Log4j2
@@ -25,23 +40,74 @@ public class ActorService {
     private final MovieRepository movieRepository;
     private final TvShowRepository tvShowRepository;
     private final ActorMapper actorMapper;
+    private final CursorCodec cursorCodec;
+    private final TrigramSettingsRepository trigramSettingsRepository;
+    private final CountEstimateRepository countEstimateRepository;
+    private final ListCountService listCountService;
+    private final CatalogCache catalogCache;
+    private final AutocompleteIndex autocompleteIndex;
+    @Value("${search.trigram.word-similarity-threshold:0.5}")
+    private double wordSimilarityThreshold;
+
+    public Slice<ActorSummaryDto> getAllActors(String name, Long movieId, Pageable pageable, CountStrategy countStrategy) {
+        Specification<Actor> spec = Specification.allOf(
+                ActorSpecifications.nameContains(name),
+                ActorSpecifications.inMovie(movieId));
+
+        Slice<Actor> actors = actorRepository.findBy(spec, query -> query.slice(pageable));
+        return listCountService.withCount(actors, pageable, countStrategy,
+                        "actors|" + name + "|" + movieId,
+                        () -> actorRepository.count(spec),
+                        () -> countEstimateRepository.estimateActors(name, movieId))
+                .map(toSummary(actors.getContent()));
+    }
 
-    public Page<ActorDto> getAllActors(String name, Pageable pageable) {
-        Page<Actor> actorsPage = null;
-        if (name == null) {
-            actorsPage = actorRepository.findAll(pageable);
-        } else {
-            actorsPage = actorRepository.findByFirstnameContainingIgnoreCaseOrLastnameContainingIgnoreCase(name, name, pageable);
-        }
+    /**
+     * Keyset version of the actor list: each page seeks past the last row's sort key and id.
+     */
+    public Window<ActorSummaryDto> scrollActors(Sort sort, int size, String cursor, String name, Long movieId) {
+        Specification<Actor> spec = Specification.allOf(
+                ActorSpecifications.nameContains(name),
+                ActorSpecifications.inMovie(movieId));
+        Window<Actor> actors = actorRepository.findBy(spec, query -> query.sortBy(sort).limit(size).scroll(cursorCodec.decode(cursor, sort, Actor.class)));
+        return actors.map(toSummary(actors.getContent()));
+    }
 
-        return actorsPage.map(actorMapper::toDTO);
+    /**
+     * Ranked full-name search; the similarity rank replaces any requested sort.
+     */
+    @Transactional(readOnly = true)
+    public Slice<ActorSummaryDto> searchActors(String q, Pageable pageable, CountStrategy countStrategy) {
+        String term = q.trim();
+        Pageable unsorted = OffsetPageRequest.ofOffset(pageable.getOffset(), pageable.getPageSize(), Sort.unsorted());
+        trigramSettingsRepository.setWordSimilarityThreshold(wordSimilarityThreshold);
+        Slice<Actor> actors = actorRepository.searchByName(term, unsorted);
+        return listCountService.withCount(actors, unsorted, countStrategy,
+                        "actors|q|" + term,
+                        () -> actorRepository.countNameSearch(term),
+                        () -> countEstimateRepository.estimateActorNameSearch(term))
+                .map(toSummary(actors.getContent()));
     }
 
-    public Page<ActorDto> getAllActorsByMovie(Long movieId, Pageable pageable) {
-        Page<Actor> actors = actorRepository.findByMoviesId(movieId, pageable);
-        return actors.map(actorMapper::toDTO);
+    /**
+     * Summary mapper for one page: the movie counts of all its actors come from a single grouped query.
+     */
+    private Function<Actor, ActorSummaryDto> toSummary(List<Actor> page) {
+        Map<Long, Long> movieCounts = new HashMap<>();
+        if (!page.isEmpty()) {
+            List<Long> actorIds = page.stream().map(Actor::getId).toList();
+            for (ActorRepository.ActorMovieCount count : actorRepository.countMoviesByActorIds(actorIds)) {
+                movieCounts.put(count.getActorId(), count.getMovieCount());
+            }
+        }
+        return actor -> actorMapper.toSummary(actor, movieCounts.getOrDefault(actor.getId(), 0L));
     }
 
+    /**
+     * Cached read; the dto is built inside the transaction so its movies and tv shows are loaded before it is cached.
+     */
+    @Cacheable(CatalogCache.ACTORS)
+    @Transactional(readOnly = true)
     public ActorDto getActor(Long id) {
         Actor actor =  actorRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Actor not found with id: " + id));
@@ -49,8 +115,10 @@ public class ActorService {
     }
 
     public ActorDto createActor(ActorDto actorDto) {
-        Actor actor = actorMapper.toEntity(actorDto);
-        return actorMapper.toDTO(actorRepository.save(actor));
+        Actor actor = actorRepository.save(actorMapper.toEntity(actorDto));
+        catalogCache.evictActorWithMovies(actor);
+        autocompleteIndex.actorSaved(actor.getId(), actor.getFirstname(), actor.getLastname());
+        return actorMapper.toDTO(actor);
     }
 
     /**
@@ -59,6 +127,7 @@ public class ActorService {
      * @param actorDto the actor data transfer object containing updated information
      * @return the updated actor data transfer object
      */
+    @Transactional
     public ActorDto updateActor(Long id, ActorDto actorDto) {
         Actor actor =  actorRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Actor not found with id: " + id));
@@ -66,12 +135,18 @@ public class ActorService {
         actor.setFirstname(actorDto.getFirstname());
         actor.setLastname(actorDto.getLastname());
 
+        // cached movies embed the actor's name
+        catalogCache.evictActorWithMovies(actor);
+        autocompleteIndex.actorSaved(id, actor.getFirstname(), actor.getLastname());
         return actorMapper.toDTO(actorRepository.save(actor));
     }
 
+    @Transactional
     public void deleteActor(Long id) {
         Actor actor =  actorRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Actor not found with id: " + id));
+        catalogCache.evictActorWithMovies(actor);
+        autocompleteIndex.actorDeleted(id);
         // do not remove movies or tvshows just delete the actor
         actor.setMovies(null);
         actor.setTvshows(null);
@@ -83,6 +158,8 @@ public class ActorService {
                 .orElseThrow(() -> new EntityNotFoundException("Actor not found with id: " + actorId));
         List<Movie> movies = movieRepository.findAllById(movieIds);
         actor.getMovies().addAll(movies);
+        catalogCache.evictActor(actorId);
+        catalogCache.evictMovies(movieIds);
         return actorMapper.toDTO(actorRepository.save(actor));
     }
 
@@ -92,6 +169,7 @@ public class ActorService {
         List<TvShow> tvshows = tvShowRepository.findAllById(tvshowIds);
 
         actor.getTvshows().addAll(tvshows);
+        catalogCache.evictActor(actorId);
         return actorMapper.toDTO(actorRepository.save(actor));
     }
 
@@ -107,6 +185,8 @@ public class ActorService {
         }
 
         actor.setMovies(movies);
+        catalogCache.evictActor(actorId);
+        catalogCache.evictMovies(movieIdSet);
         return actorMapper.toDTO(actorRepository.save(actor));
     }
 
@@ -122,6 +202,7 @@ public class ActorService {
         }
 
         actor.setTvshows(tvshows);
+        catalogCache.evictActor(actorId);
         return actorMapper.toDTO(actorRepository.save(actor));
     }
 }
\ No newline at end of file
@@ -16,16 +16,30 @@ public class AppUserService {
     private final AppUserRepository appUserRepository;
     private final AppUserMapper appUserMapper;
 
-    public AppUserDto getAppUser(Long id) {
+    /**
+     * Without the library the lazy user movies are never loaded; /users/{id}/library pages through them instead.
+     */
+    public AppUserDto getAppUser(Long id, boolean includeLibrary) {
         AppUser appUser = appUserRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("AppUser not found with id: " + id));
-        return appUserMapper.toDTO(appUser);
+        return toDTO(appUser, includeLibrary);
     }
 
-    public AppUserDto getAppUserByUsername(String username) {
+    public AppUserDto getAppUserByUsername(String username, boolean includeLibrary) {
         AppUser appUser = appUserRepository.findByUsername(username)
                 .orElseThrow(() -> new EntityNotFoundException("AppUser not found with username: " + username));
-        return appUserMapper.toDTO(appUser);
+        return toDTO(appUser, includeLibrary);
+    }
+
+    private AppUserDto toDTO(AppUser appUser, boolean includeLibrary) {
+        if (includeLibrary) {
+            return appUserMapper.toDTO(appUser);
+        }
+        return AppUserDto.builder()
+                .id(appUser.getId())
+                .username(appUser.getUsername())
+                .libraryVersion(appUser.getLibraryVersion())
+                .build();
     }
 
     public Page<AppUserDto> getAllAppUsers(String username, Pageable pageable) {
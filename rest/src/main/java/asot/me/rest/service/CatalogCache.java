@@ -0,0 +1,134 @@
+package asot.me.rest.service;
+
+import asot.me.rest.dom.Actor;
+import asot.me.rest.dom.Movie;
+import asot.me.rest.dto.CacheStatsDto;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Names of the catalog caches and the write-side evictions for them.
+ * A movie detail embeds its actors and an actor detail embeds its movies, so writes
+ * evict the entity itself plus the entries on the other side of the relationship.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogCache {
+    public static final String MOVIES = "movies";
+    public static final String ACTORS = "actors";
+    public static final String GENRES = "genres";
+    public static final String GENRE_IDS_BY_NAME = "genreIdsByName";
+    private static final List<String> CACHE_NAMES = List.of(MOVIES, ACTORS, GENRES, GENRE_IDS_BY_NAME);
+
+    private final CacheManager cacheManager;
+    private final Map<String, AtomicLong> invalidations = new ConcurrentHashMap<>();
+
+    public void evictMovie(Long movieId) {
+        evict(MOVIES, movieId);
+    }
+
+    public void evictMovies(Collection<Long> movieIds) {
+        movieIds.forEach(this::evictMovie);
+    }
+
+    /**
+     * Evicts the movie and every cached actor that lists it.
+     */
+    public void evictMovieWithCast(Movie movie) {
+        evictMovie(movie.getId());
+        if (movie.getActors() != null) {
+            movie.getActors().forEach(actor -> evictActor(actor.getId()));
+        }
+    }
+
+    public void evictActor(Long actorId) {
+        evict(ACTORS, actorId);
+    }
+
+    public void evictActors(Collection<Long> actorIds) {
+        actorIds.forEach(this::evictActor);
+    }
+
+    /**
+     * Evicts the actor and every cached movie that lists it.
+     */
+    public void evictActorWithMovies(Actor actor) {
+        evictActor(actor.getId());
+        if (actor.getMovies() != null) {
+            actor.getMovies().forEach(movie -> evictMovie(movie.getId()));
+        }
+    }
+
+    /**
+     * Evicts a genre by id and by name, and the name to id map.
+     */
+    public void evictGenre(Long genreId, String name) {
+        evict(GENRES, genreId);
+        if (name != null) {
+            cache(GENRES).evict(genreNameKey(name));
+        }
+        evictGenreNames();
+    }
+
+    public static String genreNameKey(String name) {
+        return "name:" + name;
+    }
+
+    public void evictAllGenres() {
+        cache(GENRES).clear();
+        invalidations.computeIfAbsent(GENRES, name -> new AtomicLong()).incrementAndGet();
+        evictGenreNames();
+    }
+
+    private void evictGenreNames() {
+        cache(GENRE_IDS_BY_NAME).clear();
+        invalidations.computeIfAbsent(GENRE_IDS_BY_NAME, name -> new AtomicLong()).incrementAndGet();
+    }
+
+    private void evict(String cacheName, Long id) {
+        if (id == null) {
+            return;
+        }
+        cache(cacheName).evict(id);
+        invalidations.computeIfAbsent(cacheName, name -> new AtomicLong()).incrementAndGet();
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+
+    public Map<String, CacheStatsDto> getStats() {
+        Map<String, CacheStatsDto> stats = new LinkedHashMap<>();
+        for (String name : CACHE_NAMES) {
+            Cache cache = cache(name);
+            if (cache instanceof TransactionAwareCacheDecorator decorator) {
+                cache = decorator.getTargetCache();
+            }
+            if (!(cache instanceof CaffeineCache caffeineCache)) {
+                continue;
+            }
+            CacheStats cacheStats = caffeineCache.getNativeCache().stats();
+            stats.put(name, CacheStatsDto.builder()
+                    .size(caffeineCache.getNativeCache().estimatedSize())
+                    .hits(cacheStats.hitCount())
+                    .misses(cacheStats.missCount())
+                    .hitRatio(cacheStats.hitRate())
+                    .evictions(cacheStats.evictionCount())
+                    .invalidations(invalidations.getOrDefault(name, new AtomicLong()).get())
+                    .build());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,42 @@
+package asot.me.rest.service;
+
+import asot.me.rest.dto.SearchHitDto;
+import asot.me.rest.repository.CatalogSearchRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class CatalogSearchService {
+    private static final Set<String> TYPES = Set.of(
+            CatalogSearchRepository.MOVIE, CatalogSearchRepository.TV_SHOW, CatalogSearchRepository.ACTOR);
+
+    private final CatalogSearchRepository catalogSearchRepository;
+
+    /**
+     * Ranked matches of movies, tv shows and actors; q uses web search syntax ("quoted phrase", or, -exclude).
+     */
+    public Page<SearchHitDto> search(String q, List<String> types, Pageable pageable) {
+        if (q == null || q.isBlank()) {
+            throw new IllegalArgumentException("q must not be empty");
+        }
+        Set<String> searched = new HashSet<>();
+        if (types == null || types.isEmpty()) {
+            searched.addAll(TYPES);
+        } else {
+            for (String type : types) {
+                if (!TYPES.contains(type.toLowerCase())) {
+                    throw new IllegalArgumentException("type must be any of movie, tvshow, actor");
+                }
+                searched.add(type.toLowerCase());
+            }
+        }
+        return catalogSearchRepository.search(q.trim(), searched, pageable);
+    }
+}
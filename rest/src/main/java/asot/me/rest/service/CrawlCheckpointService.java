@@ -0,0 +1,98 @@
+package asot.me.rest.service;
+
+import asot.me.rest.dom.CrawlRange;
+import asot.me.rest.dom.CrawlRangeStatus;
+import asot.me.rest.dom.GlobalSettings;
+import asot.me.rest.repository.CrawlRangeRepository;
+import asot.me.rest.repository.GlobalSettingsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persists crawler progress as id ranges so a restart resumes without gaps or duplicates.
+ * GlobalSettings.nextMovieIdToQuery is the claim frontier: every id below it belongs to a CrawlRange.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class CrawlCheckpointService {
+    private final CrawlRangeRepository crawlRangeRepository;
+    private final GlobalSettingsRepository globalSettingsRepository;
+
+    /**
+     * Claims the lowest released range, or carves a new one off the frontier.
+     * Callers must serialize invocations, the frontier read-advance is not safe to run concurrently.
+     */
+    @Transactional
+    public CrawlRange claimNextRange(int rangeSize) {
+        CrawlRange range = crawlRangeRepository.findFirstByStatusOrderByStartIdAsc(CrawlRangeStatus.PENDING)
+                .orElse(null);
+
+        if (range == null) {
+            GlobalSettings globalSettings = globalSettingsRepository.findById(1L)
+                    .orElseThrow(() -> new RuntimeException("Global settings not found."));
+            long startId = globalSettings.getNextMovieIdToQuery();
+            range = CrawlRange.builder()
+                    .startId(startId)
+                    .endId(startId + rangeSize)
+                    .build();
+            globalSettings.setNextMovieIdToQuery(startId + rangeSize);
+            globalSettingsRepository.save(globalSettings);
+        }
+
+        range.setStatus(CrawlRangeStatus.CLAIMED);
+        range.setAttempts(range.getAttempts() + 1);
+        range.setClaimedAt(LocalDateTime.now());
+        return crawlRangeRepository.save(range);
+    }
+
+    /**
+     * Marks a range as done, unless some ids failed transiently and the range still has attempts left.
+     */
+    @Transactional
+    public void completeRange(CrawlRange range, int failedIds, int maxAttempts) {
+        range.setFailedIds(failedIds);
+        if (failedIds > 0 && range.getAttempts() < maxAttempts) {
+            log.warn("Range [{}, {}) had {} failed ids, releasing for retry", range.getStartId(), range.getEndId(), failedIds);
+            range.setStatus(CrawlRangeStatus.PENDING);
+        } else {
+            range.setStatus(CrawlRangeStatus.DONE);
+            range.setCompletedAt(LocalDateTime.now());
+        }
+        crawlRangeRepository.save(range);
+    }
+
+    @Transactional
+    public void releaseRange(CrawlRange range) {
+        range.setStatus(CrawlRangeStatus.PENDING);
+        range.setAttempts(Math.max(0, range.getAttempts() - 1));
+        crawlRangeRepository.save(range);
+    }
+
+    @Transactional
+    public int releaseStaleClaims() {
+        return crawlRangeRepository.updateStatus(CrawlRangeStatus.CLAIMED, CrawlRangeStatus.PENDING);
+    }
+
+    public long countPendingRanges() {
+        return crawlRangeRepository.countByStatus(CrawlRangeStatus.PENDING);
+    }
+
+    public long countDoneIds() {
+        return crawlRangeRepository.sumIdsByStatus(CrawlRangeStatus.DONE);
+    }
+
+    public long countFailedIds() {
+        return crawlRangeRepository.sumFailedIdsByStatus(CrawlRangeStatus.DONE);
+    }
+
+    public Long getNextMovieIdToQuery() {
+        return globalSettingsRepository.findById(1L)
+                .map(GlobalSettings::getNextMovieIdToQuery)
+                .orElse(null);
+    }
+}
@@ -3,46 +3,82 @@ package asot.me.rest.service;
 import asot.me.rest.dom.Genre;
 import asot.me.rest.dto.GenreDto;
 import asot.me.rest.mapper.GenreMapper;
+import asot.me.rest.pagination.CountStrategy;
+import asot.me.rest.pagination.CursorCodec;
+import asot.me.rest.repository.CountEstimateRepository;
 import asot.me.rest.repository.GenreRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class GenreService {
     private final GenreRepository genreRepository;
     private final GenreMapper genreMapper;
+    private final CursorCodec cursorCodec;
+    private final CountEstimateRepository countEstimateRepository;
+    private final ListCountService listCountService;
+    private final CatalogCache catalogCache;
 
-    public Page<GenreDto> getAllGenres(
-        Pageable pageable
+    public Slice<GenreDto> getAllGenres(
+        Pageable pageable,
+        CountStrategy countStrategy
     ) {
-        Page<Genre> genresPage = genreRepository.findAll(pageable);
-        return genresPage.map(genreMapper::toDTO);
+        Slice<Genre> genres = genreRepository.findBy(Specification.allOf(), query -> query.slice(pageable));
+        return listCountService.withCount(genres, pageable, countStrategy, "genres",
+                        genreRepository::count,
+                        () -> countEstimateRepository.estimateTable("genre"))
+                .map(genreMapper::toDTO);
+    }
+
+    public Window<GenreDto> scrollGenres(Sort sort, int size, String cursor) {
+        return genreRepository.findBy(Specification.allOf(), query -> query.sortBy(sort).limit(size).scroll(cursorCodec.decode(cursor, sort, Genre.class)))
+                .map(genreMapper::toDTO);
     }
 
+    @Cacheable(CatalogCache.GENRES)
     public GenreDto getGenreById(Long id) {
         return genreMapper.toDTO(genreRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Genre not found with id: " + id)));
     }
 
+    @Cacheable(cacheNames = CatalogCache.GENRES, key = "T(asot.me.rest.service.CatalogCache).genreNameKey(#genreName)")
     public GenreDto getGenreByName(String genreName) {
         return genreMapper.toDTO(genreRepository.findByName(genreName)
                 .orElseThrow(() -> new RuntimeException("Genre not found with genreName: " + genreName)));
     }
 
+    /**
+     * Every genre name with its id, cached as a single entry; the genre table is small and rarely written.
+     */
+    @Cacheable(CatalogCache.GENRE_IDS_BY_NAME)
+    public Map<String, Long> getGenreIdsByName() {
+        return genreRepository.findAll().stream()
+                .collect(Collectors.toUnmodifiableMap(Genre::getName, Genre::getId));
+    }
+
     @Transactional
     public GenreDto createGenre(GenreDto genreDto) {
         Genre genre = Genre.builder().name(genreDto.getName()).build();
         genreRepository.save(genre);
+        catalogCache.evictGenre(genre.getId(), genre.getName());
         return genreMapper.toDTO(genre);
     }
 
     @Transactional
     public GenreDto updateGenreName(Long id, String newName) {
         Genre genre = genreRepository.findById(id).orElseThrow(() -> new RuntimeException("Genre not found with id: " + id));
+        catalogCache.evictGenre(id, genre.getName());
         genre.setName(newName);
         genreRepository.save(genre);
         return genreMapper.toDTO(genre);
@@ -51,6 +87,7 @@ public class GenreService {
     @Transactional
     public void deleteGenre(Long id) {
         Genre genre = genreRepository.findById(id).orElseThrow(() -> new RuntimeException("Genre not found with id: " + id));
+        catalogCache.evictGenre(id, genre.getName());
         genreRepository.delete(genre);
     }
 
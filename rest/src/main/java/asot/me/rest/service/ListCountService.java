@@ -0,0 +1,70 @@
+package asot.me.rest.service;
+
+import asot.me.rest.pagination.CountStrategy;
+import asot.me.rest.pagination.CountedPage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Attaches a total to a list slice according to the requested {@link CountStrategy}.
+ * Slices are fetched without a count query; a Page is returned only when a total was asked for.
+ */
+@Service
+public class ListCountService {
+    @Value("${list.count.cache-ttl-ms:30000}")
+    private long cacheTtlMillis;
+    @Value("${list.count.cache-max-entries:1000}")
+    private int cacheMaxEntries;
+
+    private final Map<String, CachedCount> cachedCounts = new ConcurrentHashMap<>();
+
+    private record CachedCount(long count, long expiresAt) {
+    }
+
+    /**
+     * @param signature identifies the filter combination for the cached strategy, e.g. "movies|title=x|genres=18"
+     */
+    public <T> Slice<T> withCount(Slice<T> slice, Pageable pageable, CountStrategy strategy, String signature,
+                                  LongSupplier exact, LongSupplier estimated) {
+        if (strategy == CountStrategy.NONE) {
+            return slice;
+        }
+        long total = switch (strategy) {
+            case EXACT -> exact.getAsLong();
+            case ESTIMATED -> estimated.getAsLong();
+            case CACHED -> cachedCount(signature, exact);
+            case NONE -> throw new IllegalStateException();
+        };
+        // the slice knows for sure whether rows follow; keep the total consistent with that
+        long seen = pageable.getOffset() + slice.getNumberOfElements();
+        if (slice.hasNext()) {
+            total = Math.max(total, seen + 1);
+        } else if (slice.hasContent()) {
+            total = seen;
+        }
+        return new CountedPage<>(slice.getContent(), pageable, total, slice.hasNext());
+    }
+
+    private long cachedCount(String signature, LongSupplier exact) {
+        long now = System.currentTimeMillis();
+        CachedCount cached = cachedCounts.get(signature);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.count();
+        }
+        if (cachedCounts.size() >= cacheMaxEntries) {
+            cachedCounts.values().removeIf(entry -> entry.expiresAt() <= now);
+            if (cachedCounts.size() >= cacheMaxEntries) {
+                cachedCounts.clear();
+            }
+        }
+        long count = exact.getAsLong();
+        cachedCounts.put(signature, new CachedCount(count, now + cacheTtlMillis));
+        return count;
+    }
+}
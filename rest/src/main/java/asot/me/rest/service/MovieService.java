@@ -1,22 +1,42 @@
 package asot.me.rest.service;
 
+import asot.me.rest.autocomplete.AutocompleteIndex;
 import asot.me.rest.dom.Actor;
 import asot.me.rest.dom.Genre;
 import asot.me.rest.dom.Movie;
 import asot.me.rest.dto.MovieDto;
+import asot.me.rest.dto.MovieSearchCriteria;
+import asot.me.rest.dto.MovieSearchResultDto;
+import asot.me.rest.dto.MovieSummaryDto;
 import asot.me.rest.mapper.MovieMapper;
+import asot.me.rest.pagination.CountStrategy;
+import asot.me.rest.pagination.CursorCodec;
+import asot.me.rest.pagination.OffsetPageRequest;
+import asot.me.rest.repository.CountEstimateRepository;
 import asot.me.rest.repository.GenreRepository;
+import asot.me.rest.repository.MovieFacet;
 import asot.me.rest.repository.MovieRepository;
+import asot.me.rest.repository.MovieSearchRepository;
+import asot.me.rest.repository.MovieSpecifications;
+import asot.me.rest.repository.TrigramSettingsRepository;
+import asot.me.rest.tmdb.TmdbIdIndex;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -25,59 +45,156 @@ import java.util.stream.Collectors;
 public class MovieService {
 
     private final MovieRepository movieRepository;
+    private final MovieSearchRepository movieSearchRepository;
     private final GenreRepository genreRepository;
+    private final GenreService genreService;
     private final MovieMapper movieMapper;
-
-    public Page<MovieDto> getAllMovies(
+    private final CursorCodec cursorCodec;
+    private final TrigramSettingsRepository trigramSettingsRepository;
+    private final CountEstimateRepository countEstimateRepository;
+    private final ListCountService listCountService;
+    private final CatalogCache catalogCache;
+    private final AutocompleteIndex autocompleteIndex;
+    private final TmdbIdIndex tmdbIdIndex;
+    @Value("${search.trigram.word-similarity-threshold:0.5}")
+    private double wordSimilarityThreshold;
+
+    public Slice<MovieSummaryDto> getAllMovies(
         Pageable pageable,
         String titleLike,
-        Long genreId,
+        List<Long> genreIds,
+        String genreMatch,
+        Long actorId,
+        CountStrategy countStrategy
+    ) {
+        boolean matchAll = isMatchAll("genreMatch", genreMatch);
+        Specification<Movie> spec = Specification.allOf(
+                MovieSpecifications.titleContains(titleLike),
+                MovieSpecifications.hasGenres(genreIds, matchAll),
+                MovieSpecifications.hasActor(actorId));
+        String genres = genreIds == null || genreIds.isEmpty() ? null : toArrayLiteral(genreIds);
+
+        Slice<Movie> movies = movieRepository.findBy(spec, query -> query.slice(pageable));
+        return listCountService.withCount(movies, pageable, countStrategy,
+                        "movies|" + titleLike + "|" + genres + "|" + matchAll + "|" + actorId,
+                        () -> movieRepository.count(spec),
+                        () -> countEstimateRepository.estimateMovies(titleLike, genres, matchAll, actorId))
+                .map(movieMapper::toSummary);
+    }
+
+    public static boolean isMatchAll(String param, String match) {
+        if (match == null || match.equalsIgnoreCase("any")) {
+            return false;
+        }
+        if (match.equalsIgnoreCase("all")) {
+            return true;
+        }
+        throw new IllegalArgumentException(param + " must be 'any' or 'all'");
+    }
+
+    private static String toArrayLiteral(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+
+    /**
+     * Keyset version of {@link #getAllMovies}: each page seeks past the last row's sort key and id.
+     */
+    public Window<MovieSummaryDto> scrollMovies(
+        Sort sort,
+        int size,
+        String cursor,
+        String titleLike,
+        List<Long> genreIds,
+        String genreMatch,
         Long actorId
     ) {
-        Page<Movie> moviesPage;
-
-        if (genreId != null && actorId != null) {
-            moviesPage = movieRepository.findByGenreIdAndActorId(genreId, actorId, pageable);
-        } else if (genreId != null) {
-            moviesPage = movieRepository.findAllByGenreIdsContaining(genreId, pageable);
-        } else if (actorId != null) {
-            moviesPage = movieRepository.findAllByActors_Id(actorId, pageable);
-        } else if (titleLike != null && !titleLike.isEmpty()) {
-            // Search by title containing the given string (case-insensitive)
-            moviesPage = movieRepository.findByTitleContainingIgnoreCase(titleLike, pageable);
-        } else {
-            // Default pagination without filtering
-            moviesPage = movieRepository.findAll(pageable);
+        Specification<Movie> spec = Specification.allOf(
+                MovieSpecifications.titleContains(titleLike),
+                MovieSpecifications.hasGenres(genreIds, isMatchAll("genreMatch", genreMatch)),
+                MovieSpecifications.hasActor(actorId));
+        return movieRepository.findBy(spec, query -> query.sortBy(sort).limit(size).scroll(cursorCodec.decode(cursor, sort, Movie.class)))
+                .map(movieMapper::toSummary);
+    }
+
+    /**
+     * All filters combined, with optional genre and decade facet counts over the filtered set.
+     * Without any filter the whole table would have to be counted: the total is then estimated and facets are skipped.
+     */
+    @Transactional(readOnly = true)
+    public MovieSearchResultDto facetedSearch(MovieSearchCriteria criteria, Pageable pageable, Set<MovieFacet> facets) {
+        MovieSearchResultDto.MovieSearchResultDtoBuilder result = MovieSearchResultDto.builder()
+                .movies(movieSearchRepository.findPage(criteria, pageable));
+        if (MovieSearchRepository.isUnfiltered(criteria)) {
+            return result.total(countEstimateRepository.estimateTable("movie")).totalEstimated(true).build();
         }
+        return result.total(movieSearchRepository.count(criteria))
+                .genreCounts(facets.contains(MovieFacet.GENRE) ? movieSearchRepository.facetCounts(criteria, MovieFacet.GENRE) : null)
+                .decadeCounts(facets.contains(MovieFacet.DECADE) ? movieSearchRepository.facetCounts(criteria, MovieFacet.DECADE) : null)
+                .build();
+    }
 
-        return moviesPage.map(movieMapper::toDTO);
+    /**
+     * Ranked, typo tolerant title search; the similarity rank replaces any requested sort.
+     */
+    @Transactional(readOnly = true)
+    public Slice<MovieSummaryDto> searchMovies(String q, Pageable pageable, CountStrategy countStrategy) {
+        String term = q.trim();
+        Pageable unsorted = OffsetPageRequest.ofOffset(pageable.getOffset(), pageable.getPageSize(), Sort.unsorted());
+        trigramSettingsRepository.setWordSimilarityThreshold(wordSimilarityThreshold);
+        return listCountService.withCount(movieRepository.searchByTitle(term, unsorted), unsorted, countStrategy,
+                        "movies|q|" + term,
+                        () -> movieRepository.countTitleSearch(term),
+                        () -> countEstimateRepository.estimateMovieTitleSearch(term))
+                .map(movieMapper::toSummary);
     }
 
+    /**
+     * Cached read; the cast's own movie and tv show lists are serialized with the movie,
+     * so they are loaded here before the dto leaves the transaction.
+     */
+    @Cacheable(CatalogCache.MOVIES)
+    @Transactional(readOnly = true)
     public MovieDto getMovie(Long id) {
-        return movieMapper.toDTO(movieRepository.findById(id)
+        MovieDto movie = movieMapper.toDTO(movieRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Movie not found with id: " + id)));
+        for (Actor actor : movie.getActors()) {
+            Hibernate.initialize(actor.getMovies());
+            Hibernate.initialize(actor.getTvshows());
+        }
+        return movie;
     }
 
     public MovieDto createMovie(MovieDto movieDto) {
+        requireTitle(movieDto);
         if (movieDto.getGenreIds() == null) {
             movieDto.setGenreIds(new ArrayList<>());
         }
-        return movieMapper.toDTO(movieRepository.save(movieMapper.toEntity(movieDto)));
+        Movie movie = movieRepository.save(movieMapper.toEntity(movieDto));
+        catalogCache.evictMovie(movie.getId());
+        autocompleteIndex.movieSaved(movie.getId(), movie.getTitle());
+        return movieMapper.toDTO(movie);
     }
 
+    @Transactional
     public MovieDto updateMovie(Long id, MovieDto movieDto) {
-        Movie existingMovie = movieRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Movie not found with id: " + id));
+        requireTitle(movieDto);
+        Movie existingMovie = findMovie(id);
 
         existingMovie.setTitle(movieDto.getTitle());
         existingMovie.setYear(movieDto.getYear() != null ? movieDto.getYear() : null);
 
+        // cached actors embed the movie's title and year
+        catalogCache.evictMovieWithCast(existingMovie);
+        autocompleteIndex.movieSaved(id, existingMovie.getTitle());
         return movieMapper.toDTO(movieRepository.save(existingMovie));
     }
 
+    @Transactional
     public void deleteMovie(Long id) {
-        Movie movie = movieRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Movie not found with id: " + id));
+        Movie movie = findMovie(id);
+        catalogCache.evictMovieWithCast(movie);
+        autocompleteIndex.movieDeleted(id);
+        tmdbIdIndex.unmarkIngested(id);
 
         // Remove references from the join table by removing this movie from all actors' collections
         for (Actor actor : movie.getActors()) {
@@ -94,17 +211,28 @@ public class MovieService {
         movieRepository.delete(movie);
     }
 
-    private List<Long> getGenreIdsByNames(List<String> genreNames) {
+    private static void requireTitle(MovieDto movieDto) {
+        if (movieDto.getTitle() == null || movieDto.getTitle().isBlank()) {
+            throw new IllegalArgumentException("title must not be empty");
+        }
+    }
 
-        List<Genre> genres = genreRepository.findByNameIn(genreNames);
+    private Movie findMovie(Long id) {
+        return movieRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Movie not found with id: " + id));
+    }
 
-        if (genres.size() != genreNames.size()) {
-            throw new IllegalArgumentException("Some genres could not be found");
+    private List<Long> getGenreIdsByNames(List<String> genreNames) {
+        Map<String, Long> genreIdsByName = genreService.getGenreIdsByName();
+        List<Long> genreIds = new ArrayList<>();
+        for (String genreName : genreNames) {
+            Long genreId = genreIdsByName.get(genreName);
+            if (genreId == null) {
+                throw new IllegalArgumentException("Some genres could not be found");
+            }
+            genreIds.add(genreId);
         }
-
-        return genres.stream()
-                .map(Genre::getId)
-                .collect(Collectors.toList());
+        return genreIds;
     }
 
     @Transactional
@@ -122,6 +250,8 @@ public class MovieService {
         }
 
         movie.getGenreIds().addAll(idsToAdd);
+        // cached actors embed the movie's genre ids
+        catalogCache.evictMovieWithCast(movie);
 
         return movieMapper.toDTO(movieRepository.save(movie));
     }
@@ -141,21 +271,23 @@ public class MovieService {
         }
 
         movie.getGenreIds().removeAll(idsToRemove);
+        catalogCache.evictMovieWithCast(movie);
 
         return movieMapper.toDTO(movieRepository.save(movie));
     }
 
     @Transactional
     public MovieDto updateMovieGenres(Long movieId, List<String> genreNames) {
-        MovieDto movie = getMovie(movieId);
+        Movie movie = findMovie(movieId);
         List<Long> genreIds = getGenreIdsByNames(genreNames);
         movie.setGenreIds(genreIds);
-        return movieMapper.toDTO(movieRepository.save(movieMapper.toEntity(movie)));
+        catalogCache.evictMovieWithCast(movie);
+        return movieMapper.toDTO(movieRepository.save(movie));
     }
 
     @Transactional
     public MovieDto addMovieGenres(Long movieId, List<String> genreNames) {
-        MovieDto movie = getMovie(movieId);
+        Movie movie = findMovie(movieId);
         List<Long> genreIdsToAdd = getGenreIdsByNames(genreNames);
 
         List<Long> currentGenreIds = movie.getGenreIds();
@@ -167,21 +299,24 @@ public class MovieService {
         updatedGenreIds.addAll(genreIdsToAdd);
 
         movie.setGenreIds(new ArrayList<>(updatedGenreIds));
-        return movieMapper.toDTO(movieRepository.save(movieMapper.toEntity(movie)));
+        catalogCache.evictMovieWithCast(movie);
+        return movieMapper.toDTO(movieRepository.save(movie));
     }
 
     @Transactional
     public MovieDto removeMovieGenres(Long movieId, List<String> genreNames) {
-        MovieDto movie = getMovie(movieId);
+        Movie movie = findMovie(movieId);
         List<Long> genreIdsToRemove = getGenreIdsByNames(genreNames);
 
         List<Long> currentGenreIds = movie.getGenreIds();
         if (currentGenreIds != null && !currentGenreIds.isEmpty()) {
-            currentGenreIds.removeAll(genreIdsToRemove);
-            movie.setGenreIds(currentGenreIds);
-            return movieMapper.toDTO(movieRepository.save(movieMapper.toEntity(movie)));
+            List<Long> updatedGenreIds = new ArrayList<>(currentGenreIds);
+            updatedGenreIds.removeAll(genreIdsToRemove);
+            movie.setGenreIds(updatedGenreIds);
+            catalogCache.evictMovieWithCast(movie);
+            return movieMapper.toDTO(movieRepository.save(movie));
         }
 
-        return movie;
+        return movieMapper.toDTO(movie);
     }
 }
@@ -0,0 +1,56 @@
+package asot.me.rest.service;
+
+import asot.me.rest.dom.Movie;
+import asot.me.rest.dto.RecommendationDto;
+import asot.me.rest.recommendation.Recommendation;
+import asot.me.rest.recommendation.RecommendationEngine;
+import asot.me.rest.repository.AppUserRepository;
+import asot.me.rest.repository.MovieRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class RecommendationService {
+    private final RecommendationEngine recommendationEngine;
+    private final AppUserRepository appUserRepository;
+    private final MovieRepository movieRepository;
+
+    /**
+     * Scored by the in-memory model, then titled with one lookup for the whole list.
+     */
+    public List<RecommendationDto> getRecommendations(Long appUserId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        if (!appUserRepository.existsById(appUserId)) {
+            throw new EntityNotFoundException("AppUser not found with id: " + appUserId);
+        }
+        List<Recommendation> recommendations = recommendationEngine.recommend(appUserId, limit);
+        Map<Long, Movie> movies = movieRepository.findAllById(recommendations.stream().map(Recommendation::movieId).toList())
+                .stream()
+                .collect(Collectors.toMap(Movie::getId, Function.identity()));
+
+        List<RecommendationDto> result = new ArrayList<>(recommendations.size());
+        for (Recommendation recommendation : recommendations) {
+            Movie movie = movies.get(recommendation.movieId());
+            // deleted since the model last saw it
+            if (movie != null) {
+                result.add(RecommendationDto.builder()
+                        .movieId(movie.getId())
+                        .title(movie.getTitle())
+                        .year(movie.getYear())
+                        .score(recommendation.score())
+                        .build());
+            }
+        }
+        return result;
+    }
+}
@@ -3,50 +3,167 @@ package asot.me.rest.service;
 import asot.me.rest.dom.DailyRequestCount;
 import asot.me.rest.dom.RequestHistory;
 import asot.me.rest.repository.DailyRequestCountRepository;
-import asot.me.rest.repository.RequestHistoryRepository;
-import lombok.RequiredArgsConstructor;
+import asot.me.rest.repository.RequestTrackingBatchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Records outbound TMDB calls off the request path. Events are buffered in memory and written
+ * in JDBC batches when the buffer reaches flush-size or every flush-interval, and drained on shutdown.
+ */
 @Service
-@RequiredArgsConstructor
+@Log4j2
 public class RequestTrackingService {
+    // column lengths of request_history, longer values are cut before buffering so a row always fits
+    private static final int MAX_URL_LENGTH = 255;
+    private static final int MAX_QUERY_PARAMS_LENGTH = 2000;
 
-    private final RequestHistoryRepository requestHistoryRepository;
+    private final RequestTrackingBatchRepository requestTrackingBatchRepository;
     private final DailyRequestCountRepository dailyRequestCountRepository;
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+    private final int flushSize;
+    private final long flushIntervalMillis;
+    private final BlockingQueue<RequestHistory> buffer;
+    private final AtomicBoolean flushQueued = new AtomicBoolean(false);
+    private final Object flushLock = new Object();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "request-tracking-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
 
+    public RequestTrackingService(
+            RequestTrackingBatchRepository requestTrackingBatchRepository,
+            DailyRequestCountRepository dailyRequestCountRepository,
+            @Value("${tmdb.tracking.flush-size:200}") int flushSize,
+            @Value("${tmdb.tracking.flush-interval-ms:2000}") long flushIntervalMillis,
+            @Value("${tmdb.tracking.max-buffered:100000}") int maxBuffered
+    ) {
+        this.requestTrackingBatchRepository = requestTrackingBatchRepository;
+        this.dailyRequestCountRepository = dailyRequestCountRepository;
+        this.flushSize = flushSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.buffer = new LinkedBlockingQueue<>(maxBuffered);
+    }
+
+    @PostConstruct
+    public void init() {
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
 
-    @Transactional
     public void trackRequest(String url, String queryParams, boolean result) {
-        // Create and save request history
         RequestHistory history = RequestHistory.builder()
                 .executionDateTime(LocalDateTime.now())
-                .url(url)
-                .queryParams(queryParams)
+                .url(truncate(url, MAX_URL_LENGTH))
+                .queryParams(truncate(queryParams, MAX_QUERY_PARAMS_LENGTH))
                 .result(result)
                 .build();
-        requestHistoryRepository.save(history);
 
-        // Update daily count
-        String today = LocalDate.now().format(dateFormatter);
-        Optional<DailyRequestCount> dailyCountOpt = dailyRequestCountRepository.findById(today);
+        if (!buffer.offer(history)) {
+            // buffer full, the database is falling behind: apply back pressure to the caller
+            flushQuietly();
+            if (!buffer.offer(history)) {
+                log.error("Request tracking buffer full, dropping event for {}", url);
+            }
+        }
+
+        if (buffer.size() >= flushSize && flushQueued.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushQueued.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * Writes everything buffered so far. When a batch fails its rows are retried one by one,
+     * and the ones that fail again are dropped rather than re-queued forever.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<RequestHistory> batch = new ArrayList<>(flushSize);
+            while (buffer.drainTo(batch, flushSize) > 0) {
+                try {
+                    requestTrackingBatchRepository.saveBatch(batch, countsByDate(batch));
+                } catch (RuntimeException e) {
+                    log.warn("Saving {} request tracking events failed, retrying one by one e:{}", batch.size(), e.getLocalizedMessage());
+                    saveOneByOne(batch);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void saveOneByOne(List<RequestHistory> batch) {
+        int dropped = 0;
+        for (RequestHistory history : batch) {
+            List<RequestHistory> single = List.of(history);
+            try {
+                requestTrackingBatchRepository.saveBatch(single, countsByDate(single));
+            } catch (RuntimeException e) {
+                dropped++;
+                log.error("Dropping request tracking event for {} e:{}", history.getUrl(), e.getLocalizedMessage());
+            }
+        }
+        if (dropped > 0) {
+            log.error("Dropped {} of {} request tracking events", dropped, batch.size());
+        }
+    }
+
+    private Map<String, Long> countsByDate(List<RequestHistory> batch) {
+        Map<String, Long> countsByDate = new TreeMap<>();
+        for (RequestHistory history : batch) {
+            countsByDate.merge(history.getExecutionDateTime().toLocalDate().format(dateFormatter), 1L, Long::sum);
+        }
+        return countsByDate;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : value.substring(0, maxLength);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Exception flushing request tracking buffer e:{}", e.getLocalizedMessage());
+        }
+    }
+
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    /**
+     * Requests made today, including the ones still waiting in the buffer.
+     */
+    public long getRequestCountToday() {
+        long persisted = dailyRequestCountRepository.findById(LocalDate.now().format(dateFormatter))
+                .map(DailyRequestCount::getTotalRequests)
+                .orElse(0L);
+        return persisted + buffer.size();
+    }
 
-        if (dailyCountOpt.isPresent()) {
-            DailyRequestCount dailyCount = dailyCountOpt.get();
-            dailyCount.setTotalRequests(dailyCount.getTotalRequests() + 1);
-            dailyRequestCountRepository.save(dailyCount);
-        } else {
-            DailyRequestCount newDailyCount = DailyRequestCount.builder()
-                    .date(today)
-                    .totalRequests(1L)
-                    .build();
-            dailyRequestCountRepository.save(newDailyCount);
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flushQuietly();
+        if (!buffer.isEmpty()) {
+            log.error("{} request tracking events could not be written on shutdown", buffer.size());
         }
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,7 @@
 package asot.me.rest.service;
 
-import asot.me.rest.dom.Genre;
 import asot.me.rest.dom.GenreEnums;
 import asot.me.rest.dom.TvShow;
-import asot.me.rest.repository.GenreRepository;
 import asot.me.rest.repository.TvShowRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -13,15 +11,15 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class TvShowService {
 
     private final TvShowRepository tvShowRepository;
-    private final GenreRepository genreRepository;
+    private final GenreService genreService;
 
     public List<TvShow> getAllTvShows() {
         return tvShowRepository.findAll();
@@ -33,15 +31,16 @@ public class TvShowService {
     }
 
     private List<Long> getGenreIdsByNames(List<String> genreNames) {
-        List<Genre> genres = genreRepository.findByNameIn(genreNames);
-
-        if (genres.size() != genreNames.size()) {
-            throw new IllegalArgumentException("Some genres could not be found");
+        Map<String, Long> genreIdsByName = genreService.getGenreIdsByName();
+        List<Long> genreIds = new ArrayList<>();
+        for (String genreName : genreNames) {
+            Long genreId = genreIdsByName.get(genreName);
+            if (genreId == null) {
+                throw new IllegalArgumentException("Some genres could not be found");
+            }
+            genreIds.add(genreId);
         }
-
-        return genres.stream()
-                .map(Genre::getId)
-                .collect(Collectors.toList());
+        return genreIds;
     }
 
     @Transactional
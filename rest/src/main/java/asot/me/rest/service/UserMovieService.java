@@ -1,65 +1,90 @@
 package asot.me.rest.service;
 
-import asot.me.rest.dom.AppUser;
-import asot.me.rest.dom.Movie;
-import asot.me.rest.dom.UserMovie;
-import asot.me.rest.dom.UserMovieId;
+import asot.me.rest.dto.UserLibraryCriteria;
+import asot.me.rest.dto.UserMovieBatchRequest;
+import asot.me.rest.dto.UserMovieDeltaDto;
 import asot.me.rest.dto.UserMovieDto;
-import asot.me.rest.mapper.UserMovieMapper;
 import asot.me.rest.repository.AppUserRepository;
-import asot.me.rest.repository.MovieRepository;
-import asot.me.rest.repository.UserMovieRepository;
+import asot.me.rest.pagination.CursorCodec;
+import asot.me.rest.recommendation.RecommendationEngine;
+import asot.me.rest.repository.UserLibraryRepository;
+import asot.me.rest.repository.UserMovieBatchRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class UserMovieService {
     private final AppUserRepository appUserRepository;
-    private final MovieRepository movieRepository;
-    private final UserMovieRepository userMovieRepository;
-    private final UserMovieMapper userMovieMapper;
+    private final UserMovieBatchRepository userMovieBatchRepository;
+    private final UserLibraryRepository userLibraryRepository;
+    private final CursorCodec cursorCodec;
+    private final RecommendationEngine recommendationEngine;
+    private final UserStatsService userStatsService;
 
-    public List<UserMovieDto> updateUserMovie(UserMovieDto userMovieDto) {
-        UserMovieId userMovieId = UserMovieId
-                .builder()
-                .appUserId(userMovieDto.getAppUserId())
-                .movieId(userMovieDto.getMovieId())
-                .build();
-
-        UserMovie userMovie = userMovieRepository.findById(userMovieId).orElse(null);
+    /**
+     * One keyset page of the user's library; an empty cursor starts at the first row.
+     */
+    public Window<UserMovieDto> getLibrary(Long appUserId, UserLibraryCriteria criteria, Sort sort, int size, String cursor) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("_end must be greater than _start");
+        }
+        if (!appUserRepository.existsById(appUserId)) {
+            throw new EntityNotFoundException("AppUser not found with id: " + appUserId);
+        }
+        return userLibraryRepository.findPage(appUserId, criteria, sort, size,
+                cursorCodec.decode(cursor, sort, UserLibraryRepository::keyType));
+    }
 
-        if (userMovie == null){
-            AppUser appUser = appUserRepository.findById(userMovieDto.getAppUserId())
-                .orElseThrow(() -> new EntityNotFoundException("AppUser not found with id: " + userMovieDto.getAppUserId()));
+    @Transactional
+    public UserMovieDeltaDto updateUserMovie(UserMovieDto userMovieDto) {
+        return updateUserMovies(userMovieDto.getAppUserId(), List.of(userMovieDto));
+    }
 
-            Movie movie = movieRepository.findById(userMovieDto.getMovieId())
-                    .orElseThrow(() -> new EntityNotFoundException("Movie not found with id: " + userMovieDto.getMovieId()));
+    /**
+     * Applies all changes in one transaction and one statement; the last change for a movie wins.
+     */
+    @Transactional
+    public UserMovieDeltaDto updateUserMovies(UserMovieBatchRequest request) {
+        return updateUserMovies(request.getAppUserId(), request.getChanges());
+    }
 
-            userMovie = UserMovie
-                    .builder()
-                    .movieId(userMovieDto.getMovieId())
-                    .appUserId(userMovieDto.getAppUserId())
-                    .movie(movie)
-                    .appUser(appUser)
-                    .build();
+    private UserMovieDeltaDto updateUserMovies(Long appUserId, List<UserMovieDto> changes) {
+        if (appUserId == null) {
+            throw new IllegalArgumentException("appUserId is required");
         }
-
-        userMovie.setFavorite(userMovieDto.isFavorite());
-        userMovie.setWatched(userMovieDto.isWatched());
-
-        if (!userMovieDto.isFavorite() && !userMovieDto.isWatched()) {
-            userMovieRepository.deleteById(userMovieId);
-        } else {
-            userMovieRepository.saveAndFlush(userMovie);
+        if (changes == null || changes.isEmpty()) {
+            throw new IllegalArgumentException("changes must not be empty");
+        }
+        if (!appUserRepository.existsById(appUserId)) {
+            throw new EntityNotFoundException("AppUser not found with id: " + appUserId);
         }
 
-        List<UserMovie> userMovies = userMovieRepository.findByAppUserId(userMovieDto.getAppUserId());
+        Map<Long, UserMovieDto> byMovieId = new LinkedHashMap<>();
+        for (UserMovieDto change : changes) {
+            if (change.getMovieId() == null) {
+                throw new IllegalArgumentException("movieId is required");
+            }
+            byMovieId.put(change.getMovieId(), change);
+        }
+        Set<Long> existing = userMovieBatchRepository.findExistingMovieIds(byMovieId.keySet());
+        if (existing.size() != byMovieId.size()) {
+            List<Long> missing = byMovieId.keySet().stream().filter(id -> !existing.contains(id)).toList();
+            throw new EntityNotFoundException("Movies not found with ids: " + missing);
+        }
 
-        return userMovieMapper.toDtoList(userMovies);
+        UserMovieBatchRepository.BatchResult result = userMovieBatchRepository.applyChanges(appUserId, List.copyOf(byMovieId.values()));
+        userStatsService.libraryChanged(appUserId, result.previous(), result.delta().getChanges());
+        recommendationEngine.libraryChanged(appUserId, result.previous(), result.delta().getChanges());
+        return result.delta();
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+package asot.me.rest.service;
+
+import asot.me.rest.dto.UserMovieDto;
+import asot.me.rest.dto.UserStatEntryDto;
+import asot.me.rest.dto.UserStatsDto;
+import asot.me.rest.dto.UserStatsRebuildResultDto;
+import asot.me.rest.repository.AppUserRepository;
+import asot.me.rest.repository.UserStatsRepository;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Profile statistics read from precomputed per-user counters. Counters follow library writes;
+ * metadata changes to movies already in libraries (genres, cast) show up after a rebuild.
+ */
+@Service
+@Log4j2
+public class UserStatsService {
+    private final UserStatsRepository userStatsRepository;
+    private final AppUserRepository appUserRepository;
+    private final int rebuildBatchSize;
+
+    public UserStatsService(UserStatsRepository userStatsRepository,
+                            AppUserRepository appUserRepository,
+                            @Value("${user-stats.rebuild-batch-size:500}") int rebuildBatchSize) {
+        this.userStatsRepository = userStatsRepository;
+        this.appUserRepository = appUserRepository;
+        this.rebuildBatchSize = rebuildBatchSize;
+    }
+
+    /**
+     * Call inside the transaction that changed the user's library.
+     *
+     * @param previous how the changed rows looked before, absent when the movie was not in the library
+     * @param changes  the rows as written, both flags false when removed
+     */
+    public void libraryChanged(Long appUserId, Map<Long, UserMovieDto> previous, List<UserMovieDto> changes) {
+        List<Long> movieIds = new ArrayList<>(changes.size());
+        List<Integer> watched = new ArrayList<>(changes.size());
+        List<Integer> favorite = new ArrayList<>(changes.size());
+        for (UserMovieDto change : changes) {
+            UserMovieDto before = previous.get(change.getMovieId());
+            int watchedDelta = flag(change.isWatched()) - (before == null ? 0 : flag(before.isWatched()));
+            int favoriteDelta = flag(change.isFavorite()) - (before == null ? 0 : flag(before.isFavorite()));
+            if (watchedDelta != 0 || favoriteDelta != 0) {
+                movieIds.add(change.getMovieId());
+                watched.add(watchedDelta);
+                favorite.add(favoriteDelta);
+            }
+        }
+        if (!movieIds.isEmpty()) {
+            userStatsRepository.applyDeltas(appUserId, movieIds, watched, favorite);
+        }
+    }
+
+    public UserStatsDto getStats(Long appUserId, int actorLimit) {
+        if (actorLimit < 0) {
+            throw new IllegalArgumentException("actors must not be negative");
+        }
+        if (!appUserRepository.existsById(appUserId)) {
+            throw new EntityNotFoundException("AppUser not found with id: " + appUserId);
+        }
+        UserStatsDto stats = UserStatsDto.builder()
+                .appUserId(appUserId)
+                .genres(new ArrayList<>())
+                .decades(new ArrayList<>())
+                .actors(new ArrayList<>())
+                .build();
+        userStatsRepository.forEachSummaryCounter(appUserId, rs -> {
+            long key = rs.getLong("key");
+            long watched = rs.getLong("watched");
+            long favorite = rs.getLong("favorite");
+            switch (rs.getString("kind")) {
+                case UserStatsRepository.TOTAL -> {
+                    stats.setWatched(watched);
+                    stats.setFavorite(favorite);
+                }
+                case UserStatsRepository.GENRE -> stats.getGenres().add(entry(key, rs.getString("name"), watched, favorite));
+                case UserStatsRepository.DECADE -> stats.getDecades().add(entry(key, key + "s", watched, favorite));
+                default -> {
+                }
+            }
+        });
+        stats.getGenres().sort(Comparator.comparingLong(UserStatEntryDto::getWatched).reversed()
+                .thenComparing(Comparator.comparingLong(UserStatEntryDto::getFavorite).reversed())
+                .thenComparingLong(UserStatEntryDto::getId));
+        stats.getDecades().sort(Comparator.comparingLong(UserStatEntryDto::getId));
+        if (actorLimit > 0) {
+            userStatsRepository.forEachTopActor(appUserId, actorLimit, rs -> stats.getActors().add(entry(rs.getLong("key"),
+                    fullName(rs.getString("firstname"), rs.getString("lastname")), rs.getLong("watched"), rs.getLong("favorite"))));
+        }
+        return stats;
+    }
+
+    /**
+     * Recomputes every user's counters from user_movie, one transaction per batch of users.
+     */
+    public UserStatsRebuildResultDto rebuildAll() {
+        long started = System.currentTimeMillis();
+        long users = 0;
+        long afterId = 0;
+        List<Long> batch;
+        while (!(batch = userStatsRepository.rebuildAfter(afterId, rebuildBatchSize)).isEmpty()) {
+            users += batch.size();
+            afterId = batch.get(batch.size() - 1);
+        }
+        long elapsedMs = System.currentTimeMillis() - started;
+        log.info("User stats rebuilt for {} users in {} ms", users, elapsedMs);
+        return UserStatsRebuildResultDto.builder().users(users).elapsedMs(elapsedMs).build();
+    }
+
+    public UserStatsRebuildResultDto rebuild(Long appUserId) {
+        long started = System.currentTimeMillis();
+        if (!userStatsRepository.rebuild(appUserId)) {
+            throw new EntityNotFoundException("AppUser not found with id: " + appUserId);
+        }
+        return UserStatsRebuildResultDto.builder().users(1).elapsedMs(System.currentTimeMillis() - started).build();
+    }
+
+    private static UserStatEntryDto entry(long id, String name, long watched, long favorite) {
+        return UserStatEntryDto.builder().id(id).name(name).watched(watched).favorite(favorite).build();
+    }
+
+    private static String fullName(String firstname, String lastname) {
+        if (firstname == null) {
+            return lastname;
+        }
+        return lastname == null ? firstname : firstname + " " + lastname;
+    }
+
+    private static int flag(boolean value) {
+        return value ? 1 : 0;
+    }
+}
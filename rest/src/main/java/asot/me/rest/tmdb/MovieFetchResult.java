@@ -0,0 +1,32 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.tmdb.response.TmdbMovieDetailsResponse;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class MovieFetchResult {
+
+    public enum Status {
+        FOUND,
+        NOT_FOUND,
+        FAILED
+    }
+
+    private final long movieId;
+    private final Status status;
+    private final TmdbMovieDetailsResponse details;
+
+    public static MovieFetchResult found(long movieId, TmdbMovieDetailsResponse details) {
+        return new MovieFetchResult(movieId, Status.FOUND, details);
+    }
+
+    public static MovieFetchResult notFound(long movieId) {
+        return new MovieFetchResult(movieId, Status.NOT_FOUND, null);
+    }
+
+    public static MovieFetchResult failed(long movieId) {
+        return new MovieFetchResult(movieId, Status.FAILED, null);
+    }
+}
@@ -0,0 +1,172 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.service.RequestTrackingService;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import okhttp3.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single HTTP client for TMDB. Owns the connection pool, dispatcher, timeouts and the shared
+ * Moshi adapters, and tracks every outbound call, so services only build urls and map responses.
+ */
+@Component
+@Log4j2
+public class TmdbClient {
+    private final String apiToken;
+    private final HttpUrl baseUrl;
+    private final RequestTrackingService requestTrackingService;
+    private final TmdbResponseCache tmdbResponseCache;
+    private final OkHttpClient client;
+    private final Moshi moshi = new Moshi.Builder().build();
+    private final Map<Class<?>, JsonAdapter<?>> adapters = new ConcurrentHashMap<>();
+
+    public TmdbClient(
+            TmdbRateLimiter tmdbRateLimiter,
+            TmdbResponseCache tmdbResponseCache,
+            RequestTrackingService requestTrackingService,
+            @Value("${TMDB:asd}") String apiToken,
+            @Value("${tmdb.api.base-url:https://api.themoviedb.org/3/}") String baseUrl,
+            @Value("${tmdb.http.connect-timeout-ms:5000}") long connectTimeoutMillis,
+            @Value("${tmdb.http.read-timeout-ms:15000}") long readTimeoutMillis,
+            @Value("${tmdb.http.call-timeout-ms:120000}") long callTimeoutMillis,
+            @Value("${tmdb.http.max-idle-connections:16}") int maxIdleConnections,
+            @Value("${tmdb.http.keep-alive-ms:300000}") long keepAliveMillis,
+            @Value("${tmdb.http.max-requests:64}") int maxRequests,
+            @Value("${tmdb.http.max-requests-per-host:32}") int maxRequestsPerHost,
+            @Value("${tmdb.http.http2:true}") boolean http2
+    ) {
+        this.apiToken = apiToken;
+        this.baseUrl = HttpUrl.get(baseUrl);
+        this.requestTrackingService = requestTrackingService;
+        this.tmdbResponseCache = tmdbResponseCache;
+
+        // dispatcher limits only apply to enqueued (async) calls, blocking calls are bounded by the callers' pools
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+                .protocols(http2 ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1))
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .readTimeout(Duration.ofMillis(readTimeoutMillis))
+                .callTimeout(Duration.ofMillis(callTimeoutMillis))
+                .retryOnConnectionFailure(true)
+                .cache(tmdbResponseCache.getCache())
+                .addInterceptor(tmdbRateLimiter)
+                .addNetworkInterceptor(tmdbRateLimiter.permitInterceptor())
+                .addNetworkInterceptor(tmdbResponseCache)
+                .build();
+    }
+
+    /**
+     * Url builder relative to the TMDB api root, e.g. url("search/movie").addQueryParameter(...).
+     */
+    public HttpUrl.Builder url(String path) {
+        return baseUrl.newBuilder().addPathSegments(path.startsWith("/") ? path.substring(1) : path);
+    }
+
+    public Request get(HttpUrl url) {
+        return new Request.Builder()
+                .url(url)
+                .get()
+                .addHeader("accept", "application/json")
+                .addHeader("Authorization", "Bearer " + apiToken)
+                .build();
+    }
+
+    /**
+     * Executes the call and records it with the RequestTrackingService, unless it was answered from the
+     * local cache. When TMDB fails and stale-if-error is on, a stale cached copy is returned instead.
+     * The caller closes the response.
+     */
+    public Response execute(Request request) throws IOException {
+        Response response;
+        try {
+            response = client.newCall(request).execute();
+        } catch (IOException e) {
+            if (!(e instanceof TmdbThrottledException)) {
+                track(request, false);
+            }
+            Response stale = staleResponse(request);
+            if (stale != null) {
+                return stale;
+            }
+            throw e;
+        }
+
+        if (!TmdbResponseCache.isCacheHit(response)) {
+            track(request, response.isSuccessful());
+        }
+
+        if (response.code() >= 500) {
+            Response stale = staleResponse(request);
+            if (stale != null) {
+                response.close();
+                return stale;
+            }
+        }
+        return response;
+    }
+
+    private Response staleResponse(Request request) {
+        if (!tmdbResponseCache.isStaleIfError()) {
+            return null;
+        }
+        try {
+            Response stale = client.newCall(tmdbResponseCache.staleRequest(request)).execute();
+            if (stale.isSuccessful()) {
+                tmdbResponseCache.recordStaleServed();
+                log.warn("Serving stale cached TMDB response for {}", request.url().encodedPath());
+                return stale;
+            }
+            stale.close();
+        } catch (IOException e) {
+            log.warn("Exception reading stale TMDB response e:{}", e.getLocalizedMessage());
+        }
+        return null;
+    }
+
+    private void track(Request request, boolean result) {
+        requestTrackingService.trackRequest(request.url().encodedPath(), request.url().encodedQuery(), result);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> JsonAdapter<T> adapter(Class<T> type) {
+        return (JsonAdapter<T>) adapters.computeIfAbsent(type, moshi::adapter);
+    }
+
+    public <T> T readBody(Response response, Class<T> type) throws IOException {
+        return adapter(type).fromJson(response.body().source());
+    }
+
+    public Moshi getMoshi() {
+        return moshi;
+    }
+
+    public int getConnectionCount() {
+        return client.connectionPool().connectionCount();
+    }
+
+    public int getIdleConnectionCount() {
+        return client.connectionPool().idleConnectionCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
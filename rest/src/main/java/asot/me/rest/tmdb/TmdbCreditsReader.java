@@ -0,0 +1,145 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.dom.Genre;
+import asot.me.rest.tmdb.response.Credits;
+import asot.me.rest.tmdb.response.TmdbCastMember;
+import asot.me.rest.tmdb.response.TmdbMovieDetailsResponse;
+import com.squareup.moshi.JsonReader;
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming readers for TMDB credits payloads. Only the fields we persist are decoded, cast
+ * entries past the limit and the whole crew are skipped token by token without allocating,
+ * so a movie with hundreds of credits costs about as much as one with a dozen.
+ * The rest of the document is still consumed so the connection and the response cache stay usable.
+ */
+public final class TmdbCreditsReader {
+    private static final JsonReader.Options DETAILS_FIELDS = JsonReader.Options.of("id", "title", "release_date", "genres", "credits");
+    private static final JsonReader.Options CREDITS_FIELDS = JsonReader.Options.of("cast");
+    private static final JsonReader.Options CAST_FIELDS = JsonReader.Options.of("id", "name");
+    private static final JsonReader.Options GENRE_FIELDS = JsonReader.Options.of("id", "name");
+
+    private TmdbCreditsReader() {
+    }
+
+    /**
+     * Reads a movie/{id}?append_to_response=credits body, keeping at most castLimit cast members.
+     */
+    public static TmdbMovieDetailsResponse readMovieDetails(BufferedSource source, int castLimit) throws IOException {
+        try (JsonReader reader = JsonReader.of(source)) {
+            TmdbMovieDetailsResponse details = new TmdbMovieDetailsResponse();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.selectName(DETAILS_FIELDS)) {
+                    case 0 -> details.setId(nextLong(reader));
+                    case 1 -> details.setTitle(nextString(reader));
+                    case 2 -> details.setReleaseDate(nextString(reader));
+                    case 3 -> details.setGenres(readGenres(reader));
+                    case 4 -> details.setCredits(readCredits(reader, castLimit));
+                    default -> {
+                        reader.skipName();
+                        reader.skipValue();
+                    }
+                }
+            }
+            reader.endObject();
+            return details;
+        }
+    }
+
+    /**
+     * Reads a movie/{id}/credits body, keeping at most castLimit cast members.
+     */
+    public static Credits readCredits(BufferedSource source, int castLimit) throws IOException {
+        try (JsonReader reader = JsonReader.of(source)) {
+            return readCredits(reader, castLimit);
+        }
+    }
+
+    private static Credits readCredits(JsonReader reader, int castLimit) throws IOException {
+        if (reader.peek() == JsonReader.Token.NULL) {
+            return reader.nextNull();
+        }
+        Credits credits = new Credits();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.selectName(CREDITS_FIELDS) == 0) {
+                credits.setCast(readCast(reader, castLimit));
+            } else {
+                // crew and the movie id
+                reader.skipName();
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return credits;
+    }
+
+    private static List<TmdbCastMember> readCast(JsonReader reader, int castLimit) throws IOException {
+        if (reader.peek() == JsonReader.Token.NULL) {
+            return reader.nextNull();
+        }
+        List<TmdbCastMember> cast = new ArrayList<>(castLimit);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (cast.size() >= castLimit) {
+                reader.skipValue();
+                continue;
+            }
+            TmdbCastMember castMember = new TmdbCastMember();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.selectName(CAST_FIELDS)) {
+                    case 0 -> castMember.setId(nextLong(reader));
+                    case 1 -> castMember.setName(nextString(reader));
+                    default -> {
+                        reader.skipName();
+                        reader.skipValue();
+                    }
+                }
+            }
+            reader.endObject();
+            cast.add(castMember);
+        }
+        reader.endArray();
+        return cast;
+    }
+
+    private static List<Genre> readGenres(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonReader.Token.NULL) {
+            return reader.nextNull();
+        }
+        List<Genre> genres = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Genre genre = new Genre();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.selectName(GENRE_FIELDS)) {
+                    case 0 -> genre.setId(nextLong(reader));
+                    case 1 -> genre.setName(nextString(reader));
+                    default -> {
+                        reader.skipName();
+                        reader.skipValue();
+                    }
+                }
+            }
+            reader.endObject();
+            genres.add(genre);
+        }
+        reader.endArray();
+        return genres;
+    }
+
+    private static Long nextLong(JsonReader reader) throws IOException {
+        return reader.peek() == JsonReader.Token.NULL ? reader.nextNull() : reader.nextLong();
+    }
+
+    private static String nextString(JsonReader reader) throws IOException {
+        return reader.peek() == JsonReader.Token.NULL ? reader.nextNull() : reader.nextString();
+    }
+}
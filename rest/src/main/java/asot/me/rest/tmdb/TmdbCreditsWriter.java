@@ -0,0 +1,74 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.autocomplete.AutocompleteIndex;
+import asot.me.rest.dom.Actor;
+import asot.me.rest.repository.ActorBatchRepository;
+import asot.me.rest.service.CatalogCache;
+import asot.me.rest.tmdb.response.TmdbCastMember;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Writes TMDB cast lists as actors and movie_actor links with a fixed number of statements:
+ * one lookup of every cast id, one insert of the new actors and one insert of the links,
+ * however many movies and cast members are passed in.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class TmdbCreditsWriter {
+    private final ActorBatchRepository actorBatchRepository;
+    private final CatalogCache catalogCache;
+    private final AutocompleteIndex autocompleteIndex;
+
+    /**
+     * @param castByMovieId cast members per movie id, already trimmed to the wanted size.
+     *                      The movies must already be flushed to the database.
+     *                      Cached entries for these movies and cast members are evicted.
+     */
+    @Transactional
+    public void linkCast(Map<Long, List<TmdbCastMember>> castByMovieId) {
+        Map<Long, TmdbCastMember> castById = new LinkedHashMap<>();
+        List<Long> actorIds = new ArrayList<>();
+        List<Long> movieIds = new ArrayList<>();
+        castByMovieId.forEach((movieId, cast) -> {
+            for (TmdbCastMember castMember : cast) {
+                castById.putIfAbsent(castMember.getId(), castMember);
+                actorIds.add(castMember.getId());
+                movieIds.add(movieId);
+            }
+        });
+        catalogCache.evictMovies(castByMovieId.keySet());
+        catalogCache.evictActors(castById.keySet());
+        if (castById.isEmpty()) {
+            return;
+        }
+
+        Set<Long> existingIds = actorBatchRepository.findExistingIds(castById.keySet());
+        List<Actor> newActors = castById.values().stream()
+                .filter(castMember -> !existingIds.contains(castMember.getId()))
+                .map(TmdbCreditsWriter::toActor)
+                .toList();
+
+        int inserted = actorBatchRepository.insertActors(newActors);
+        newActors.forEach(actor -> autocompleteIndex.actorSaved(actor.getId(), actor.getFirstname(), actor.getLastname()));
+        int linked = actorBatchRepository.linkActorsToMovies(actorIds, movieIds);
+        log.debug("Cast for {} movies: {} new actors, {} new links", castByMovieId.size(), inserted, linked);
+    }
+
+    static Actor toActor(TmdbCastMember castMember) {
+        String[] nameParts = castMember.getName().split(" ", 2);
+        String firstName = nameParts[0];
+        String lastName = nameParts.length > 1 ? nameParts[1] : "";
+
+        return Actor.builder()
+                .id(castMember.getId())
+                .firstname(firstName)
+                .lastname(lastName)
+                .build();
+    }
+}
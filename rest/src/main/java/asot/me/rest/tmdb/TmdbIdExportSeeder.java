@@ -0,0 +1,152 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.dom.GlobalSettings;
+import asot.me.rest.dto.IdExportSeedRequest;
+import asot.me.rest.dto.IdExportSeedResultDto;
+import asot.me.rest.repository.GlobalSettingsRepository;
+import asot.me.rest.tmdb.response.TmdbIdExportEntry;
+import com.squareup.moshi.JsonAdapter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Builds the crawler work list from TMDB's daily id export (gzip, one JSON object per line).
+ * The file is streamed line by line; only the accepted ids are kept, as a sorted primitive array.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class TmdbIdExportSeeder {
+    private final TmdbClient tmdbClient;
+    private final TmdbMovieCrawler movieCrawler;
+    private final GlobalSettingsRepository globalSettingsRepository;
+
+    public IdExportSeedResultDto seed(IdExportSeedRequest seedRequest) throws IOException {
+        IdExportSeedResultDto result = load(seedRequest);
+
+        GlobalSettings globalSettings = getGlobalSettings();
+        globalSettings.setIdExportPath(seedRequest.getPath());
+        globalSettings.setIdExportMinPopularity(seedRequest.getMinPopularity());
+        globalSettings.setIdExportIncludeAdult(seedRequest.isIncludeAdult());
+        globalSettingsRepository.save(globalSettings);
+        return result;
+    }
+
+    public void clear() {
+        movieCrawler.setWorkList(null);
+        GlobalSettings globalSettings = getGlobalSettings();
+        globalSettings.setIdExportPath(null);
+        globalSettings.setIdExportMinPopularity(null);
+        globalSettings.setIdExportIncludeAdult(null);
+        globalSettingsRepository.save(globalSettings);
+    }
+
+    /**
+     * Re-streams the export recorded in GlobalSettings, so a restart keeps crawling in seeded mode.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        GlobalSettings globalSettings = globalSettingsRepository.findById(1L).orElse(null);
+        if (globalSettings == null || globalSettings.getIdExportPath() == null) {
+            return;
+        }
+        IdExportSeedRequest seedRequest = new IdExportSeedRequest(
+                globalSettings.getIdExportPath(),
+                globalSettings.getIdExportMinPopularity() == null ? 0 : globalSettings.getIdExportMinPopularity(),
+                Boolean.TRUE.equals(globalSettings.getIdExportIncludeAdult()));
+        try {
+            load(seedRequest);
+        } catch (IOException e) {
+            log.error("Exception restoring TMDB id export {} e:{}", seedRequest.getPath(), e.getLocalizedMessage());
+        }
+    }
+
+    private IdExportSeedResultDto load(IdExportSeedRequest seedRequest) throws IOException {
+        Path path = Path.of(seedRequest.getPath());
+        JsonAdapter<TmdbIdExportEntry> adapter = tmdbClient.adapter(TmdbIdExportEntry.class);
+
+        long[] ids = new long[1 << 16];
+        int size = 0;
+        long linesRead = 0;
+        long filteredOut = 0;
+        long malformed = 0;
+
+        try (InputStream in = Files.newInputStream(path);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     seedRequest.getPath().endsWith(".gz") ? new GZIPInputStream(in, 1 << 16) : in,
+                     StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                linesRead++;
+
+                TmdbIdExportEntry entry;
+                try {
+                    entry = adapter.fromJson(line);
+                } catch (Exception e) {
+                    malformed++;
+                    continue;
+                }
+                if (entry == null || entry.getId() == null) {
+                    malformed++;
+                    continue;
+                }
+                if ((entry.isAdult() && !seedRequest.isIncludeAdult()) || entry.getPopularity() < seedRequest.getMinPopularity()) {
+                    filteredOut++;
+                    continue;
+                }
+
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = entry.getId();
+            }
+        }
+
+        long[] workList = sortedDistinct(ids, size);
+        movieCrawler.setWorkList(workList);
+        log.info("Loaded {} ids from TMDB export {} ({} lines, {} filtered, {} malformed)",
+                workList.length, path, linesRead, filteredOut, malformed);
+
+        return IdExportSeedResultDto.builder()
+                .path(seedRequest.getPath())
+                .linesRead(linesRead)
+                .idsAccepted(workList.length)
+                .filteredOut(filteredOut)
+                .malformed(malformed)
+                .minId(workList.length == 0 ? null : workList[0])
+                .maxId(workList.length == 0 ? null : workList[workList.length - 1])
+                .build();
+    }
+
+    private static long[] sortedDistinct(long[] ids, int size) {
+        Arrays.sort(ids, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    private GlobalSettings getGlobalSettings() {
+        return globalSettingsRepository.findById(1L)
+                .orElseThrow(() -> new RuntimeException("Global settings not found."));
+    }
+}
@@ -0,0 +1,216 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.dto.TmdbIdIndexStatsDto;
+import asot.me.rest.repository.MovieRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed bitmaps of TMDB movie ids already known to be missing (404) or already ingested,
+ * so the crawler and user lookups can skip the request. Persisted to a single file that is
+ * rewritten when dirty; a few MB cover the whole id space and load in milliseconds.
+ */
+@Component
+@Log4j2
+public class TmdbIdIndex {
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+    private final MovieRepository movieRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private RoaringBitmap missing = new RoaringBitmap();
+    private RoaringBitmap ingested = new RoaringBitmap();
+    private volatile boolean dirty;
+
+    public TmdbIdIndex(@Value("${tmdb.id-index.file:${java.io.tmpdir}/movietracker-tmdb-id-index.bin}") String file,
+                       MovieRepository movieRepository) {
+        this.file = Path.of(file);
+        this.movieRepository = movieRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != FORMAT_VERSION) {
+                    throw new IOException("Unknown id index format");
+                }
+                missing.deserialize(in);
+                ingested.deserialize(in);
+                log.info("Loaded TMDB id index: {} missing, {} ingested", missing.getLongCardinality(), ingested.getLongCardinality());
+                return;
+            } catch (IOException e) {
+                log.warn("Could not read TMDB id index {}, rebuilding e:{}", file, e.getLocalizedMessage());
+                missing = new RoaringBitmap();
+                ingested = new RoaringBitmap();
+            }
+        }
+        // nothing on disk yet: ingested ids can be recovered from the movie table, missing ones cannot
+        for (Long id : movieRepository.findQueriedIds()) {
+            if (fits(id)) {
+                ingested.add(id.intValue());
+            }
+        }
+        dirty = true;
+    }
+
+    public boolean isMissing(long movieId) {
+        return contains(missing, movieId);
+    }
+
+    public boolean isIngested(long movieId) {
+        return contains(ingested, movieId);
+    }
+
+    /**
+     * True when a request for this id would be wasted.
+     */
+    public boolean isKnown(long movieId) {
+        lock.readLock().lock();
+        try {
+            return fits(movieId) && (missing.contains((int) movieId) || ingested.contains((int) movieId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void markMissing(long movieId) {
+        if (!fits(movieId)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            dirty |= missing.checkedAdd((int) movieId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void markIngested(Collection<Long> movieIds) {
+        lock.writeLock().lock();
+        try {
+            for (Long movieId : movieIds) {
+                if (fits(movieId)) {
+                    dirty |= ingested.checkedAdd(movieId.intValue());
+                    // an id can come back after a 404, the newer answer wins
+                    missing.remove(movieId.intValue());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets an ingested id once the transaction deleting its movie commits, so a movie created again
+     * under the same id is queried and crawled like a new one.
+     */
+    public void unmarkIngested(long movieId) {
+        if (!fits(movieId)) {
+            return;
+        }
+        Runnable unmark = () -> {
+            lock.writeLock().lock();
+            try {
+                dirty |= ingested.checkedRemove((int) movieId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    unmark.run();
+                }
+            });
+        } else {
+            unmark.run();
+        }
+    }
+
+    /**
+     * Forgets known-missing ids, e.g. before a full re-crawl.
+     */
+    public void clearMissing() {
+        lock.writeLock().lock();
+        try {
+            missing = new RoaringBitmap();
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${tmdb.id-index.flush-interval-ms:60000}")
+    @PreDestroy
+    public void save() {
+        if (!dirty) {
+            return;
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        lock.writeLock().lock();
+        try {
+            missing.runOptimize();
+            ingested.runOptimize();
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FORMAT_VERSION);
+                missing.serialize(out);
+                ingested.serialize(out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            log.error("Exception saving TMDB id index e:{}", e.getLocalizedMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public TmdbIdIndexStatsDto getStats() {
+        lock.readLock().lock();
+        try {
+            return TmdbIdIndexStatsDto.builder()
+                    .missingIds(missing.getLongCardinality())
+                    .ingestedIds(ingested.getLongCardinality())
+                    .sizeBytes(missing.serializedSizeInBytes() + ingested.serializedSizeInBytes())
+                    .dirty(dirty)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean contains(RoaringBitmap bitmap, long movieId) {
+        lock.readLock().lock();
+        try {
+            return fits(movieId) && bitmap.contains((int) movieId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // TMDB ids are well below 2^31, anything else is simply not indexed
+    private static boolean fits(long movieId) {
+        return movieId >= 0 && movieId <= Integer.MAX_VALUE;
+    }
+}
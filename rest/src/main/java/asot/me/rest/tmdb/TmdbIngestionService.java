@@ -0,0 +1,194 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.dom.GlobalSettings;
+import asot.me.rest.dto.IngestionStatusDto;
+import asot.me.rest.repository.GlobalSettingsRepository;
+import asot.me.rest.service.CrawlCheckpointService;
+import asot.me.rest.service.RequestTrackingService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Drives the movie crawler from the scheduler instead of manual GET /tmdb/movies calls.
+ * Each tick spends an even share of what is left of today's request budget, backs off
+ * exponentially while the failure rate is high, and resumes after a restart when enabled.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class TmdbIngestionService {
+    @Value("${tmdb.ingestion.tick-ms:10000}")
+    private long tickMillis;
+    @Value("${tmdb.ingestion.daily-budget:500000}")
+    private long dailyBudget;
+    @Value("${tmdb.ingestion.max-ranges-per-tick:16}")
+    private int maxRangesPerTick;
+    @Value("${tmdb.ingestion.error-rate-threshold:0.2}")
+    private double errorRateThreshold;
+    @Value("${tmdb.ingestion.max-backoff-ticks:32}")
+    private int maxBackoffTicks;
+    @Value("${tmdb.ingestion.target-max-id:1500000}")
+    private long targetMaxId;
+
+    private final TmdbMovieCrawler movieCrawler;
+    private final CrawlCheckpointService crawlCheckpointService;
+    private final RequestTrackingService requestTrackingService;
+    private final GlobalSettingsRepository globalSettingsRepository;
+
+    private volatile String state = "PAUSED";
+    // unspent budget carried between ticks, in requests; this and the backoff state are guarded by this
+    private double budgetCredit;
+    private int backoffTicks;
+    private int ticksToSkip;
+    private long sessionIdsProcessed;
+    private long sessionIdsFailed;
+    private long sessionMillis;
+    private volatile LocalDateTime lastTickAt;
+
+    public synchronized void start() {
+        sessionIdsProcessed = 0;
+        sessionIdsFailed = 0;
+        sessionMillis = 0;
+        resume();
+    }
+
+    public synchronized void resume() {
+        backoffTicks = 0;
+        ticksToSkip = 0;
+        setEnabled(true);
+        state = "RUNNING";
+    }
+
+    public synchronized void pause() {
+        setEnabled(false);
+        state = "PAUSED";
+        movieCrawler.stop();
+    }
+
+    /**
+     * Only decides how much to crawl; the crawl itself runs on the crawler's own thread, so a long tick
+     * never holds up the other scheduled jobs. Ticks while it runs just accrue budget.
+     */
+    @Scheduled(fixedDelayString = "${tmdb.ingestion.tick-ms:10000}", initialDelayString = "${tmdb.ingestion.tick-ms:10000}")
+    public synchronized void tick() {
+        if (!isEnabled()) {
+            state = "PAUSED";
+            return;
+        }
+        lastTickAt = LocalDateTime.now();
+
+        if (ticksToSkip > 0) {
+            ticksToSkip--;
+            state = "BACKING_OFF";
+            return;
+        }
+        if (remainingIds() <= 0) {
+            state = "COMPLETED";
+            return;
+        }
+
+        long remainingBudget = dailyBudget - requestTrackingService.getRequestCountToday();
+        if (remainingBudget <= 0) {
+            budgetCredit = 0;
+            state = "BUDGET_EXHAUSTED";
+            return;
+        }
+
+        // spread what is left of today's budget evenly over the rest of the day
+        long secondsLeftToday = Math.max(1, Duration.between(LocalDateTime.now(), LocalDate.now().plusDays(1).atStartOfDay()).toSeconds());
+        budgetCredit = Math.min(remainingBudget, budgetCredit + (double) remainingBudget * tickMillis / 1000 / secondsLeftToday);
+        if (movieCrawler.isRunning()) {
+            // the previous tick's crawl, or a manual one, is still going
+            return;
+        }
+        // a range costs at most rangeSize requests, fewer when ids are known or outside the seeded work list
+        int ranges = (int) Math.min(maxRangesPerTick, budgetCredit / movieCrawler.getRangeSize());
+        if (ranges == 0) {
+            state = "RUNNING";
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        movieCrawler.startRanges(ranges, (requests, failed) -> crawlFinished(requests, failed, started));
+    }
+
+    /**
+     * Charges the TMDB requests the crawl actually made against the budget.
+     */
+    private synchronized void crawlFinished(long requests, long failed, long started) {
+        budgetCredit -= requests;
+        sessionIdsProcessed += requests;
+        sessionIdsFailed += failed;
+        sessionMillis += System.currentTimeMillis() - started;
+        adjustBackoff(requests, failed);
+    }
+
+    private void adjustBackoff(long processed, long failed) {
+        if (processed > 0 && (double) failed / processed > errorRateThreshold) {
+            backoffTicks = backoffTicks == 0 ? 1 : Math.min(maxBackoffTicks, backoffTicks * 2);
+            ticksToSkip = backoffTicks;
+            state = "BACKING_OFF";
+            log.warn("Ingestion error rate {}/{} above {}, skipping {} ticks", failed, processed, errorRateThreshold, ticksToSkip);
+        } else {
+            backoffTicks = 0;
+            state = isEnabled() ? "RUNNING" : "PAUSED";
+        }
+    }
+
+    private long remainingIds() {
+        Long next = crawlCheckpointService.getNextMovieIdToQuery();
+        Long lastWorkListId = movieCrawler.getLastWorkListId();
+        long target = lastWorkListId != null ? lastWorkListId + 1 : targetMaxId;
+        long pendingIds = crawlCheckpointService.countPendingRanges() * movieCrawler.getRangeSize();
+        return Math.max(0, target - (next == null ? 0 : next)) + pendingIds;
+    }
+
+    private boolean isEnabled() {
+        return globalSettingsRepository.findById(1L)
+                .map(GlobalSettings::getIngestionEnabled)
+                .map(Boolean.TRUE::equals)
+                .orElse(false);
+    }
+
+    private void setEnabled(boolean enabled) {
+        GlobalSettings globalSettings = globalSettingsRepository.findById(1L)
+                .orElseThrow(() -> new RuntimeException("Global settings not found."));
+        globalSettings.setIngestionEnabled(enabled);
+        globalSettingsRepository.save(globalSettings);
+    }
+
+    public synchronized IngestionStatusDto getStatus() {
+        long requestsToday = requestTrackingService.getRequestCountToday();
+        long remainingBudget = Math.max(0, dailyBudget - requestsToday);
+        long remainingIds = remainingIds();
+        double idsPerSecond = sessionMillis == 0 ? 0 : sessionIdsProcessed * 1000.0 / sessionMillis;
+        // throughput is capped by the budget when crawling non-stop would exceed it
+        double effectiveRate = Math.min(idsPerSecond, dailyBudget / 86400.0);
+
+        Long lastWorkListId = movieCrawler.getLastWorkListId();
+        return IngestionStatusDto.builder()
+                .state(state)
+                .idsDone(crawlCheckpointService.countDoneIds())
+                .idsFailed(crawlCheckpointService.countFailedIds())
+                .sessionIdsProcessed(sessionIdsProcessed)
+                .sessionIdsFailed(sessionIdsFailed)
+                .idsPerSecond(idsPerSecond)
+                .requestsToday(requestsToday)
+                .dailyBudget(dailyBudget)
+                .remainingBudget(remainingBudget)
+                .nextMovieIdToQuery(crawlCheckpointService.getNextMovieIdToQuery())
+                .targetMaxId(lastWorkListId != null ? lastWorkListId : targetMaxId)
+                .remainingIds(remainingIds)
+                .etaSeconds(effectiveRate <= 0 ? null : (long) (remainingIds / effectiveRate))
+                .backoffTicks(ticksToSkip)
+                .lastTickAt(lastTickAt)
+                .build();
+    }
+}
@@ -0,0 +1,312 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.dom.CrawlRange;
+import asot.me.rest.dto.CrawlerStatusDto;
+import asot.me.rest.service.CrawlCheckpointService;
+import asot.me.rest.tmdb.response.TmdbMovieDetailsResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Crawls TMDB movie ids in claimed ranges on a bounded pool of virtual-thread workers.
+ * Each worker claims a range, fetches its ids one by one, persists them in batches and
+ * checkpoints the range when done, so a restart picks up exactly where the last one stopped.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class TmdbMovieCrawler {
+    @Value("${tmdb.crawler.workers:8}")
+    private int workers;
+    @Value("${tmdb.crawler.range-size:100}")
+    private int rangeSize;
+    @Value("${tmdb.crawler.batch-size:50}")
+    private int batchSize;
+    @Value("${tmdb.crawler.max-range-attempts:3}")
+    private int maxRangeAttempts;
+
+    private final TmdbMovieQueryProcess movieQueryProcess;
+    private final CrawlCheckpointService crawlCheckpointService;
+    private final TmdbIdIndex tmdbIdIndex;
+
+    private final Object claimLock = new Object();
+    // the crawl whose workers are alive, cleared only by that crawl once they have all finished
+    private final AtomicReference<Run> currentRun = new AtomicReference<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong idsProcessed = new AtomicLong();
+    private final AtomicLong moviesSaved = new AtomicLong();
+    private final AtomicLong idsMissing = new AtomicLong();
+    private final AtomicLong idsFailed = new AtomicLong();
+    private final AtomicLong idsSkipped = new AtomicLong();
+    private volatile LocalDateTime startedAt;
+    // sorted ids from a TMDB id export; when set, ids outside it are skipped without a request
+    private volatile long[] workList;
+
+    @PostConstruct
+    public void init() {
+        int released = crawlCheckpointService.releaseStaleClaims();
+        if (released > 0) {
+            log.info("Released {} crawl ranges left claimed by a previous run", released);
+        }
+    }
+
+    /**
+     * One crawl. Stopping it only flags this run, so a stop followed by a start can never revive
+     * or be cut short by workers of the previous run.
+     */
+    private static final class Run {
+        private volatile boolean stopRequested;
+    }
+
+    /**
+     * Starts crawling up to maxRanges ranges in the background.
+     * @return false if a crawl is running or a stopped one is still draining its workers
+     */
+    public boolean start(int maxRanges) {
+        Run run = new Run();
+        if (!currentRun.compareAndSet(null, run)) {
+            return false;
+        }
+        resetCounters();
+        Thread.ofVirtual().name("tmdb-crawler").start(() -> crawl(run, maxRanges, null));
+        return true;
+    }
+
+    /**
+     * Crawls up to maxRanges ranges in the background, keeping the running counters. onFinished gets the
+     * number of TMDB requests made and failed by this crawl, and runs before another crawl can start.
+     * @return false if a crawl is running or a stopped one is still draining its workers
+     */
+    public boolean startRanges(int maxRanges, BiConsumer<Long, Long> onFinished) {
+        Run run = new Run();
+        if (!currentRun.compareAndSet(null, run)) {
+            return false;
+        }
+        if (startedAt == null) {
+            startedAt = LocalDateTime.now();
+        }
+        long processedBefore = idsProcessed.get();
+        long failedBefore = idsFailed.get();
+        Thread.ofVirtual().name("tmdb-crawler").start(() -> crawl(run, maxRanges,
+                () -> onFinished.accept(idsProcessed.get() - processedBefore, idsFailed.get() - failedBefore)));
+        return true;
+    }
+
+    /**
+     * Asks the workers to stop; ranges in progress are persisted and released for the next run.
+     * The crawl counts as running until its last worker has finished.
+     */
+    public void stop() {
+        Run run = currentRun.get();
+        if (run != null) {
+            run.stopRequested = true;
+        }
+    }
+
+    public boolean isRunning() {
+        return currentRun.get() != null;
+    }
+
+    public void setWorkList(long[] workList) {
+        this.workList = workList;
+    }
+
+    /**
+     * Highest id of the seeded work list, or null when crawling sequentially.
+     */
+    public Long getLastWorkListId() {
+        long[] ids = workList;
+        return ids == null || ids.length == 0 ? null : ids[ids.length - 1];
+    }
+
+    public int getRangeSize() {
+        return rangeSize;
+    }
+
+    public long getIdsProcessed() {
+        return idsProcessed.get();
+    }
+
+    public long getIdsFailed() {
+        return idsFailed.get();
+    }
+
+    private void crawl(Run run, int maxRanges, Runnable onFinished) {
+        AtomicInteger remainingRanges = new AtomicInteger(maxRanges);
+        log.info("Crawler started with {} workers for {} ranges of {} ids", workers, maxRanges, rangeSize);
+        // closing the executor waits for every worker, so the run is only released once none is left
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < workers; i++) {
+                executor.submit(() -> workerLoop(run, remainingRanges));
+            }
+        } finally {
+            log.info("Crawler finished: processed={} saved={} missing={} failed={} skipped={}",
+                    idsProcessed.get(), moviesSaved.get(), idsMissing.get(), idsFailed.get(), idsSkipped.get());
+            try {
+                if (onFinished != null) {
+                    onFinished.run();
+                }
+            } catch (Exception e) {
+                log.error("Exception after crawl e:{}", e.getLocalizedMessage());
+            } finally {
+                currentRun.compareAndSet(run, null);
+            }
+        }
+    }
+
+    private void workerLoop(Run run, AtomicInteger remainingRanges) {
+        while (!run.stopRequested && remainingRanges.getAndDecrement() > 0) {
+            CrawlRange range;
+            try {
+                synchronized (claimLock) {
+                    range = crawlCheckpointService.claimNextRange(rangeSize);
+                }
+            } catch (Exception e) {
+                log.error("Exception claiming crawl range e:{}", e.getLocalizedMessage());
+                return;
+            }
+
+            long[] ids = workList;
+            if (ids != null && (ids.length == 0 || range.getStartId() > ids[ids.length - 1])) {
+                log.info("Work list exhausted at id {}", range.getStartId());
+                crawlCheckpointService.releaseRange(range);
+                return;
+            }
+            processRange(run, range, ids);
+        }
+    }
+
+    private void processRange(Run run, CrawlRange range, long[] ids) {
+        List<TmdbMovieDetailsResponse> batch = new ArrayList<>(batchSize);
+        int failed = 0;
+
+        PrimitiveIterator.OfLong movieIds = idsInRange(range, ids).iterator();
+        while (movieIds.hasNext()) {
+            long movieId = movieIds.nextLong();
+            if (run.stopRequested) {
+                persist(batch);
+                crawlCheckpointService.releaseRange(range);
+                return;
+            }
+            if (tmdbIdIndex.isKnown(movieId)) {
+                idsSkipped.incrementAndGet();
+                continue;
+            }
+
+            inFlight.incrementAndGet();
+            MovieFetchResult result;
+            try {
+                result = movieQueryProcess.fetchMovie(movieId);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            idsProcessed.incrementAndGet();
+
+            switch (result.getStatus()) {
+                case FOUND -> batch.add(result.getDetails());
+                case NOT_FOUND -> idsMissing.incrementAndGet();
+                case FAILED -> {
+                    idsFailed.incrementAndGet();
+                    failed++;
+                }
+            }
+
+            if (batch.size() >= batchSize) {
+                persist(batch);
+                batch.clear();
+            }
+        }
+
+        persist(batch);
+        crawlCheckpointService.completeRange(range, failed, maxRangeAttempts);
+    }
+
+    private static LongStream idsInRange(CrawlRange range, long[] ids) {
+        if (ids == null) {
+            return LongStream.range(range.getStartId(), range.getEndId());
+        }
+        return Arrays.stream(ids, lowerBound(ids, range.getStartId()), lowerBound(ids, range.getEndId()));
+    }
+
+    private static int lowerBound(long[] ids, long id) {
+        int index = Arrays.binarySearch(ids, id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void persist(List<TmdbMovieDetailsResponse> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            movieQueryProcess.persistMovies(batch);
+            moviesSaved.addAndGet(batch.size());
+            tmdbIdIndex.markIngested(batch.stream().map(TmdbMovieDetailsResponse::getId).toList());
+        } catch (Exception e) {
+            // one bad row (e.g. duplicate title) must not sink the whole batch
+            log.warn("Batch persist of {} movies failed, falling back to single saves e:{}", batch.size(), e.getLocalizedMessage());
+            for (TmdbMovieDetailsResponse details : batch) {
+                try {
+                    movieQueryProcess.persistMovies(List.of(details));
+                    moviesSaved.incrementAndGet();
+                    tmdbIdIndex.markIngested(List.of(details.getId()));
+                } catch (Exception ex) {
+                    idsFailed.incrementAndGet();
+                    log.error("Exception persisting movieId={} e:{}", details.getId(), ex.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    private void resetCounters() {
+        idsProcessed.set(0);
+        moviesSaved.set(0);
+        idsMissing.set(0);
+        idsFailed.set(0);
+        idsSkipped.set(0);
+        startedAt = LocalDateTime.now();
+    }
+
+    public double getIdsPerSecond() {
+        LocalDateTime started = startedAt;
+        if (started == null) {
+            return 0;
+        }
+        long millis = Duration.between(started, LocalDateTime.now()).toMillis();
+        return millis == 0 ? 0 : idsProcessed.get() * 1000.0 / millis;
+    }
+
+    public CrawlerStatusDto getStatus() {
+        return CrawlerStatusDto.builder()
+                .running(isRunning())
+                .workers(workers)
+                .inFlight(inFlight.get())
+                .idsProcessed(idsProcessed.get())
+                .moviesSaved(moviesSaved.get())
+                .idsMissing(idsMissing.get())
+                .idsFailed(idsFailed.get())
+                .idsSkipped(idsSkipped.get())
+                .idsPerSecond(getIdsPerSecond())
+                .nextMovieIdToQuery(crawlCheckpointService.getNextMovieIdToQuery())
+                .pendingRanges(crawlCheckpointService.countPendingRanges())
+                .startedAt(startedAt)
+                .workListSize(workList == null ? null : workList.length)
+                .build();
+    }
+}
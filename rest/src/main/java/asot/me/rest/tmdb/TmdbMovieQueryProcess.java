@@ -1,113 +1,105 @@
 package asot.me.rest.tmdb;
 
-import asot.me.rest.dom.Actor;
+import asot.me.rest.autocomplete.AutocompleteIndex;
 import asot.me.rest.dom.Genre;
-import asot.me.rest.dom.GlobalSettings;
 import asot.me.rest.dom.Movie;
-import asot.me.rest.repository.ActorRepository;
-import asot.me.rest.repository.GlobalSettingsRepository;
-import asot.me.rest.repository.MovieRepository;
-import asot.me.rest.service.RequestTrackingService;
+import asot.me.rest.repository.MovieBatchRepository;
 import asot.me.rest.tmdb.response.TmdbCastMember;
 import asot.me.rest.tmdb.response.TmdbMovieDetailsResponse;
-import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.Moshi;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.IOException;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
+/**
+ * Fetches single movie ids from TMDB and persists batches of them.
+ * Orchestration (range claiming, workers, checkpoints) lives in {@link TmdbMovieCrawler}.
+ */
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class TmdbMovieQueryProcess {
-    @Value("${TMDB:asd}")
-    private String apiToken;
-    private final GlobalSettingsRepository globalSettingsRepository;
-    private final RequestTrackingService requestTrackingService;
-    private final MovieRepository movieRepository;
-    private final ActorRepository actorRepository;
-
-    private final String BASE_URL = "https://api.themoviedb.org/3/movie/%s";
-
-    private final OkHttpClient client = new OkHttpClient();
-    private final Moshi moshi = new Moshi.Builder().build();
-    private final JsonAdapter<TmdbMovieDetailsResponse> tmdbMovieDetailsResponseJsonAdapter = moshi.adapter(TmdbMovieDetailsResponse.class);
-
-    public void processNextMovieId() {
-        Optional<GlobalSettings> globalSettings = globalSettingsRepository.findById(1L);
-        if (globalSettings.isPresent()) {
-            Long movieId = globalSettings.get().getNextMovieIdToQuery();
-            log.info("movieId to query = {}", movieId);
-            String fullUrl = String.format(BASE_URL, movieId);
-
-            Request request = new Request.Builder()
-                .url(fullUrl)
-                .get()
-                .addHeader("accept", "application/json")
-                .addHeader("Authorization", "Bearer " + apiToken)
-                .build();
-
-            try (Response response = client.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    globalSettings.get().setNextMovieIdToQuery(globalSettings.get().getNextMovieIdToQuery() + 1);
-                    globalSettingsRepository.save(globalSettings.get());
-                    throw new IOException("Unexpected code " + response);
-                }
-                requestTrackingService.trackRequest(BASE_URL, "{movieId}=".concat(String.valueOf(movieId)), true);
-                TmdbMovieDetailsResponse tmdbMovieDetailsResponse = tmdbMovieDetailsResponseJsonAdapter.fromJson(response.body().source());
-
-                Movie movie = Movie.builder()
-                    .genreIds(tmdbMovieDetailsResponse.getGenres().stream().map(Genre::getId).toList())
-                    .id(tmdbMovieDetailsResponse.getId())
-                    .year((long) LocalDate.parse(tmdbMovieDetailsResponse.getReleaseDate()).getYear())
-                    .title(tmdbMovieDetailsResponse.getTitle())
-                    .build();
-
-                movie = movieRepository.save(movie);
-
-                List<Actor> actorList = new ArrayList<>();
-                int counter = 12;
-                for (TmdbCastMember castMember : tmdbMovieDetailsResponse.getCredits().getCast()) {
-                    String[] nameParts = castMember.getName().split(" ", 2);
-                    String firstName = nameParts[0];
-                    String lastName = nameParts.length > 1 ? nameParts[1] : "";
-
-                    Actor actor = actorRepository.findById(castMember.getId())
-                            .orElse(
-                                    Actor.builder()
-                                            .firstname(firstName)
-                                            .lastname(lastName)
-                                            .id(castMember.getId())
-                                            .movies(new ArrayList<>())
-                                            .build()
-                            );
-
-                    actor.getMovies().add(movie);
-                    actorList.add(actor);
+    @Value("${tmdb.crawler.max-cast:13}")
+    private int maxCast;
+    private final TmdbClient tmdbClient;
+    private final MovieBatchRepository movieBatchRepository;
+    private final TmdbCreditsWriter tmdbCreditsWriter;
+    private final TmdbIdIndex tmdbIdIndex;
+    private final AutocompleteIndex autocompleteIndex;
+
+    public MovieFetchResult fetchMovie(long movieId) {
+        Request request = tmdbClient.get(tmdbClient.url("movie/" + movieId)
+            .addQueryParameter("append_to_response", "credits")
+            .build());
+
+        try (Response response = tmdbClient.execute(request)) {
+            if (response.code() == 404) {
+                tmdbIdIndex.markMissing(movieId);
+                return MovieFetchResult.notFound(movieId);
+            }
+            if (!response.isSuccessful()) {
+                log.warn("Unexpected code {} for movieId={}", response.code(), movieId);
+                return MovieFetchResult.failed(movieId);
+            }
+            TmdbMovieDetailsResponse tmdbMovieDetailsResponse = TmdbCreditsReader.readMovieDetails(response.body().source(), maxCast);
+            if (tmdbMovieDetailsResponse == null) {
+                return MovieFetchResult.failed(movieId);
+            }
+            return MovieFetchResult.found(movieId, tmdbMovieDetailsResponse);
+        } catch (Exception e) {
+            log.error("Exception fetchMovie movieId={} e:{}", movieId, e.getLocalizedMessage());
+            return MovieFetchResult.failed(movieId);
+        }
+    }
 
-                    if (counter-- < 1)
-                        break;
-                }
+    /**
+     * Saves a batch of fetched movies with their top cast in one transaction.
+     * The statement count is fixed per batch: one movie upsert, then see {@link TmdbCreditsWriter}.
+     */
+    @Transactional
+    public void persistMovies(List<TmdbMovieDetailsResponse> detailsList) {
+        if (detailsList.isEmpty()) {
+            return;
+        }
 
-                actorRepository.saveAll(actorList);
-                globalSettings.get().setNextMovieIdToQuery(globalSettings.get().getNextMovieIdToQuery() + 1);
-                globalSettingsRepository.save(globalSettings.get());
+        // cast links are written with plain JDBC too, after the movies are in the table
+        List<Movie> movies = detailsList.stream().map(this::toMovie).toList();
+        movieBatchRepository.upsertQueriedMovies(movies);
+        movies.forEach(movie -> autocompleteIndex.movieSaved(movie.getId(), movie.getTitle()));
 
-            } catch (Exception e) {
-                log.error("Exception processNextMovieId e:{}", e.getLocalizedMessage());
-            }
+        Map<Long, List<TmdbCastMember>> castByMovieId = new LinkedHashMap<>();
+        for (TmdbMovieDetailsResponse details : detailsList) {
+            castByMovieId.put(details.getId(), topCast(details));
+        }
+        tmdbCreditsWriter.linkCast(castByMovieId);
+    }
 
+    private List<TmdbCastMember> topCast(TmdbMovieDetailsResponse details) {
+        if (details.getCredits() == null || details.getCredits().getCast() == null) {
+            return List.of();
         }
+        List<TmdbCastMember> cast = details.getCredits().getCast();
+        return cast.subList(0, Math.min(maxCast, cast.size()));
+    }
+
+    private Movie toMovie(TmdbMovieDetailsResponse details) {
+        String releaseDate = details.getReleaseDate();
+        return Movie.builder()
+            .genreIds(details.getGenres() == null
+                    ? new ArrayList<>()
+                    : new ArrayList<>(details.getGenres().stream().map(Genre::getId).toList()))
+            .id(details.getId())
+            .year(releaseDate == null || releaseDate.isBlank() ? null : (long) LocalDate.parse(releaseDate).getYear())
+            .title(details.getTitle())
+            // credits are appended to the details call, so cast is already linked
+            .queried(true)
+            .build();
     }
 
 }
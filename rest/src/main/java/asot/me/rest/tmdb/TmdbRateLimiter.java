@@ -0,0 +1,202 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.dto.RateLimiterStatsDto;
+import lombok.extern.log4j.Log4j2;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide token bucket for every TMDB call, installed as an OkHttp interceptor.
+ * A 429 (or 502/503/504) pauses the whole bucket for Retry-After, or a jittered exponential
+ * backoff when the header is missing, so user searches and the crawler back off together.
+ */
+@Component
+@Log4j2
+public class TmdbRateLimiter implements Interceptor {
+    private final double requestsPerSecond;
+    private final int burst;
+    private final long maxWaitNanos;
+    private final int maxRetries;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final double nanosPerToken;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    private final AtomicLong permitsGranted = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong throttledResponses = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    public TmdbRateLimiter(
+            @Value("${tmdb.rate-limit.requests-per-second:20}") double requestsPerSecond,
+            @Value("${tmdb.rate-limit.burst:20}") int burst,
+            @Value("${tmdb.rate-limit.max-wait-ms:30000}") long maxWaitMillis,
+            @Value("${tmdb.rate-limit.max-retries:4}") int maxRetries,
+            @Value("${tmdb.rate-limit.base-backoff-ms:500}") long baseBackoffMillis,
+            @Value("${tmdb.rate-limit.max-backoff-ms:30000}") long maxBackoffMillis
+    ) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.maxRetries = maxRetries;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.nanosPerToken = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Application-level retry loop. Permits are taken by {@link #permitInterceptor()} on the network
+     * side, so responses served from the local cache never consume one.
+     */
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        if (chain.request().cacheControl().onlyIfCached()) {
+            return chain.proceed(chain.request());
+        }
+
+        int attempt = 0;
+        while (true) {
+            Response response = chain.proceed(chain.request());
+            // counted before giving up too, or the metric misses the worst throttling
+            if (response.code() == 429) {
+                throttledResponses.incrementAndGet();
+            }
+            if (!isRetryable(response.code()) || attempt >= maxRetries) {
+                return response;
+            }
+
+            long delayMillis = retryAfterMillis(response.header("Retry-After"));
+            if (delayMillis < 0) {
+                delayMillis = backoffMillis(attempt);
+            }
+            log.warn("TMDB responded {} for {}, retrying in {} ms", response.code(), chain.request().url().encodedPath(), delayMillis);
+            response.close();
+            pauseFor(delayMillis);
+            retries.incrementAndGet();
+            attempt++;
+        }
+    }
+
+    public Interceptor permitInterceptor() {
+        return chain -> {
+            acquire();
+            return chain.proceed(chain.request());
+        };
+    }
+
+    /**
+     * Blocks until a permit is available, or throws once the configured max wait would be exceeded.
+     */
+    public void acquire() throws IOException {
+        long start = System.nanoTime();
+        long deadline = start + maxWaitNanos;
+        while (true) {
+            long now;
+            long waitNanos;
+            synchronized (this) {
+                now = System.nanoTime();
+                refill(now);
+                long pausedNanos = pausedUntilNanos - now;
+                if (pausedNanos <= 0 && tokens >= 1) {
+                    tokens -= 1;
+                    permitsGranted.incrementAndGet();
+                    totalWaitNanos.addAndGet(now - start);
+                    return;
+                }
+                waitNanos = Math.max(pausedNanos, (long) ((1 - tokens) * nanosPerToken));
+            }
+
+            if (now + waitNanos > deadline) {
+                rejections.incrementAndGet();
+                totalWaitNanos.addAndGet(now - start);
+                throw new TmdbThrottledException("No TMDB rate limit permit within " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a TMDB rate limit permit");
+            }
+        }
+    }
+
+    /**
+     * Stops handing out permits for the given time, e.g. after TMDB asked us to back off.
+     */
+    public synchronized void pauseFor(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (until - pausedUntilNanos > 0) {
+            pausedUntilNanos = until;
+        }
+        tokens = 0;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed / nanosPerToken);
+            lastRefillNanos = now;
+        }
+    }
+
+    private boolean isRetryable(int code) {
+        return code == 429 || code == 502 || code == 503 || code == 504;
+    }
+
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 20));
+        // full jitter, so workers that were throttled together do not retry together
+        return ThreadLocalRandom.current().nextLong(baseBackoffMillis, Math.max(baseBackoffMillis, ceiling) + 1);
+    }
+
+    static long retryAfterMillis(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(date.getZone()), date).toMillis());
+            } catch (Exception ex) {
+                return -1;
+            }
+        }
+    }
+
+    public synchronized RateLimiterStatsDto getStats() {
+        refill(System.nanoTime());
+        long granted = permitsGranted.get();
+        double waitMillis = totalWaitNanos.get() / 1_000_000.0;
+        return RateLimiterStatsDto.builder()
+                .requestsPerSecond(requestsPerSecond)
+                .burst(burst)
+                .availableTokens(tokens)
+                .permitsGranted(granted)
+                .rejections(rejections.get())
+                .throttledResponses(throttledResponses.get())
+                .retries(retries.get())
+                .totalWaitMillis(waitMillis)
+                .averageWaitMillis(granted == 0 ? 0 : waitMillis / granted)
+                .build();
+    }
+}
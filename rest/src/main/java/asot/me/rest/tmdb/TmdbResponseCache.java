@@ -0,0 +1,154 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.dto.TmdbCacheStatsDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import okhttp3.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded on-disk cache for TMDB responses. Installed as a network interceptor, it replaces TMDB's
+ * Cache-Control with a max-age per endpoint class while keeping ETag/Last-Modified, so expired
+ * entries are revalidated with conditional requests instead of being downloaded again.
+ * Endpoint classes with a ttl of 0 are marked no-store and never written to the cache.
+ */
+@Component
+@Log4j2
+public class TmdbResponseCache implements Interceptor {
+    private final boolean enabled;
+    private final Cache cache;
+    private final long searchTtlSeconds;
+    private final long creditsTtlSeconds;
+    private final long detailsTtlSeconds;
+    private final long genresTtlSeconds;
+    private final boolean staleIfError;
+    private final int maxStaleSeconds;
+    private final AtomicLong staleServed = new AtomicLong();
+
+    public TmdbResponseCache(
+            @Value("${tmdb.cache.enabled:true}") boolean enabled,
+            @Value("${tmdb.cache.directory:${java.io.tmpdir}/movietracker-tmdb-cache}") String directory,
+            @Value("${tmdb.cache.max-size-mb:256}") long maxSizeMb,
+            @Value("${tmdb.cache.ttl.search-s:3600}") long searchTtlSeconds,
+            @Value("${tmdb.cache.ttl.credits-s:86400}") long creditsTtlSeconds,
+            @Value("${tmdb.cache.ttl.details-s:0}") long detailsTtlSeconds,
+            @Value("${tmdb.cache.ttl.genres-s:604800}") long genresTtlSeconds,
+            @Value("${tmdb.cache.stale-if-error:true}") boolean staleIfError,
+            @Value("${tmdb.cache.max-stale-s:604800}") int maxStaleSeconds
+    ) {
+        this.enabled = enabled;
+        this.cache = enabled ? new Cache(new File(directory), maxSizeMb * 1024 * 1024) : null;
+        this.searchTtlSeconds = searchTtlSeconds;
+        this.creditsTtlSeconds = creditsTtlSeconds;
+        this.detailsTtlSeconds = detailsTtlSeconds;
+        this.genresTtlSeconds = genresTtlSeconds;
+        this.staleIfError = enabled && staleIfError;
+        this.maxStaleSeconds = maxStaleSeconds;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        if (!enabled || !(response.isSuccessful() || response.code() == 304)) {
+            return response;
+        }
+
+        long ttl = ttlSeconds(request.url());
+        if (ttl <= 0) {
+            // TMDB's own Cache-Control would otherwise still get it stored
+            return response.newBuilder()
+                    .header("Cache-Control", "no-store")
+                    .build();
+        }
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "public, max-age=" + ttl)
+                .build();
+    }
+
+    private long ttlSeconds(HttpUrl url) {
+        String path = url.encodedPath();
+        if (path.contains("/search/")) {
+            return searchTtlSeconds;
+        }
+        if (path.endsWith("/credits")) {
+            return creditsTtlSeconds;
+        }
+        if (path.contains("/genre/")) {
+            return genresTtlSeconds;
+        }
+        if (path.matches(".*/movie/\\d+")) {
+            return detailsTtlSeconds;
+        }
+        return 0;
+    }
+
+    /**
+     * The cache-only variant of a request, used to serve a stale copy when TMDB fails.
+     */
+    public Request staleRequest(Request request) {
+        return request.newBuilder()
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(maxStaleSeconds, TimeUnit.SECONDS)
+                        .build())
+                .build();
+    }
+
+    public static boolean isCacheHit(Response response) {
+        return response.networkResponse() == null && response.cacheResponse() != null;
+    }
+
+    public void recordStaleServed() {
+        staleServed.incrementAndGet();
+    }
+
+    public boolean isStaleIfError() {
+        return staleIfError;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public TmdbCacheStatsDto getStats() {
+        if (!enabled) {
+            return TmdbCacheStatsDto.builder().enabled(false).build();
+        }
+        long size;
+        try {
+            size = cache.size();
+        } catch (IOException e) {
+            size = -1;
+        }
+        int requests = cache.requestCount();
+        return TmdbCacheStatsDto.builder()
+                .enabled(true)
+                .sizeBytes(size)
+                .maxSizeBytes(cache.maxSize())
+                .requestCount(requests)
+                .hitCount(cache.hitCount())
+                .networkCount(cache.networkCount())
+                .staleServed(staleServed.get())
+                .hitRatio(requests == 0 ? 0 : (double) cache.hitCount() / requests)
+                .build();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (cache != null) {
+            try {
+                cache.close();
+            } catch (IOException e) {
+                log.warn("Exception closing TMDB cache e:{}", e.getLocalizedMessage());
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package asot.me.rest.tmdb;
 
+import asot.me.rest.autocomplete.AutocompleteIndex;
 import asot.me.rest.dom.Actor;
 import asot.me.rest.dom.GlobalSettings;
 import asot.me.rest.dom.Movie;
@@ -11,26 +12,20 @@ import asot.me.rest.repository.ActorRepository;
 import asot.me.rest.repository.GenreRepository;
 import asot.me.rest.repository.GlobalSettingsRepository;
 import asot.me.rest.repository.MovieRepository;
-import asot.me.rest.service.RequestTrackingService;
+import asot.me.rest.service.CatalogCache;
 import asot.me.rest.tmdb.response.*;
-import com.squareup.moshi.JsonAdapter;
-import com.squareup.moshi.Moshi;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import okhttp3.OkHttpClient;
+import okhttp3.HttpUrl;
 import okhttp3.Request;
 import okhttp3.Response;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -38,26 +33,18 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Log4j2
 public class TmdbSearchService {
-    @Value("${TMDB:asd}")
-    private String apiToken;
     private final Integer maxCastQuery = 20;
     private final GlobalSettingsRepository globalSettingsRepository;
     private final GenreRepository genreRepository;
     private final ActorRepository actorRepository;
     private final MovieRepository movieRepository;
-    private final RequestTrackingService requestTrackingService;
+    private final TmdbClient tmdbClient;
+    private final TmdbCreditsWriter tmdbCreditsWriter;
+    private final TmdbIdIndex tmdbIdIndex;
     private final MovieMapper movieMapper;
     private final ActorMapper actorMapper;
-
-    private final String BASE_URL = " https://api.themoviedb.org/3/";
-
-    private final OkHttpClient client = new OkHttpClient();
-    private final Moshi moshi = new Moshi.Builder().build();
-    private final JsonAdapter<MovieListGenre> movieListGenreJsonAdapter = moshi.adapter(MovieListGenre.class);
-    private final JsonAdapter<ActorSearchResponse> actorSearchResponseJsonAdapter = moshi.adapter(ActorSearchResponse.class);
-    private final JsonAdapter<MovieSearchResponse> movieSearchResponseJsonAdapter = moshi.adapter(MovieSearchResponse.class);
-    private final JsonAdapter<Credits> creditsJsonAdapter = moshi.adapter(Credits.class);
-
+    private final CatalogCache catalogCache;
+    private final AutocompleteIndex autocompleteIndex;
 
     // GENDERS
     public void fetchGenresFromApi() {
@@ -68,19 +55,13 @@ public class TmdbSearchService {
             return;
         }
 
-        String url = "genre/movie/list";
-        Request request = new Request.Builder()
-                .url(BASE_URL + url)
-                .get()
-                .addHeader("accept", "application/json")
-                .addHeader("Authorization", "Bearer " + apiToken)
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            requestTrackingService.trackRequest(url, null, response.isSuccessful());
-            MovieListGenre movieListGenre = movieListGenreJsonAdapter.fromJson(response.body().source());
+        Request request = tmdbClient.get(tmdbClient.url("genre/movie/list").build());
+
+        try (Response response = tmdbClient.execute(request)) {
+            MovieListGenre movieListGenre = tmdbClient.readBody(response, MovieListGenre.class);
             if (movieListGenre != null) {
                 genreRepository.saveAll(movieListGenre.getGenres());
+                catalogCache.evictAllGenres();
                 log.info("Successfully stored Genre data from TMDB.");
 
                 globalSettings.setGenresCreated(true);
@@ -102,25 +83,17 @@ public class TmdbSearchService {
             throw new Exception(String.format("Actor with firstName:%s and lastName:%s, already exists.", firstName, lastName));
         }
 
-        String url = "search/person";
         String fullname = String.format("%s %s", firstName, lastName);
-        String queryParams = "?query=".concat(fullname);
-        String fullUrl = BASE_URL + url + queryParams;
-        Request request = new Request.Builder()
-                .url(fullUrl)
-                .get()
-                .addHeader("accept", "application/json")
-                .addHeader("Authorization", "Bearer " + apiToken)
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
+        Request request = tmdbClient.get(tmdbClient.url("search/person")
+                .addQueryParameter("query", fullname)
+                .build());
+
+        try (Response response = tmdbClient.execute(request)) {
             if (!response.isSuccessful()) {
-                requestTrackingService.trackRequest(url, queryParams, false);
                 throw new IOException("Unexpected code " + response);
             }
 
-            requestTrackingService.trackRequest(url, queryParams, true);
-            ActorSearchResponse actorSearchResponse = actorSearchResponseJsonAdapter.fromJson(response.body().source());
+            ActorSearchResponse actorSearchResponse = tmdbClient.readBody(response, ActorSearchResponse.class);
 
             if (actorSearchResponse == null || actorSearchResponse.getResults().isEmpty()) {
                 throw new Exception("actorSearchResponse was null or no results");
@@ -165,6 +138,9 @@ public class TmdbSearchService {
 
             // Save to database and return
             Actor actor = actorRepository.save(actorEntity);
+            catalogCache.evictActorWithMovies(actor);
+            autocompleteIndex.actorSaved(actor.getId(), actor.getFirstname(), actor.getLastname());
+            actor.getMovies().forEach(movie -> autocompleteIndex.movieSaved(movie.getId(), movie.getTitle()));
             log.info("Successfully stored Actor data from TMDB.");
             return actorMapper.toDTO(actor);
         } catch (IOException e) {
@@ -185,31 +161,22 @@ public class TmdbSearchService {
         }
 
         // search tmdb api
-        String url = "search/movie?";
-        String queryParams = String.format("query=%s&primary_release_year=%s", movieTitle, movieDto.getYear());
-        String fullUrl = BASE_URL.concat(url).concat(queryParams);
-        Request request = new Request.Builder()
-                .url(fullUrl)
-                .get()
-                .addHeader("accept", "application/json")
-                .addHeader("Authorization", "Bearer " + apiToken)
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
+        Request request = tmdbClient.get(tmdbClient.url("search/movie")
+                .addQueryParameter("query", movieTitle)
+                .addQueryParameter("primary_release_year", String.valueOf(movieDto.getYear()))
+                .build());
+
+        try (Response response = tmdbClient.execute(request)) {
             if (!response.isSuccessful()) {
-                requestTrackingService.trackRequest(url, queryParams, false);
                 throw new IOException("Unexpected code " + response);
             }
-            requestTrackingService.trackRequest(url, queryParams, true);
-            MovieSearchResponse movieSearchResponse = movieSearchResponseJsonAdapter.fromJson(response.body().source());
+            MovieSearchResponse movieSearchResponse = tmdbClient.readBody(response, MovieSearchResponse.class);
 
             if (movieSearchResponse == null || movieSearchResponse.getResults().isEmpty()) {
                 throw new Exception("movieSearchResponse was null or no results");
             }
             var matchingMovie = movieSearchResponse.getResults().stream()
-                    .filter(movieSearchResult ->
-                            movieSearchResult.getTitle().equalsIgnoreCase(movieTitle) ||
-                                    movieSearchResult.getOriginal_title().equalsIgnoreCase(movieTitle))
+                    .filter(movieSearchResult -> matchesTitle(movieSearchResult, movieTitle))
                     .findFirst()
                     .orElse(null);
 
@@ -219,6 +186,8 @@ public class TmdbSearchService {
                 movie.setGenreIds(matchingMovie.getGenre_ids());
                 movie.setQueried(false);
                 movie = movieRepository.save(movie);
+                catalogCache.evictMovie(movie.getId());
+                autocompleteIndex.movieSaved(movie.getId(), movie.getTitle());
                 log.info("Movie ''{}'' was created", movie.getTitle());
                 return movieMapper.toDTO(movie);
             }
@@ -227,69 +196,80 @@ public class TmdbSearchService {
         throw new Exception("Code should never reach this point: searchAndCreateMovie");
     }
 
+    /**
+     * Looks a title up on TMDB without creating anything. Only exact (case-insensitive) title or original title
+     * matches count; with a year, the release year may be off by one (festival vs. theatrical release).
+     */
+    public Optional<MovieSearchResult> findMovieByTitle(String title, Long year) throws IOException {
+        HttpUrl.Builder url = tmdbClient.url("search/movie").addQueryParameter("query", title);
+        if (year != null) {
+            url.addQueryParameter("year", String.valueOf(year));
+        }
+
+        try (Response response = tmdbClient.execute(tmdbClient.get(url.build()))) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Unexpected code " + response);
+            }
+            MovieSearchResponse movieSearchResponse = tmdbClient.readBody(response, MovieSearchResponse.class);
+            if (movieSearchResponse == null || movieSearchResponse.getResults() == null) {
+                return Optional.empty();
+            }
+            return movieSearchResponse.getResults().stream()
+                    .filter(result -> matchesTitle(result, title))
+                    .filter(result -> year == null || releaseYearWithin(result, year, 1))
+                    .findFirst();
+        }
+    }
+
     public void searchMovieDetailsAndAddActors(Long id) throws Exception {
         Movie movie = movieRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Movie not found with id: " + id));
 
         if (movie.isQueried()) {
             throw new Exception(String.format("Movie with id:%s is already queried", id));
         }
+        if (tmdbIdIndex.isMissing(id)) {
+            throw new EntityNotFoundException("Movie not found on TMDB with id: " + id);
+        }
 
-        String url = String.format("/movie/%s/credits", id);
-        String fullUrl = BASE_URL.concat(url);
-
-        Request request = new Request.Builder()
-                .url(fullUrl)
-                .get()
-                .addHeader("accept", "application/json")
-                .addHeader("Authorization", "Bearer " + apiToken)
-                .build();
+        Request request = tmdbClient.get(tmdbClient.url(String.format("movie/%s/credits", id)).build());
 
-        try (Response response = client.newCall(request).execute()) {
+        try (Response response = tmdbClient.execute(request)) {
+            if (response.code() == 404) {
+                tmdbIdIndex.markMissing(id);
+                throw new EntityNotFoundException("Movie not found on TMDB with id: " + id);
+            }
             if (!response.isSuccessful()) {
-                requestTrackingService.trackRequest(url, null, false);
                 throw new IOException("Unexpected code " + response);
             }
-            requestTrackingService.trackRequest(url, null, true);
-            Credits credits = creditsJsonAdapter.fromJson(response.body().source());
+            Credits credits = TmdbCreditsReader.readCredits(response.body().source(), maxCastQuery);
             if (credits == null) {
                 throw new Exception("credits was null");
             }
 
-            int counter = 1;
-            for (TmdbCastMember castMember : credits.getCast()) {
-                Optional<Actor> optionalActor = actorRepository.findById(castMember.getId());
-
-                if (optionalActor.isPresent()) {
-                    Actor actor = optionalActor.get();
-                    // Check if this movie is already in the actor's movies
-                    if (actor.getMovies().stream().noneMatch(m -> m.getId().equals(movie.getId()))) {
-                        actor.getMovies().add(movie);
-                        actorRepository.save(actor);
-                    }
-                }
-                else {
-                    String[] nameParts = castMember.getName().split(" ", 2);
-                    String firstName = nameParts[0];
-                    String lastName = nameParts.length > 1 ? nameParts[1] : "";
-
-                    Actor actor = Actor.builder()
-                            .id(castMember.getId())
-                            .firstname(firstName)
-                            .lastname(lastName)
-                            .movies(new ArrayList<>(List.of(movie)))
-                            .build();
-
-                    actorRepository.save(actor);
-                }
-
-                if (counter++ >= maxCastQuery) {
-                    break;
-                }
-            }
+            List<TmdbCastMember> cast = credits.getCast() == null ? List.of() : credits.getCast();
+            tmdbCreditsWriter.linkCast(Map.of(movie.getId(), cast.subList(0, Math.min(maxCastQuery, cast.size()))));
 
             // Mark movie as queried and save it
             movie.setQueried(true);
             movieRepository.save(movie);
+            catalogCache.evictMovie(movie.getId());
+            tmdbIdIndex.markIngested(List.of(movie.getId()));
+        }
+    }
+
+    private static boolean matchesTitle(MovieSearchResult result, String title) {
+        return title.equalsIgnoreCase(result.getTitle()) || title.equalsIgnoreCase(result.getOriginal_title());
+    }
+
+    private static boolean releaseYearWithin(MovieSearchResult result, long year, int tolerance) {
+        String releaseDate = result.getRelease_date();
+        if (releaseDate == null || releaseDate.length() < 4) {
+            return false;
+        }
+        try {
+            return Math.abs(Long.parseLong(releaseDate.substring(0, 4)) - year) <= tolerance;
+        } catch (NumberFormatException e) {
+            return false;
         }
     }
 
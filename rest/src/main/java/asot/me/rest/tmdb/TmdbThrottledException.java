@@ -0,0 +1,12 @@
+package asot.me.rest.tmdb;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a TMDB call could not get a rate limiter permit within the configured wait.
+ */
+public class TmdbThrottledException extends IOException {
+    public TmdbThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package asot.me.rest.tmdb.response;
+
+import lombok.Data;
+
+/**
+ * One line of TMDB's daily id export (movie_ids_MM_DD_YYYY.json.gz).
+ */
+@Data
+public class TmdbIdExportEntry {
+    private boolean adult;
+    private Long id;
+    private String original_title;
+    private double popularity;
+    private boolean video;
+}
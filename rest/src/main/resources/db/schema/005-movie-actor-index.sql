@@ -0,0 +1,3 @@
+-- movie_actor is created by Hibernate without any index; batched cast links probe it by (movie_id, actor_id)
+CREATE INDEX IF NOT EXISTS idx_movie_actor_movie_actor ON movie_actor (movie_id, actor_id);
+CREATE INDEX IF NOT EXISTS idx_movie_actor_actor ON movie_actor (actor_id);
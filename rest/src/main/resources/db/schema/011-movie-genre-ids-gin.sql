@@ -0,0 +1,2 @@
+-- multi-genre filters on /movies use && (any) and @> (all) on genre_ids, both served by this index
+CREATE INDEX IF NOT EXISTS idx_movie_genre_ids ON movie USING GIN (genre_ids);
@@ -0,0 +1,5 @@
+-- ranked, typo tolerant search on movie titles and full actor names (see q on /movies and /actors)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_movie_title_trgm ON movie USING GIN (title gin_trgm_ops);
+-- the expression must match ActorRepository.searchByName exactly to be used
+CREATE INDEX IF NOT EXISTS idx_actor_full_name_trgm ON actor USING GIN ((coalesce(firstname, '') || ' ' || coalesce(lastname, '')) gin_trgm_ops);
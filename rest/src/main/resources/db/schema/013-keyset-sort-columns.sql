@@ -0,0 +1,12 @@
+-- keyset cursors on /movies and /actors seek on (sort column, id); a null sort key would be skipped or repeated,
+-- so the sortable columns are NOT NULL. Actors without a first or last name store '', as the crawler writes them;
+-- titles are unique, so a legacy movie without one gets a placeholder instead.
+-- The indexes come first: they serve the IS NULL backfills, and SET NOT NULL is a no-op once the column has it.
+CREATE INDEX IF NOT EXISTS idx_movie_title_id ON movie (title, id);
+CREATE INDEX IF NOT EXISTS idx_actor_firstname_id ON actor (firstname, id);
+CREATE INDEX IF NOT EXISTS idx_actor_lastname_id ON actor (lastname, id);
+UPDATE actor SET firstname = '' WHERE firstname IS NULL;
+UPDATE actor SET lastname = '' WHERE lastname IS NULL;
+UPDATE movie SET title = 'Untitled ' || id WHERE title IS NULL;
+ALTER TABLE actor ALTER COLUMN firstname SET NOT NULL, ALTER COLUMN lastname SET NOT NULL;
+ALTER TABLE movie ALTER COLUMN title SET NOT NULL;
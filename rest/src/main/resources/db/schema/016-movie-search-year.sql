@@ -0,0 +1,2 @@
+-- /movies/search sorted by year pages along this index in either direction instead of sorting the filtered set
+CREATE INDEX IF NOT EXISTS idx_movie_year_id ON movie (year, id);
@@ -0,0 +1,8 @@
+-- catalog-wide full-text search (/search); the columns are unmapped, Hibernate never writes them
+-- titles use the english configuration (stemming, stop words), person names the simple one
+ALTER TABLE movie ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (to_tsvector('english', coalesce(title, ''))) STORED;
+ALTER TABLE tv_show ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (to_tsvector('english', coalesce(title, ''))) STORED;
+ALTER TABLE actor ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (to_tsvector('simple', coalesce(firstname, '') || ' ' || coalesce(lastname, ''))) STORED;
+CREATE INDEX IF NOT EXISTS idx_movie_search_vector ON movie USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_tv_show_search_vector ON tv_show USING GIN (search_vector);
+CREATE INDEX IF NOT EXISTS idx_actor_search_vector ON actor USING GIN (search_vector);
@@ -0,0 +1,7 @@
+-- /users/{id}/library: the flags ride along in the index, so listing and filtering a library
+-- by watched/favorite in movie id order is an index-only scan of the user's range
+CREATE INDEX IF NOT EXISTS idx_user_movie_library ON user_movie (app_user_id, movie_id) INCLUDE (watched, favorite);
+-- title and year pages walk the movie in sort order and probe the user's rows by primary key;
+-- the expressions match the coalesced keyset columns of UserLibraryRepository
+CREATE INDEX IF NOT EXISTS idx_movie_library_title ON movie ((coalesce(title, '')), id);
+CREATE INDEX IF NOT EXISTS idx_movie_library_year ON movie ((coalesce(year, 0)), id);
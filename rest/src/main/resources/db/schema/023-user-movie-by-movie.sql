@@ -0,0 +1,2 @@
+-- users of a movie with their flags, for exact co-occurrence counts in incremental recommendation updates
+CREATE INDEX IF NOT EXISTS idx_user_movie_by_movie ON user_movie (movie_id, app_user_id) INCLUDE (watched, favorite);
@@ -0,0 +1,12 @@
+-- per-user counters behind /users/{id}/stats, maintained by UserStatsRepository on every library write
+-- kind: T total (key 0), G genre (key genre id), D decade (key first year), A actor (key actor id)
+CREATE TABLE IF NOT EXISTS user_stat (
+    app_user_id bigint NOT NULL,
+    kind char(1) NOT NULL,
+    key bigint NOT NULL,
+    watched integer NOT NULL,
+    favorite integer NOT NULL,
+    PRIMARY KEY (app_user_id, kind, key)
+);
+-- most-watched actors are read top-down without sorting the user's whole actor range
+CREATE INDEX IF NOT EXISTS idx_user_stat_top ON user_stat (app_user_id, kind, watched DESC, favorite DESC, key);
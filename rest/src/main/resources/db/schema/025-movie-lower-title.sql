@@ -0,0 +1,2 @@
+-- watch history imports resolve titles case-insensitively, a batch at a time with lower(title) = ANY(?)
+CREATE INDEX IF NOT EXISTS idx_movie_lower_title ON movie (lower(title));
@@ -0,0 +1,231 @@
+package asot.me.rest.autocomplete;
+
+import asot.me.rest.dto.AutocompleteHitDto;
+import asot.me.rest.dto.AutocompleteStatsDto;
+import asot.me.rest.repository.AutocompleteSourceRepository;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Segment layout, delta, compaction and journal replay of the autocomplete index, against a mocked
+ * label source. The benchmark builds a synthetic index and logs build time, memory and lookup latency
+ * with a full delta; it is off in the default build, run it with -Dbenchmark=true
+ * (-Dautocomplete.benchmark.entries sets the size, 400000 by default).
+ */
+@Log4j2
+class AutocompleteIndexBenchmarkTest {
+    private static final Set<String> ALL = Set.of(AutocompleteIndex.MOVIE, AutocompleteIndex.ACTOR);
+
+    private final AutocompleteSourceRepository source = mock(AutocompleteSourceRepository.class);
+
+    @Test
+    void segmentMapsPrefixesToTokenRanges() {
+        assertArrayEquals(new String[]{"le", "fabuleux", "destin", "d", "amelie"},
+                PrefixSegment.tokenize("Le Fabuleux Destin d'Amélie"), "folded, split, distinct in label order");
+        assertArrayEquals(new String[]{"amelie", "le", "fabuleux", "destin", "d"},
+                PrefixSegment.tokenize("Amélie, le fabuleux destin d'AMELIE"));
+
+        PrefixSegment segment = new PrefixSegment.Builder(0)
+                .add(1, "Alien")
+                .add(5, "Aliens")
+                .add(9, "Blade Runner")
+                .build();
+
+        assertEquals(3, segment.size());
+        assertEquals(4, segment.tokenCount());
+        assertEquals(2, segment.postingCount(segment.tokenRange("ali")));
+        assertEquals(1, segment.postingCount(segment.tokenRange("aliens")));
+        assertEquals(0, segment.postingCount(segment.tokenRange("z")));
+        assertEquals(2, segment.posting(segment.postingFrom(segment.tokenRange("run"))));
+        assertEquals(1, segment.ordinalOf(5));
+        assertEquals(-1, segment.ordinalOf(6));
+        assertThrows(IllegalArgumentException.class, () -> new PrefixSegment.Builder(0).add(2, "b").add(1, "a"));
+    }
+
+    @Test
+    void deltaOverridesTheSegment() throws SQLException {
+        movies(new long[]{1, 2}, new String[]{"The Matrix", "The Matrix Reloaded"});
+        actors(new long[]{1}, new String[]{"Keanu Reeves"});
+        AutocompleteIndex index = new AutocompleteIndex(source, 100);
+        index.build(true);
+
+        index.movieSaved(2L, "Matrix Revolutions");
+        index.movieDeleted(1L);
+        index.movieSaved(3L, "Matrix Resurrections");
+
+        assertEquals(List.of("movie:2", "movie:3"), hits(index.suggest("matrix re", ALL, 10)));
+        assertEquals(List.of("movie:2", "movie:3"), hits(index.suggest("Mat", ALL, 10)));
+        assertEquals(List.of("actor:1"), hits(index.suggest("kea", ALL, 10)));
+        assertEquals(List.of(), hits(index.suggest("reloaded", ALL, 10)));
+
+        // a second write replaces the tokens of the first
+        index.movieSaved(3L, "Speed");
+        assertEquals(List.of("movie:2"), hits(index.suggest("matrix", ALL, 10)));
+        assertEquals(List.of("movie:3"), hits(index.suggest("spe", Set.of(AutocompleteIndex.MOVIE), 10)));
+        assertEquals(List.of(), hits(index.suggest("spe", Set.of(AutocompleteIndex.ACTOR), 10)));
+    }
+
+    @Test
+    void compactionMergesTheDeltaIntoTheSegment() throws SQLException {
+        movies(new long[]{1, 2, 4}, new String[]{"Alien", "Aliens", "Alien 3"});
+        actors(new long[]{1}, new String[]{"Sigourney Weaver"});
+        AutocompleteIndex index = new AutocompleteIndex(source, 1);
+        index.build(true);
+        index.movieSaved(3L, "Alien Resurrection");
+        index.movieDeleted(2L);
+        index.movieSaved(4L, "Alien³");
+        index.actorSaved(2L, "Michael", "Biehn");
+        List<String> beforeCompaction = hits(index.suggest("alien", ALL, 10));
+
+        index.compactIfNeeded();
+
+        AutocompleteStatsDto stats = index.getStats();
+        assertEquals(0, stats.getPendingUpserts());
+        assertEquals(0, stats.getPendingRemovals());
+        assertEquals(5, stats.getEntries());
+        assertEquals(beforeCompaction, hits(index.suggest("alien", ALL, 10)));
+        assertEquals(List.of("movie:1", "movie:4", "movie:3"), beforeCompaction);
+        assertEquals(List.of("actor:2"), hits(index.suggest("bie", ALL, 10)));
+    }
+
+    @Test
+    void changesDuringABuildAreReplayedOntoIt() throws SQLException {
+        AutocompleteIndex index = new AutocompleteIndex(source, 100);
+        doAnswer(invocation -> {
+            stream(invocation.getArgument(0), new long[]{1, 2}, new String[]{"Heat", "Ronin"});
+            // committed while the segment is being built, after their rows were read
+            index.movieSaved(2L, "Ronin Redux");
+            index.movieSaved(10L, "Zodiac");
+            index.movieDeleted(1L);
+            return null;
+        }).when(source).forEachMovieTitle(any());
+
+        index.build(true);
+
+        assertEquals(List.of("movie:10"), hits(index.suggest("zod", ALL, 10)));
+        assertEquals(List.of(), hits(index.suggest("heat", ALL, 10)));
+        assertEquals(List.of("movie:2"), hits(index.suggest("ronin red", ALL, 10)));
+        assertTrue(index.getStats().isReady());
+        assertEquals(2, index.getStats().getEntries());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkBuildAndDeltaLookups() throws SQLException {
+        int entries = Integer.getInteger("autocomplete.benchmark.entries", 400_000);
+        int deltaSize = 20_000;
+        Random random = new Random(42);
+        String[] words = new String[50_000];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = word(random);
+        }
+        long[] ids = new long[entries];
+        String[] labels = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            ids[i] = i + 1;
+            labels[i] = label(random, words);
+        }
+
+        long started = System.nanoTime();
+        PrefixSegment.Builder builder = new PrefixSegment.Builder(entries);
+        for (int i = 0; i < entries; i++) {
+            builder.add(ids[i], labels[i]);
+        }
+        PrefixSegment segment = builder.build();
+        long buildMs = (System.nanoTime() - started) / 1_000_000;
+
+        movies(ids, labels);
+        actors(new long[0], new String[0]);
+        AutocompleteIndex index = new AutocompleteIndex(source, Integer.MAX_VALUE);
+        index.build(true);
+        long bytesPerMillion = index.getStats().getBytesPerMillionEntries();
+        double withoutDelta = lookupMicros(index, words, new Random(7));
+        for (int i = 0; i < deltaSize; i++) {
+            index.movieSaved((long) entries + i + 1, label(random, words));
+        }
+        double withDelta = lookupMicros(index, words, new Random(7));
+
+        log.info("autocomplete, {} entries: segment build {} ms, {} tokens, ~{} MB per million entries; "
+                        + "lookup {} us, {} us with {} pending upserts",
+                entries, buildMs, segment.tokenCount(), bytesPerMillion >> 20,
+                String.format("%.1f", withoutDelta), String.format("%.1f", withDelta), index.getStats().getPendingUpserts());
+        assertTrue(withDelta < withoutDelta * 2, "the delta should not dominate lookups");
+    }
+
+    private static double lookupMicros(AutocompleteIndex index, String[] words, Random random) {
+        int warmup = 2_000;
+        int rounds = 5_000;
+        long hits = 0;
+        long started = 0;
+        for (int round = 0; round < warmup + rounds; round++) {
+            if (round == warmup) {
+                started = System.nanoTime();
+            }
+            String word = words[random.nextInt(words.length)];
+            hits += index.suggest(word.substring(0, 2 + random.nextInt(word.length() - 1)), ALL, 10).size();
+        }
+        assertTrue(hits > 0);
+        return (System.nanoTime() - started) / 1000.0 / rounds;
+    }
+
+    private void movies(long[] ids, String[] labels) throws SQLException {
+        doAnswer(invocation -> {
+            stream(invocation.getArgument(0), ids, labels);
+            return null;
+        }).when(source).forEachMovieTitle(any());
+    }
+
+    private void actors(long[] ids, String[] labels) throws SQLException {
+        doAnswer(invocation -> {
+            stream(invocation.getArgument(0), ids, labels);
+            return null;
+        }).when(source).forEachActorName(any());
+    }
+
+    private static void stream(RowCallbackHandler handler, long[] ids, String[] labels) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] row = {0};
+        when(rs.getLong("id")).thenAnswer(invocation -> ids[row[0]]);
+        when(rs.getString("label")).thenAnswer(invocation -> labels[row[0]]);
+        for (; row[0] < ids.length; row[0]++) {
+            handler.processRow(rs);
+        }
+    }
+
+    private static List<String> hits(List<AutocompleteHitDto> hits) {
+        return hits.stream().map(hit -> hit.getType() + ":" + hit.getId()).toList();
+    }
+
+    private static String word(Random random) {
+        char[] letters = new char[3 + random.nextInt(7)];
+        for (int i = 0; i < letters.length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+
+    private static String label(Random random, String[] words) {
+        StringBuilder label = new StringBuilder(words[random.nextInt(words.length)]);
+        for (int extra = random.nextInt(4); extra > 0; extra--) {
+            label.append(' ').append(words[random.nextInt(words.length)]);
+        }
+        return label.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package asot.me.rest.controller;
+
+import asot.me.rest.support.StatementCounter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A list page must load with the same number of statements whatever its size; a per-row
+ * lazy load shows up here as a count that grows with the page.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=asot.me.rest.support.StatementCounter")
+@AutoConfigureMockMvc
+@Transactional
+class ListStatementCountTest {
+    // negative ids are never used by TMDB or the id sequences; the rows only live in the test transaction,
+    // which is rolled back after each test, so the seed never touches or leaves behind real rows
+    private static final long FIRST_MOVIE_ID = -990001;
+    private static final long FIRST_ACTOR_ID = -990101;
+    private static final long FIRST_USER_ID = -990501;
+    private static final int MOVIES = 3;
+    private static final int ROWS = 12;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void seed() {
+        for (int m = 0; m < MOVIES; m++) {
+            jdbcTemplate.update("INSERT INTO movie (id, title, year, genre_ids, queried) VALUES (?, ?, 2000, '{}', false)",
+                    FIRST_MOVIE_ID - m, "Statement count movie " + m);
+        }
+        for (int i = 0; i < ROWS; i++) {
+            jdbcTemplate.update("INSERT INTO actor (id, firstname, lastname) VALUES (?, 'Stmtcount', ?)",
+                    FIRST_ACTOR_ID - i, "Actor" + i);
+            jdbcTemplate.update("INSERT INTO app_user (id, username) VALUES (?, ?)",
+                    FIRST_USER_ID - i, "stmtcount-" + i);
+            for (int m = 0; m < MOVIES; m++) {
+                jdbcTemplate.update("INSERT INTO movie_actor (movie_id, actor_id) VALUES (?, ?)",
+                        FIRST_MOVIE_ID - m, FIRST_ACTOR_ID - i);
+                jdbcTemplate.update("INSERT INTO user_movie (app_user_id, movie_id, watched, favorite) VALUES (?, ?, true, false)",
+                        FIRST_USER_ID - i, FIRST_MOVIE_ID - m);
+            }
+        }
+    }
+
+    @Test
+    void usersPageDoesNotLoadLibrariesPerUser() throws Exception {
+        // the seeded users have the lowest ids, so an ascending page holds only them
+        int small = statementsFor("/users?_start=0&_end=2&_sort=id&_order=asc");
+        int large = statementsFor("/users?_start=0&_end=" + ROWS + "&_sort=id&_order=asc");
+        assertEquals(small, large);
+        assertTrue(large <= 3, "page, count and one batched library load, got " + large);
+    }
+
+    @Test
+    void actorsPageDoesNotLoadFilmographiesPerActor() throws Exception {
+        int small = statementsFor("/actors?name_like=Stmtcount&_start=0&_end=2");
+        int large = statementsFor("/actors?name_like=Stmtcount&_start=0&_end=" + ROWS);
+        assertEquals(small, large);
+        assertTrue(large <= 3, "page, count and one grouped movie count, got " + large);
+    }
+
+    @Test
+    void movieDetailLoadsCastFilmographiesInBatches() throws Exception {
+        int detail = statementsFor("/movies/" + FIRST_MOVIE_ID);
+        assertTrue(detail <= 4, "movie, cast and one batch per cast collection, got " + detail);
+    }
+
+    private int statementsFor(String url) throws Exception {
+        // requests share the test transaction; start each one without the entities the previous one loaded
+        entityManager.clear();
+        StatementCounter.reset();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return StatementCounter.count();
+    }
+}
@@ -0,0 +1,60 @@
+package asot.me.rest.importer;
+
+import asot.me.rest.dto.UserMovieDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * How imported rows are merged with each other and with the user's library.
+ */
+class WatchHistoryImporterTest {
+
+    @Test
+    void repeatedMoviesAddUpTheirFlags() {
+        Map<Long, boolean[]> imported = new LinkedHashMap<>();
+        WatchHistoryImporter.addFlags(imported, 1L, entry(null, true));
+        WatchHistoryImporter.addFlags(imported, 1L, entry(false, false));
+        WatchHistoryImporter.addFlags(imported, 2L, entry(false, null));
+
+        // watched defaults to true, a later row never clears a flag
+        assertEquals(List.of(true, true), flags(imported.get(1L)));
+        assertEquals(List.of(false, false), flags(imported.get(2L)));
+    }
+
+    @Test
+    void flagsAreOnlyAddedToTheLibrary() {
+        Map<Long, boolean[]> imported = new LinkedHashMap<>();
+        imported.put(1L, new boolean[]{true, false});
+        imported.put(2L, new boolean[]{true, false});
+        imported.put(3L, new boolean[]{false, true});
+        imported.put(4L, new boolean[]{true, true});
+        Map<Long, boolean[]> library = Map.of(
+                1L, new boolean[]{true, true},
+                2L, new boolean[]{true, false},
+                3L, new boolean[]{true, false});
+
+        List<UserMovieDto> changes = WatchHistoryImporter.flagChanges(7L, imported, library);
+
+        // 1 keeps its favorite, 2 is unchanged, 3 gains favorite and keeps watched, 4 is new
+        assertEquals(List.of(
+                UserMovieDto.builder().appUserId(7L).movieId(3L).watched(true).favorite(true).build(),
+                UserMovieDto.builder().appUserId(7L).movieId(4L).watched(true).favorite(true).build()), changes);
+    }
+
+    private static WatchHistoryEntry entry(Boolean watched, Boolean favorite) {
+        WatchHistoryEntry entry = new WatchHistoryEntry();
+        entry.setTitle("Heat");
+        entry.setWatched(watched);
+        entry.setFavorite(favorite);
+        return entry;
+    }
+
+    private static List<Boolean> flags(boolean[] flags) {
+        return List.of(flags[0], flags[1]);
+    }
+}
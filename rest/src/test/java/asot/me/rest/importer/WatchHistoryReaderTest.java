@@ -0,0 +1,152 @@
+package asot.me.rest.importer;
+
+import com.squareup.moshi.Moshi;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV and JSON lines parsing of watch history exports, including the caps on oversized records.
+ */
+class WatchHistoryReaderTest {
+    private final WatchHistoryReader reader = new WatchHistoryReader(new Moshi.Builder().build().adapter(WatchHistoryEntry.class));
+
+    @Test
+    void csvMatchesHeaderAliasesAndQuotedFields() throws IOException {
+        Rows rows = read(WatchHistoryReader.Format.CSV, """
+                \uFEFFName,Release_Year,TMDB,Rating,Liked\r
+                "Crouching Tiger, Hidden Dragon",2000,,5,yes\r
+                "The \"\"Burbs\"\"",1989,,4,\r
+                ,,603,5,x\r
+                \r
+                "Line
+                Break",2001,,3,0
+                """);
+
+        assertEquals(List.of(), rows.malformed);
+        assertEquals(List.of(2L, 3L, 4L, 6L), rows.lines);
+        WatchHistoryEntry first = rows.entries.get(0);
+        assertEquals("Crouching Tiger, Hidden Dragon", first.getTitle());
+        assertEquals(2000L, first.getYear());
+        assertTrue(first.getFavorite());
+        // flags left out stay null and fall back to the defaults
+        assertNull(first.getWatched());
+        assertEquals("The \"Burbs\"", rows.entries.get(1).getTitle());
+        assertNull(rows.entries.get(1).getFavorite());
+        assertNull(rows.entries.get(2).getTitle());
+        assertEquals(603L, rows.entries.get(2).getTmdbId());
+        assertEquals("Line\nBreak", rows.entries.get(3).getTitle());
+        assertFalse(rows.entries.get(3).getFavorite());
+    }
+
+    @Test
+    void csvReportsBadValuesAndKeepsReading() throws IOException {
+        Rows rows = read(WatchHistoryReader.Format.CSV, """
+                title,year,watched
+                Heat,nineteen95,true
+                ,1995,true
+                Ronin,1998,maybe
+                Alien,1979,false
+                """);
+
+        assertEquals(List.of("2: year is not a number: nineteen95", "3: row has neither title nor tmdbId",
+                "4: watched is not a boolean: maybe"), rows.malformed);
+        assertEquals(List.of(5L), rows.lines);
+        assertFalse(rows.entries.get(0).isWatchedOrDefault());
+    }
+
+    @Test
+    void csvWithoutTitleOrTmdbColumnIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> read(WatchHistoryReader.Format.CSV, "name_of_film,year\nHeat,1995\n"));
+    }
+
+    @Test
+    void unclosedQuoteIsCappedAndReadingResumes() throws IOException {
+        StringBuilder csv = new StringBuilder("title,year\n\"Stray quote,1990\n");
+        for (int i = 0; i < WatchHistoryReader.MAX_RECORD_LINES + 5; i++) {
+            csv.append("Movie ").append(i).append(",2000\n");
+        }
+
+        Rows rows = read(WatchHistoryReader.Format.CSV, csv.toString());
+
+        assertEquals(List.of("2: quoted field is not closed within " + WatchHistoryReader.MAX_RECORD_LINES + " lines"), rows.malformed);
+        // the stray quote took the lines up to the cap with it, the rest are rows again
+        assertEquals(6, rows.entries.size());
+        assertEquals(WatchHistoryReader.MAX_RECORD_LINES + 2L, rows.lines.get(0));
+        assertEquals("Movie 104", rows.entries.get(5).getTitle());
+    }
+
+    @Test
+    void overlongLinesAreMalformed() throws IOException {
+        String longTitle = "x".repeat(WatchHistoryReader.MAX_RECORD_LENGTH + 1);
+
+        Rows csv = read(WatchHistoryReader.Format.CSV, "title\n" + longTitle + "\nHeat\n");
+        assertEquals(List.of("2: record is longer than " + WatchHistoryReader.MAX_RECORD_LENGTH + " characters"), csv.malformed);
+        assertEquals(List.of(3L), csv.lines);
+
+        Rows jsonl = read(WatchHistoryReader.Format.JSONL, "{\"title\":\"" + longTitle + "\"}\n{\"title\":\"Heat\"}\n");
+        assertEquals(List.of("1: line is longer than " + WatchHistoryReader.MAX_RECORD_LENGTH + " characters"), jsonl.malformed);
+        assertEquals("Heat", jsonl.entries.get(0).getTitle());
+    }
+
+    @Test
+    void jsonLinesSkipBlankLinesAndReportBadOnes() throws IOException {
+        Rows rows = read(WatchHistoryReader.Format.JSONL, """
+                {"title":"  Heat  ","year":1995,"favorite":true}
+
+                {"tmdbId":603,"watched":false}
+                {"title":
+                {"year":2000}
+                """);
+
+        assertEquals(List.of(1L, 3L), rows.lines);
+        assertEquals("Heat", rows.entries.get(0).getTitle());
+        assertTrue(rows.entries.get(0).isFavoriteOrDefault());
+        assertEquals(603L, rows.entries.get(1).getTmdbId());
+        assertFalse(rows.entries.get(1).isWatchedOrDefault());
+        assertEquals(2, rows.malformed.size());
+        assertTrue(rows.malformed.get(0).startsWith("4: invalid JSON"));
+        assertEquals("5: row has neither title nor tmdbId", rows.malformed.get(1));
+    }
+
+    @Test
+    void formatComesFromTheParameterOrTheFileName() {
+        assertEquals(WatchHistoryReader.Format.JSONL, WatchHistoryReader.Format.of(null, "history.ndjson.gz"));
+        assertEquals(WatchHistoryReader.Format.CSV, WatchHistoryReader.Format.of("", "history.txt"));
+        assertEquals(WatchHistoryReader.Format.CSV, WatchHistoryReader.Format.of("CSV", "history.jsonl"));
+        assertThrows(IllegalArgumentException.class, () -> WatchHistoryReader.Format.of("xml", "history.xml"));
+    }
+
+    private Rows read(WatchHistoryReader.Format format, String content) throws IOException {
+        Rows rows = new Rows();
+        reader.read(new BufferedReader(new StringReader(content)), format, rows);
+        return rows;
+    }
+
+    private static final class Rows implements WatchHistoryReader.Handler {
+        private final List<Long> lines = new ArrayList<>();
+        private final List<WatchHistoryEntry> entries = new ArrayList<>();
+        private final List<String> malformed = new ArrayList<>();
+
+        @Override
+        public void entry(long line, WatchHistoryEntry entry) {
+            lines.add(line);
+            entries.add(entry);
+        }
+
+        @Override
+        public void malformed(long line, String reason) {
+            malformed.add(line + ": " + reason);
+        }
+    }
+}
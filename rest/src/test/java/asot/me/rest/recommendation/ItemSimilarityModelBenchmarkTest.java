@@ -0,0 +1,229 @@
+package asot.me.rest.recommendation;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks incremental updates against a rebuild and measures build time on synthetic libraries.
+ * The benchmark is off in the default build, run it with -Dbenchmark=true; the full size is
+ * {@code mvn test -Dtest=ItemSimilarityModelBenchmarkTest -Dbenchmark=true -Drecommendation.benchmark.users=1000000 -DargLine=-Xmx3g}.
+ */
+@Log4j2
+class ItemSimilarityModelBenchmarkTest {
+    private static final int ENTRIES_PER_USER = 100;
+    private static final int MOVIES = 50_000;
+
+    @Test
+    void recommendsMoviesSharedWithSimilarUsers() {
+        ItemSimilarityModel.Builder builder = new ItemSimilarityModel.Builder(10, 100);
+        // 1 and 2 go together, 3 is only ever seen with 4
+        for (long user = 1; user <= 20; user++) {
+            builder.add(user, 1, 1);
+            builder.add(user, 2, user % 2 == 0 ? 2 : 1);
+        }
+        builder.add(21, 3, 1);
+        builder.add(21, 4, 1);
+        builder.add(22, 1, 1);
+        builder.add(22, 4, 1);
+        ItemSimilarityModel model = builder.build();
+
+        List<Recommendation> recommendations = model.recommend(new long[]{1}, new int[]{1}, 5);
+
+        assertEquals(2, recommendations.get(0).movieId());
+        assertTrue(recommendations.stream().noneMatch(recommendation -> recommendation.movieId() == 1));
+        assertTrue(recommendations.stream().noneMatch(recommendation -> recommendation.movieId() == 3));
+    }
+
+    @Test
+    void incrementalUpdatesMatchRebuild() {
+        Random random = new Random(7);
+        int users = 400;
+        int movies = 60;
+        // k above the movie count stores every pair, so counts must match exactly
+        int k = movies + 5;
+        Map<Long, Map<Long, Integer>> libraries = new HashMap<>();
+        for (long user = 1; user <= users; user++) {
+            Map<Long, Integer> library = new HashMap<>();
+            for (int entry = 0; entry < 8; entry++) {
+                library.put(1 + (long) random.nextInt(movies), 1 + random.nextInt(2));
+            }
+            libraries.put(user, library);
+        }
+        ItemSimilarityModel model = build(libraries, k);
+
+        for (int step = 0; step < 2_000; step++) {
+            long user = 1 + random.nextInt(users);
+            applyRandomChange(model, libraries, user, 1 + random.nextInt(movies + 5), random.nextInt(3));
+        }
+
+        ItemSimilarityModel rebuilt = build(libraries, k);
+        for (long a = 1; a <= movies + 5; a++) {
+            for (long b = 1; b <= movies + 5; b++) {
+                if (a != b) {
+                    assertEquals(rebuilt.storedCount(a, b), model.storedCount(a, b), "pair " + a + "," + b);
+                }
+            }
+        }
+        long[] ids = libraries.get(1L).keySet().stream().mapToLong(Long::longValue).toArray();
+        int[] weights = Arrays.stream(ids).mapToInt(id -> libraries.get(1L).get(id)).toArray();
+        List<Recommendation> expected = rebuilt.recommend(ids, weights, 10);
+        List<Recommendation> actual = model.recommend(ids, weights, 10);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).score(), actual.get(i).score(), 1e-5);
+        }
+    }
+
+    @Test
+    void incrementalUpdatesKeepExactCountsWhenListsAreFull() {
+        Random random = new Random(11);
+        int users = 300;
+        int movies = 40;
+        // far fewer slots than movies, so offers evict and replace neighbours
+        int k = 3;
+        Map<Long, Map<Long, Integer>> libraries = new HashMap<>();
+        for (long user = 1; user <= users; user++) {
+            Map<Long, Integer> library = new HashMap<>();
+            for (int entry = 0; entry < 6; entry++) {
+                library.put(1 + (long) random.nextInt(movies), 1 + random.nextInt(2));
+            }
+            libraries.put(user, library);
+        }
+        ItemSimilarityModel model = build(libraries, k);
+
+        for (int step = 0; step < 2_000; step++) {
+            long user = 1 + random.nextInt(users);
+            applyRandomChange(model, libraries, user, 1 + random.nextInt(movies + 5), random.nextInt(3));
+        }
+
+        for (long a = 1; a <= movies + 5; a++) {
+            int stored = 0;
+            for (long b = 1; b <= movies + 5; b++) {
+                int count = a == b ? 0 : model.storedCount(a, b);
+                if (count > 0) {
+                    stored++;
+                    // a stored pair is never stale, whatever was evicted around it
+                    assertEquals(pairCount(libraries, a, b), count, "pair " + a + "," + b);
+                }
+            }
+            assertTrue(stored <= k, "movie " + a + " stores " + stored + " neighbours");
+        }
+    }
+
+    @Test
+    void offerReplacesTheWeakestNeighbourOfAFullList() {
+        Map<Long, Map<Long, Integer>> libraries = new HashMap<>();
+        // movie 1 is seen once each with 2 and 3, which fill its two slots
+        libraries.put(1L, new HashMap<>(Map.of(1L, 1, 2L, 1)));
+        libraries.put(2L, new HashMap<>(Map.of(1L, 1, 3L, 1)));
+        for (long user = 3; user <= 6; user++) {
+            libraries.put(user, new HashMap<>(Map.of(1L, 1)));
+        }
+        ItemSimilarityModel model = build(libraries, 2);
+        assertEquals(1, model.storedCount(1, 2));
+        assertEquals(1, model.storedCount(1, 3));
+
+        // four more users watch 4 next to 1; the pair is stored nowhere, so its exact count is offered
+        for (long user = 3; user <= 6; user++) {
+            applyRandomChange(model, libraries, user, 4, 1);
+        }
+
+        assertEquals(4, model.storedCount(1, 4));
+        assertEquals(4, model.storedCount(4, 1));
+        assertEquals(1, model.storedCount(1, 2) + model.storedCount(1, 3), "one of the weak neighbours is evicted");
+        List<Recommendation> recommendations = model.recommend(new long[]{1}, new int[]{1}, 1);
+        assertEquals(4, recommendations.get(0).movieId());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkBuild() {
+        int users = Integer.getInteger("recommendation.benchmark.users", 20_000);
+        Random random = new Random(42);
+        int[] seen = new int[MOVIES];
+        Arrays.fill(seen, -1);
+
+        long started = System.nanoTime();
+        ItemSimilarityModel.Builder builder = new ItemSimilarityModel.Builder(50, 2_000);
+        for (int user = 0; user < users; user++) {
+            int added = 0;
+            while (added < ENTRIES_PER_USER) {
+                // skewed popularity, a few movies are in most libraries
+                int movie = (int) (Math.pow(random.nextDouble(), 3) * MOVIES);
+                if (seen[movie] != user) {
+                    seen[movie] = user;
+                    builder.add(user + 1, movie + 1, random.nextInt(4) == 0 ? 2 : 1);
+                    added++;
+                }
+            }
+        }
+        long loaded = System.nanoTime();
+        ItemSimilarityModel model = builder.build();
+        long built = System.nanoTime();
+
+        long[] library = new long[ENTRIES_PER_USER];
+        int[] weights = new int[ENTRIES_PER_USER];
+        for (int i = 0; i < library.length; i++) {
+            library[i] = 1 + random.nextInt(MOVIES);
+            weights[i] = 1;
+        }
+        int rounds = 1_000;
+        List<Recommendation> recommendations = null;
+        long recommendStarted = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            recommendations = model.recommend(library, weights, 20);
+        }
+        long recommendNanos = (System.nanoTime() - recommendStarted) / rounds;
+
+        log.info("recommendation model, {} users x {} entries: load {} ms, build {} ms, {} movies, {} neighbour entries, ~{} MB, recommend {} ms",
+                users, ENTRIES_PER_USER, (loaded - started) / 1_000_000, (built - loaded) / 1_000_000,
+                model.itemCount(), model.pairCount(), model.estimatedBytes() >> 20, String.format("%.2f", recommendNanos / 1e6));
+        assertFalse(recommendations.isEmpty());
+    }
+
+    /**
+     * Applies the change to the model the way the engine does, looking up exact counts for the pairs it reports.
+     */
+    private static void applyRandomChange(ItemSimilarityModel model, Map<Long, Map<Long, Integer>> libraries,
+                                          long user, long movieId, int weight) {
+        Map<Long, Integer> library = libraries.get(user);
+        int previous = library.getOrDefault(movieId, 0);
+        long[] ids = library.keySet().stream().mapToLong(Long::longValue).toArray();
+        int[] weights = Arrays.stream(ids).mapToInt(id -> library.get(id)).toArray();
+
+        long[] missing = model.applyChange(ids, weights, movieId, previous, weight);
+        if (weight == 0) {
+            library.remove(movieId);
+        } else {
+            library.put(movieId, weight);
+        }
+        for (long other : missing) {
+            model.offerPair(movieId, other, pairCount(libraries, movieId, other));
+        }
+    }
+
+    private static ItemSimilarityModel build(Map<Long, Map<Long, Integer>> libraries, int k) {
+        ItemSimilarityModel.Builder builder = new ItemSimilarityModel.Builder(k, Integer.MAX_VALUE);
+        libraries.forEach((user, library) -> library.forEach((movieId, weight) -> builder.add(user, movieId, weight)));
+        return builder.build();
+    }
+
+    private static int pairCount(Map<Long, Map<Long, Integer>> libraries, long a, long b) {
+        int count = 0;
+        for (Map<Long, Integer> library : libraries.values()) {
+            count += library.getOrDefault(a, 0) * library.getOrDefault(b, 0);
+        }
+        return count;
+    }
+}
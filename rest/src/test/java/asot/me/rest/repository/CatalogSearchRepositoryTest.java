@@ -0,0 +1,42 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dto.SearchHitDto;
+import asot.me.rest.pagination.OffsetPageRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Highlighting of /search hits. The movie is seeded with a negative id inside the test transaction,
+ * which is rolled back after the test.
+ */
+@SpringBootTest
+@Transactional
+class CatalogSearchRepositoryTest {
+    @Autowired
+    private CatalogSearchRepository catalogSearchRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void markupInTheLabelIsEscapedBeforeHighlighting() {
+        jdbcTemplate.update("INSERT INTO movie (id, title, year, genre_ids, queried) VALUES (-1, ?, 2000, '{}', false)",
+                "Zyxquorp & <img src=x onerror=alert(1)>");
+
+        Page<SearchHitDto> hits = catalogSearchRepository.search("zyxquorp", Set.of(CatalogSearchRepository.MOVIE),
+                OffsetPageRequest.ofOffset(0, 10, Sort.unsorted()));
+
+        assertEquals(1, hits.getTotalElements());
+        SearchHitDto hit = hits.getContent().get(0);
+        assertEquals("Zyxquorp & <img src=x onerror=alert(1)>", hit.getLabel());
+        assertEquals("<b>Zyxquorp</b> &amp; &lt;img src=x onerror=alert(1)&gt;", hit.getHighlight());
+    }
+}
@@ -0,0 +1,40 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dom.Movie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Set-based movie upserts for TMDB ingestion. Rows use negative ids inside the test transaction, which is
+ * rolled back after the test.
+ */
+@SpringBootTest
+@Transactional
+class MovieBatchRepositoryTest {
+    @Autowired
+    private MovieBatchRepository movieBatchRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void newMoviesAreInsertedAndKnownOnesUpdated() {
+        jdbcTemplate.update("INSERT INTO movie (id, title, year, genre_ids, queried) VALUES (-1, 'Batch upsert old', NULL, '{}', false)");
+
+        int rows = movieBatchRepository.upsertQueriedMovies(List.of(
+                Movie.builder().id(-1L).title("Batch upsert one").year(1999L).genreIds(List.of(28L, 878L)).build(),
+                Movie.builder().id(-2L).title("Batch upsert two").year(2003L).genreIds(List.of()).build()));
+
+        assertEquals(2, rows);
+        Map<String, Object> updated = jdbcTemplate.queryForMap("SELECT title, year, genre_ids::text AS genre_ids, queried FROM movie WHERE id = -1");
+        assertEquals(Map.of("title", "Batch upsert one", "year", 1999L, "genre_ids", "{28,878}", "queried", true), updated);
+        assertEquals(true, jdbcTemplate.queryForObject("SELECT queried FROM movie WHERE id = -2", Boolean.class));
+    }
+}
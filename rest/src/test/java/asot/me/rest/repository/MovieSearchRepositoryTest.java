@@ -0,0 +1,111 @@
+package asot.me.rest.repository;
+
+import asot.me.rest.dto.MovieSearchCriteria;
+import asot.me.rest.dto.MovieSearchResultDto;
+import asot.me.rest.dto.MovieSummaryDto;
+import asot.me.rest.pagination.OffsetPageRequest;
+import asot.me.rest.service.MovieService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Filters, facets and paging of /movies/search. Rows are seeded with negative ids, which TMDB never uses,
+ * inside the test transaction; it is rolled back after each test, so nothing is left in the database.
+ */
+@SpringBootTest
+@Transactional
+class MovieSearchRepositoryTest {
+    private static final long ACTOR_A = -101;
+    private static final long ACTOR_B = -102;
+
+    @Autowired
+    private MovieService movieService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("INSERT INTO actor (id, firstname, lastname) VALUES (?, 'Search', 'A'), (?, 'Search', 'B')", ACTOR_A, ACTOR_B);
+        movie(-1, 1994, "{18,80}", ACTOR_A, ACTOR_B);
+        movie(-2, 1999, "{18}", ACTOR_A);
+        movie(-3, 2008, "{28,80}", ACTOR_B);
+        movie(-4, null, "{35}", ACTOR_A);
+    }
+
+    @Test
+    void anyActorFilterCountsFacetsOverTheWholeMatch() {
+        MovieSearchResultDto result = search(MovieSearchCriteria.builder().actorIds(List.of(ACTOR_A)).build(),
+                0, 2, Sort.by(Sort.Direction.ASC, "year"));
+
+        assertEquals(3, result.getTotal());
+        assertFalse(result.isTotalEstimated());
+        // a page of two, nulls last ascending
+        assertEquals(List.of(-1L, -2L), ids(result));
+        assertEquals(Map.of(18L, 2L, 80L, 1L, 35L, 1L), result.getGenreCounts());
+        assertEquals(Map.of(1990L, 2L), result.getDecadeCounts());
+    }
+
+    @Test
+    void allActorsAndGenreFiltersIntersect() {
+        MovieSearchResultDto result = search(MovieSearchCriteria.builder()
+                .actorIds(List.of(ACTOR_A, ACTOR_B)).matchAllActors(true).build(), 0, 10, Sort.by("id"));
+        assertEquals(List.of(-1L), ids(result));
+
+        result = search(MovieSearchCriteria.builder()
+                .actorIds(List.of(ACTOR_A, ACTOR_B)).genreIds(List.of(18L, 80L)).matchAllGenres(true).build(), 0, 10, Sort.by("id"));
+        assertEquals(List.of(-1L), ids(result));
+
+        result = search(MovieSearchCriteria.builder()
+                .actorIds(List.of(ACTOR_A, ACTOR_B)).yearFrom(1995L).yearTo(2010L).build(), 0, 10, Sort.by(Sort.Direction.DESC, "year"));
+        assertEquals(List.of(-3L, -2L), ids(result));
+        assertEquals(2, result.getTotal());
+    }
+
+    @Test
+    void pagesDoNotOverlap() {
+        MovieSearchCriteria criteria = MovieSearchCriteria.builder().actorIds(List.of(ACTOR_A, ACTOR_B)).build();
+        Sort sort = Sort.by(Sort.Direction.DESC, "title");
+        assertEquals(List.of(-4L, -3L), ids(search(criteria, 0, 2, sort)));
+        assertEquals(List.of(-2L, -1L), ids(search(criteria, 2, 2, sort)));
+    }
+
+    @Test
+    void unfilteredSearchEstimatesTheTotalAndSkipsFacets() {
+        MovieSearchResultDto result = search(MovieSearchCriteria.builder().build(), 0, 1, Sort.by("id"));
+
+        assertTrue(result.isTotalEstimated());
+        assertNull(result.getGenreCounts());
+        assertNull(result.getDecadeCounts());
+        assertEquals(1, result.getMovies().size());
+    }
+
+    private MovieSearchResultDto search(MovieSearchCriteria criteria, int start, int size, Sort sort) {
+        return movieService.facetedSearch(criteria, OffsetPageRequest.ofOffset(start, size, sort), EnumSet.allOf(MovieFacet.class));
+    }
+
+    private void movie(long id, Integer year, String genreIds, long... actorIds) {
+        jdbcTemplate.update("INSERT INTO movie (id, title, year, genre_ids, queried) VALUES (?, ?, ?, ?::bigint[], false)",
+                id, "Search test movie " + -id, year, genreIds);
+        for (long actorId : actorIds) {
+            jdbcTemplate.update("INSERT INTO movie_actor (movie_id, actor_id) VALUES (?, ?)", id, actorId);
+        }
+    }
+
+    private static List<Long> ids(MovieSearchResultDto result) {
+        return result.getMovies().stream().map(MovieSummaryDto::getId).toList();
+    }
+}
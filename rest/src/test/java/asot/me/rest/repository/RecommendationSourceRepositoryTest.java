@@ -0,0 +1,56 @@
+package asot.me.rest.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Exact pair counts for incremental recommendation updates. Rows are seeded with negative ids inside the
+ * test transaction, which is rolled back after the test.
+ */
+@SpringBootTest
+@Transactional
+class RecommendationSourceRepositoryTest {
+    @Autowired
+    private RecommendationSourceRepository recommendationSourceRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pairCountsLeaveOutUsersOverTheCap() {
+        for (long movieId = -1; movieId >= -3; movieId--) {
+            jdbcTemplate.update("INSERT INTO movie (id, title, year, genre_ids, queried) VALUES (?, ?, 2000, '{}', false)",
+                    movieId, "Pair count movie " + -movieId);
+        }
+        library(-1, Map.of(-1L, "favorite", -2L, "watched"));
+        library(-2, Map.of(-1L, "watched", -2L, "watched"));
+        // three movies, over a cap of two, like the model builder skips it
+        library(-3, Map.of(-1L, "favorite", -2L, "favorite", -3L, "watched"));
+
+        assertEquals(Map.of(-2L, 3L), pairCounts(-1, List.of(-2L, -3L), 2));
+        assertEquals(Map.of(-2L, 7L, -3L, 2L), pairCounts(-1, List.of(-2L, -3L), 3));
+    }
+
+    private void library(long appUserId, Map<Long, String> flags) {
+        jdbcTemplate.update("INSERT INTO app_user (id, username) VALUES (?, ?)", appUserId, "pair-count" + appUserId);
+        flags.forEach((movieId, flag) -> jdbcTemplate.update(
+                "INSERT INTO user_movie (app_user_id, movie_id, watched, favorite) VALUES (?, ?, true, ?)",
+                appUserId, movieId, flag.equals("favorite")));
+    }
+
+    private Map<Long, Long> pairCounts(long movieId, List<Long> others, int maxItemsPerUser) {
+        Map<Long, Long> counts = new HashMap<>();
+        recommendationSourceRepository.forEachPairCount(movieId, others, maxItemsPerUser,
+                (RowCallbackHandler) rs -> counts.put(rs.getLong("movie_id"), rs.getLong("count")));
+        return counts;
+    }
+}
@@ -0,0 +1,27 @@
+package asot.me.rest.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread. Register it with
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector; MockMvc runs the
+ * request on the test thread, so background jobs do not add to the count.
+ * Plain JdbcTemplate statements bypass Hibernate and are not counted.
+ */
+public class StatementCounter implements StatementInspector {
+    private static final ThreadLocal<Integer> COUNT = ThreadLocal.withInitial(() -> 0);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.set(COUNT.get() + 1);
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.set(0);
+    }
+
+    public static int count() {
+        return COUNT.get();
+    }
+}
@@ -0,0 +1,108 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.tmdb.response.Credits;
+import asot.me.rest.tmdb.response.TmdbCastMember;
+import asot.me.rest.tmdb.response.TmdbMovieDetailsResponse;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.Moshi;
+import lombok.extern.log4j.Log4j2;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the streaming credits reader with full Moshi binding on the sample payloads in the
+ * module root. The benchmark logs time and allocation per parse and only asserts the allocation win;
+ * it is off in the default build, run it with -Dbenchmark=true.
+ */
+@Log4j2
+class TmdbCreditsReaderBenchmarkTest {
+    private static final int CAST_LIMIT = 13;
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    private final Moshi moshi = new Moshi.Builder().build();
+
+    @Test
+    void streamingCreditsMatchFullBinding() throws IOException {
+        byte[] json = Files.readAllBytes(Path.of("movie-id-credits-search.json"));
+
+        List<TmdbCastMember> expected = moshi.adapter(Credits.class).fromJson(new Buffer().write(json)).getCast();
+        List<TmdbCastMember> cast = TmdbCreditsReader.readCredits(new Buffer().write(json), CAST_LIMIT).getCast();
+
+        assertEquals(CAST_LIMIT, cast.size());
+        for (int i = 0; i < CAST_LIMIT; i++) {
+            assertEquals(expected.get(i).getId(), cast.get(i).getId());
+            assertEquals(expected.get(i).getName(), cast.get(i).getName());
+            // fields we never persist are not decoded
+            assertNull(cast.get(i).getCharacter());
+        }
+    }
+
+    @Test
+    void streamingDetailsMatchFullBinding() throws IOException {
+        byte[] json = Files.readAllBytes(Path.of("movie-id-details-search.json"));
+
+        TmdbMovieDetailsResponse expected = moshi.adapter(TmdbMovieDetailsResponse.class).fromJson(new Buffer().write(json));
+        TmdbMovieDetailsResponse details = TmdbCreditsReader.readMovieDetails(new Buffer().write(json), CAST_LIMIT);
+
+        assertEquals(expected.getId(), details.getId());
+        assertEquals(expected.getTitle(), details.getTitle());
+        // moshi binds by field name and never fills releaseDate from release_date
+        assertEquals("1994-06-23", details.getReleaseDate());
+        assertEquals(expected.getGenres(), details.getGenres());
+        assertEquals(CAST_LIMIT, details.getCredits().getCast().size());
+        assertEquals(expected.getCredits().getCast().get(0).getId(), details.getCredits().getCast().get(0).getId());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkCreditsParsing() throws IOException {
+        byte[] json = Files.readAllBytes(Path.of("movie-id-credits-search.json"));
+        JsonAdapter<Credits> adapter = moshi.adapter(Credits.class);
+
+        Result full = measure(json, bytes -> adapter.fromJson(new Buffer().write(bytes)).getCast().size());
+        Result streaming = measure(json, bytes -> TmdbCreditsReader.readCredits(new Buffer().write(bytes), CAST_LIMIT).getCast().size());
+
+        log.info("credits parse, {} bytes: moshi {} us / {} B, streaming {} us / {} B",
+                json.length, String.format("%.1f", full.micros), full.bytes, String.format("%.1f", streaming.micros), streaming.bytes);
+        assertTrue(streaming.bytes < full.bytes, "streaming reader should allocate less than full binding");
+    }
+
+    private static Result measure(byte[] json, Parse parse) throws IOException {
+        long sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += parse.run(json);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += parse.run(json);
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertTrue(sink > 0);
+        return new Result(elapsed / 1000.0 / ITERATIONS, allocated / ITERATIONS);
+    }
+
+    private interface Parse {
+        int run(byte[] json) throws IOException;
+    }
+
+    private record Result(double micros, long bytes) {
+    }
+}
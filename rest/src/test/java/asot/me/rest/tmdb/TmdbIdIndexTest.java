@@ -0,0 +1,45 @@
+package asot.me.rest.tmdb;
+
+import asot.me.rest.repository.MovieRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Ingested ids of deleted movies are forgotten once the delete commits, also across a reload from disk.
+ */
+class TmdbIdIndexTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void deletedMovieIsForgottenAfterCommit() {
+        String file = directory.resolve("index.bin").toString();
+        TmdbIdIndex index = new TmdbIdIndex(file, mock(MovieRepository.class));
+        index.markIngested(List.of(603L, 604L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.unmarkIngested(603L);
+            assertTrue(index.isKnown(603L), "still ingested until the delete commits");
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertFalse(index.isKnown(603L));
+        index.save();
+
+        TmdbIdIndex reloaded = new TmdbIdIndex(file, mock(MovieRepository.class));
+        reloaded.load();
+        assertFalse(reloaded.isIngested(603L));
+        assertTrue(reloaded.isIngested(604L));
+    }
+}